@@ -0,0 +1,89 @@
+package com.amine.fx.benchmark;
+
+import com.amine.fx.service.DealChunkReader;
+import com.amine.fx.service.DealRow;
+import com.amine.fx.service.ImportProgress;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 📖 CSV parsing only: bytes in, {@link DealRow}s out. The score is rows per second.
+ *
+ * "commons" is commons-csv, "fast" the byte-level parser and "mapped" the memory-mapped parallel parser
+ * reading a temp file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CsvParsingBenchmark {
+
+    static final int ROWS = 200_000;
+    private static final int CHUNK_SIZE = 1000;
+
+    @Param({"commons", "fast", "mapped"})
+    public String parser;
+
+    @Param({"0.05"})
+    public double duplicateRatio;
+
+    @Param({"0.02"})
+    public double errorRatio;
+
+    private byte[] csv;
+    private Path file;
+
+    @Setup
+    public void generateFile() throws IOException {
+        csv = new DealFileGenerator().rows(ROWS).duplicateRatio(duplicateRatio).errorRatio(errorRatio).toBytes();
+        file = Files.write(Files.createTempFile("deals-bench", ".csv"), csv);
+    }
+
+    @TearDown
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parse(Blackhole blackhole) throws IOException {
+        try (DealChunkReader chunks = open()) {
+            while (chunks.hasNext()) {
+                List<DealRow> chunk = chunks.next();
+                for (DealRow row : chunk) {
+                    blackhole.consume(row);
+                }
+            }
+        }
+    }
+
+    private DealChunkReader open() throws IOException {
+        return switch (parser) {
+            case "mapped" -> DealChunkReader.openMapped(file, CHUNK_SIZE, 0, 1024 * 1024,
+                    Runtime.getRuntime().availableProcessors(), new ImportProgress());
+            case "fast" -> DealChunkReader.open(new ByteArrayInputStream(csv), CHUNK_SIZE, 0, true);
+            default -> DealChunkReader.open(new ByteArrayInputStream(csv), CHUNK_SIZE, 0, false);
+        };
+    }
+}
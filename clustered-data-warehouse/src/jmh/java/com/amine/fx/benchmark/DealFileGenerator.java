@@ -0,0 +1,127 @@
+package com.amine.fx.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+
+/**
+ * 🎲 Writes synthetic deal files for the benchmarks: a given number of rows, a share of them reusing an
+ * earlier deal ID and a share of them broken in one of the ways the validator rejects.
+ *
+ * The same seed always gives the same file, so numbers from different releases are comparable.
+ *
+ * Run it on its own to get a file for a manual upload:
+ * java -cp ... com.amine.fx.benchmark.DealFileGenerator deals.csv 1000000 0.05 0.02
+ */
+public class DealFileGenerator {
+
+    public static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+
+    private static final String[] CURRENCIES = {"USD", "EUR", "GBP", "JPY", "MAD", "CHF", "CAD", "AUD", "CNY", "SEK"};
+
+    private long rows = 100_000;
+    private double duplicateRatio = 0.05;
+    private double errorRatio = 0.02;
+    private long seed = 42;
+
+    public DealFileGenerator rows(long rows) {
+        this.rows = rows;
+        return this;
+    }
+
+    // Share of rows (0..1) that repeat the ID of an earlier row
+    public DealFileGenerator duplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = duplicateRatio;
+        return this;
+    }
+
+    // Share of rows (0..1) with a missing field, a bad timestamp, a bad amount or a bad currency
+    public DealFileGenerator errorRatio(double errorRatio) {
+        this.errorRatio = errorRatio;
+        return this;
+    }
+
+    public DealFileGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Path writeTo(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(writer);
+        }
+        return file;
+    }
+
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) Math.min(Integer.MAX_VALUE - 8, rows * 48));
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            write(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Writing to memory cannot fail", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void write(Writer writer) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        StringBuilder line = new StringBuilder(64);
+
+        writer.write(HEADER);
+        writer.write('\n');
+        for (long i = 0; i < rows; i++) {
+            // 🔁 Duplicates point back at an earlier row of the same file
+            long id = i > 0 && random.nextDouble() < duplicateRatio ? random.nextLong(i) : i;
+            String from = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String to = CURRENCIES[random.nextInt(CURRENCIES.length)];
+            String timestamp = "2025-%02d-%02dT%02d:%02d:%02d".formatted(1 + random.nextInt(12), 1 + random.nextInt(28),
+                    random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            String amount = (1 + random.nextInt(1_000_000)) + "." + "%02d".formatted(random.nextInt(100));
+
+            // ❌ One kind of error per broken row
+            if (random.nextDouble() < errorRatio) {
+                switch (random.nextInt(5)) {
+                    case 0 -> to = "";
+                    case 1 -> timestamp = "13/11/2025 10:00";
+                    case 2 -> amount = "-" + amount;
+                    case 3 -> amount = "12abc";
+                    default -> from = "EURO";
+                }
+            }
+
+            line.setLength(0);
+            line.append('D').append(id).append(',').append(from).append(',').append(to).append(',')
+                    .append(timestamp).append(',').append(amount).append('\n');
+            writer.append(line);
+        }
+    }
+
+    // 📝 Arguments: output file, rows, duplicate ratio, error ratio (and optionally a seed)
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: DealFileGenerator <file> [rows] [duplicateRatio] [errorRatio] [seed]");
+            return;
+        }
+        DealFileGenerator generator = new DealFileGenerator();
+        if (args.length > 1) {
+            generator.rows(Long.parseLong(args[1]));
+        }
+        if (args.length > 2) {
+            generator.duplicateRatio(Double.parseDouble(args[2]));
+        }
+        if (args.length > 3) {
+            generator.errorRatio(Double.parseDouble(args[3]));
+        }
+        if (args.length > 4) {
+            generator.seed(Long.parseLong(args[4]));
+        }
+        Path file = generator.writeTo(Path.of(args[0]));
+        System.out.println("✅ Wrote " + generator.rows + " deals to " + file.toAbsolutePath());
+    }
+}
@@ -0,0 +1,70 @@
+package com.amine.fx.benchmark;
+
+import com.amine.fx.service.DealChunkReader;
+import com.amine.fx.service.DealRow;
+import com.amine.fx.service.DealValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ✅ Per-row validation and conversion: timestamp parsing, BigDecimal parsing, currency checks and
+ * building the {@link com.amine.fx.model.CompactDeal}. The score is rows per second.
+ *
+ * Rows from "commons" carry plain text, so the validator parses every value itself. Rows from "fast"
+ * carry the timestamp and amount the byte parser already decoded, which is what the import sees by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DealValidationBenchmark {
+
+    static final int ROWS = 100_000;
+
+    @Param({"commons", "fast"})
+    public String parser;
+
+    @Param({"0.0", "0.2"})
+    public double errorRatio;
+
+    private final DealValidator validator = new DealValidator();
+    private List<DealRow> rows;
+
+    // 📖 Parse once - only validation is measured
+    @Setup
+    public void readRows() throws IOException {
+        byte[] csv = new DealFileGenerator().rows(ROWS).duplicateRatio(0).errorRatio(errorRatio).toBytes();
+        rows = new ArrayList<>(ROWS);
+        try (DealChunkReader chunks = DealChunkReader.open(new ByteArrayInputStream(csv), 1000, 0,
+                "fast".equals(parser))) {
+            chunks.forEachRemaining(rows::addAll);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void validate(Blackhole blackhole) {
+        for (DealRow row : rows) {
+            blackhole.consume(validator.validate(row));
+        }
+    }
+}
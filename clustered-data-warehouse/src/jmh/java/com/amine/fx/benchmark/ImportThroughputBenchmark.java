@@ -0,0 +1,130 @@
+package com.amine.fx.benchmark;
+
+import com.amine.fx.ClusteredDataWarehouseApplication;
+import com.amine.fx.service.DealImportService;
+import com.amine.fx.service.ImportCounts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MySQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 🏁 End-to-end import of a generated file through {@link DealImportService}: parsing, validation,
+ * duplicate check, batch inserts, error records and checkpoints. The score is rows per second.
+ *
+ * "h2" runs against the in-memory database of the tests. "mysql" starts a MySQL container with
+ * Testcontainers (Docker required) - these numbers are the ones to compare across releases.
+ * Every run starts from empty tables.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ImportThroughputBenchmark {
+
+    static final int ROWS = 100_000;
+
+    @Param({"h2"})
+    public String database;
+
+    // true = staged multi-threaded pipeline, false = everything on one thread
+    @Param({"true", "false"})
+    public boolean pipeline;
+
+    @Param({"1000"})
+    public int chunkSize;
+
+    @Param({"0.05"})
+    public double duplicateRatio;
+
+    @Param({"0.02"})
+    public double errorRatio;
+
+    private MySQLContainer<?> mysql;
+    private ConfigurableApplicationContext context;
+    private DealImportService dealImportService;
+    private JdbcTemplate jdbcTemplate;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void startApplication() throws IOException {
+        List<String> properties = new ArrayList<>(List.of(
+                "fx.import.chunk-size=" + chunkSize,
+                "spring.jpa.show-sql=false",
+                "logging.level.com.amine.fx=WARN",
+                "logging.level.org.springframework.transaction=WARN"));
+
+        // 🐬 Real MySQL in Docker, or the H2 settings of the "test" profile
+        if ("mysql".equals(database)) {
+            mysql = new MySQLContainer<>("mysql:8.0");
+            mysql.start();
+            properties.add("spring.datasource.url=" + mysql.getJdbcUrl() + "?rewriteBatchedStatements=true");
+            properties.add("spring.datasource.username=" + mysql.getUsername());
+            properties.add("spring.datasource.password=" + mysql.getPassword());
+            properties.add("spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.MySQLDialect");
+        } else {
+            properties.add("spring.profiles.active=test");
+        }
+
+        context = new SpringApplicationBuilder(ClusteredDataWarehouseApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties.toArray(String[]::new))
+                .run();
+        dealImportService = context.getBean(DealImportService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        file = new DealFileGenerator().rows(ROWS).duplicateRatio(duplicateRatio).errorRatio(errorRatio)
+                .writeTo(Files.createTempFile("deals-bench", ".csv"));
+    }
+
+    // 🧹 Same file every time, so without this the checkpoint and the duplicate check would skip everything
+    @Setup(Level.Invocation)
+    public void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        jdbcTemplate.update("DELETE FROM fx_deal_rollups");
+        jdbcTemplate.update("DELETE FROM fx_deal_errors");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public ImportCounts importFile() {
+        return dealImportService.importDealsFromCsv(file.toString(), pipeline);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() throws IOException {
+        if (context != null) {
+            context.close();
+        }
+        if (mysql != null) {
+            mysql.stop();
+        }
+        Files.deleteIfExists(file);
+    }
+}
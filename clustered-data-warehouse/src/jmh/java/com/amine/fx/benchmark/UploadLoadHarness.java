@@ -0,0 +1,254 @@
+package com.amine.fx.benchmark;
+
+import com.amine.fx.ClusteredDataWarehouseApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🌩️ Load test of the upload endpoint. Many clients stream CSV files into POST /api/deals/stream at a
+ * limited rate, like uploads over a real network, and each one waits for its import. Meanwhile one
+ * more client calls GET /api/deals/health every 50 ms. The
+ * application is started twice: first with Tomcat's platform-thread pool, then with virtual threads.
+ * For each run the harness prints upload throughput and the latency percentiles of both request types.
+ *
+ * This is not a JMH benchmark - the numbers come from real HTTP requests against the whole application,
+ * using the in-memory H2 of the "test" profile. So it measures the web and import layers, not MySQL.
+ * Every upload has its own deal IDs, so no row is a duplicate.
+ *
+ * ./mvnw -Pbenchmark test-compile exec:exec -Dbenchmark.main=com.amine.fx.benchmark.UploadLoadHarness -Djmh.args="20 64 500 32 16"
+ * Arguments: seconds measured per run, concurrent uploads, rows per upload, Tomcat threads of the platform run,
+ * KB/s each upload is sent at (0 = as fast as possible).
+ * fx.import.jobs.max-concurrent is raised to the number of uploads, so streamed imports are not refused.
+ * That leaves the connection pool and the writer slots to limit them.
+ */
+public class UploadLoadHarness {
+
+    private static final Duration HEALTH_INTERVAL = Duration.ofMillis(50);
+    private static final String[] PAIRS = {"EUR,USD", "GBP,USD", "USD,JPY", "EUR,GBP", "USD,CHF"};
+
+    public static void main(String[] args) throws Exception {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int uploaders = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int rows = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+        int tomcatThreads = args.length > 3 ? Integer.parseInt(args[3]) : 32;
+        int kilobytesPerSecond = args.length > 4 ? Integer.parseInt(args[4]) : 16;
+        // DevTools would restart main() in its own class loader, without the arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+
+        List<Result> results = new ArrayList<>();
+        results.add(run("platform (" + tomcatThreads + " threads)", false, tomcatThreads, seconds, uploaders, rows,
+                kilobytesPerSecond));
+        results.add(run("virtual", true, tomcatThreads, seconds, uploaders, rows, kilobytesPerSecond));
+
+        System.out.printf("%n%d concurrent uploads of %d rows at %s, %d s per run%n", uploaders, rows,
+                kilobytesPerSecond > 0 ? kilobytesPerSecond + " KB/s" : "full speed", seconds);
+        System.out.printf("%-24s %10s %11s %11s %11s %11s %11s  %s%n", "request threads", "uploads/s",
+                "upload p50", "upload p99", "health p50", "health p99", "health max", "failed");
+        for (Result result : results) {
+            System.out.printf("%-24s %10.1f %9.0fms %9.0fms %9.1fms %9.1fms %9.1fms  %s%n", result.mode(),
+                    result.uploads.length / (double) seconds,
+                    percentile(result.uploads, 0.50), percentile(result.uploads, 0.99),
+                    percentile(result.health, 0.50), percentile(result.health, 0.99),
+                    percentile(result.health, 1.0), result.failures().isEmpty() ? "-" : new TreeMap<>(result.failures()));
+        }
+    }
+
+    // 🚀 One application run: start, warm up, measure, stop
+    private static Result run(String mode, boolean virtualThreads, int tomcatThreads, int seconds, int uploaders,
+                              int rows, int kilobytesPerSecond) {
+        // Command-line arguments, so they win over application.properties
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ClusteredDataWarehouseApplication.class)
+                .run("--spring.profiles.active=test",
+                        "--spring.datasource.url=jdbc:h2:mem:upload-load-" + virtualThreads
+                                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--server.tomcat.threads.max=" + tomcatThreads,
+                        "--fx.import.jobs.max-concurrent=" + uploaders,
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.com.amine.fx=WARN",
+                        "--logging.level.org.springframework.transaction=WARN");
+        try {
+            String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            Load warmup = new Load(baseUrl, rows, kilobytesPerSecond);
+            warmup.run(uploaders, Duration.ofSeconds(Math.max(2, seconds / 4)));
+
+            Load load = new Load(baseUrl, rows, kilobytesPerSecond);
+            load.run(uploaders, Duration.ofSeconds(seconds));
+            return new Result(mode, load.uploadLatencies.sorted(), load.healthLatencies.sorted(), load.failures);
+        } finally {
+            context.close();
+        }
+    }
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(sortedNanos.length - 1, index))] / 1_000_000.0;
+    }
+
+    private record Result(String mode, long[] uploads, long[] health, Map<String, Long> failures) {
+    }
+
+    // 📡 Clients of one measured period
+    private static class Load {
+
+        private static final AtomicLong UPLOADS = new AtomicLong(); // Unique deal IDs across every run
+
+        private final String baseUrl;
+        private final int rows;
+        private final int kilobytesPerSecond;
+        private final HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .executor(Executors.newVirtualThreadPerTaskExecutor()) // Throttled bodies sleep on these
+                .build();
+        private final Latencies uploadLatencies = new Latencies();
+        private final Latencies healthLatencies = new Latencies();
+        private final Map<String, Long> failures = new ConcurrentHashMap<>();
+
+        private Load(String baseUrl, int rows, int kilobytesPerSecond) {
+            this.baseUrl = baseUrl;
+            this.rows = rows;
+            this.kilobytesPerSecond = kilobytesPerSecond;
+        }
+
+        void run(int uploaders, Duration duration) {
+            long deadline = System.nanoTime() + duration.toNanos();
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < uploaders; i++) {
+                    clients.submit(() -> {
+                        while (System.nanoTime() < deadline) {
+                            upload();
+                        }
+                    });
+                }
+                clients.submit(() -> {
+                    while (System.nanoTime() < deadline) {
+                        healthCheck();
+                        Thread.sleep(HEALTH_INTERVAL);
+                    }
+                    return null;
+                });
+            }
+        }
+
+        private void upload() {
+            long upload = UPLOADS.incrementAndGet();
+            byte[] csv = csv(upload);
+            HttpRequest.BodyPublisher body = kilobytesPerSecond > 0
+                    ? HttpRequest.BodyPublishers.ofInputStream(() -> new ThrottledInputStream(csv, kilobytesPerSecond * 1024))
+                    : HttpRequest.BodyPublishers.ofByteArray(csv);
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/deals/stream?filename=load-" + upload + ".csv"))
+                    .timeout(Duration.ofMinutes(2))
+                    .POST(body)
+                    .build();
+            send(request, uploadLatencies, "upload");
+        }
+
+        private void healthCheck() {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/deals/health"))
+                    .timeout(Duration.ofMinutes(2))
+                    .GET()
+                    .build();
+            send(request, healthLatencies, "health");
+        }
+
+        // ⏱️ Only successful requests count towards the latencies - the others are counted by status
+        private void send(HttpRequest request, Latencies latencies, String kind) {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = http.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    latencies.add(System.nanoTime() - start);
+                } else {
+                    failures.merge(kind + " " + response.statusCode(), 1L, Long::sum);
+                }
+            } catch (Exception e) {
+                failures.merge(kind + " " + e.getClass().getSimpleName(), 1L, Long::sum);
+            }
+        }
+
+        private byte[] csv(long upload) {
+            StringBuilder csv = new StringBuilder(DealFileGenerator.HEADER.length() + rows * 48);
+            csv.append(DealFileGenerator.HEADER).append('\n');
+            for (int i = 0; i < rows; i++) {
+                csv.append('L').append(upload).append('-').append(i).append(',')
+                        .append(PAIRS[i % PAIRS.length]).append(",2025-11-13T10:")
+                        .append(String.format("%02d", i % 60)).append(":00,")
+                        .append(100 + i % 900).append(".25\n");
+            }
+            return csv.toString().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // 🐢 Hands out the bytes in 10 ms slices, at most bytesPerSecond
+    private static class ThrottledInputStream extends InputStream {
+
+        private final ByteArrayInputStream in;
+        private final int slice;
+
+        private ThrottledInputStream(byte[] bytes, int bytesPerSecond) {
+            this.in = new ByteArrayInputStream(bytes);
+            this.slice = Math.max(1, bytesPerSecond / 100);
+        }
+
+        @Override
+        public int read() {
+            return in.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+            return in.read(buffer, offset, Math.min(length, slice));
+        }
+    }
+
+    // 📊 Latencies in nanoseconds, appended from many threads
+    private static class Latencies {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        synchronized void add(long nanos) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = nanos;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(values, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
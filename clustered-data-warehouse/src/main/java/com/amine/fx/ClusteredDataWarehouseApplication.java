@@ -4,9 +4,11 @@ import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import com.amine.fx.service.DealImportService;
 
 @SpringBootApplication
+@EnableScheduling // 📅 Nightly fx_deals partition maintenance
 public class ClusteredDataWarehouseApplication {
 
     public static void main(String[] args) {
@@ -17,9 +19,7 @@ public class ClusteredDataWarehouseApplication {
     CommandLineRunner runImporter(DealImportService dealImportService) {
         return args -> {
             String csvPath = "clustered-data-warehouse/src/main/resources/sample-deals.csv";
-            System.out.println("🚀 Starting CSV import from: " + csvPath);
-            dealImportService.importDealsFromCsv(csvPath); // 🚀 Changed to new method name
-            System.out.println("✅ CSV import complete.");
+            dealImportService.importDealsFromCsv(csvPath); // 🚀 Logs its report when done
         };
     }
 }
\ No newline at end of file
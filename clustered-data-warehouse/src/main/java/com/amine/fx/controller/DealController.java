@@ -1,25 +1,69 @@
 package com.amine.fx.controller;
 
+import com.amine.fx.model.DealRollup;
+import com.amine.fx.repository.DealFilter;
+import com.amine.fx.model.Deal;
 import com.amine.fx.service.DealImportService;
+import com.amine.fx.service.DealLookupService;
+import com.amine.fx.service.DealParquetExporter;
+import com.amine.fx.service.DealQueryService;
+import com.amine.fx.service.DealRollupService;
+import com.amine.fx.service.DealRuleEngine;
+import com.amine.fx.service.ImportJob;
+import com.amine.fx.service.ImportJobService;
+import com.amine.fx.service.ImportProgress;
+import com.amine.fx.service.ImportReport;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/deals")
 public class DealController {
 
+    private static final Logger logger = LoggerFactory.getLogger(DealController.class);
+
     @Autowired
     private DealImportService dealImportService;
 
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private DealQueryService dealQueryService;
+
+    @Autowired
+    private DealRollupService dealRollupService;
+
+    @Autowired
+    private DealLookupService dealLookupService;
+
+    @Autowired
+    private DealRuleEngine dealRuleEngine;
+
+    @Autowired
+    private DealParquetExporter dealParquetExporter;
+
     /**
      * 🎯 Health check endpoint - Test if API is working
      * GET http://localhost:8080/api/deals/health
@@ -53,16 +97,19 @@ public class DealController {
     }
 
     /**
-     * 🎯 Upload CSV file via API - WITH OPTIONAL PARAMETER
+     * 🎯 Upload CSV file via API - the import runs in the background
      * POST http://localhost:8080/api/deals/upload
+     * Returns 202 Accepted with a jobId - poll GET /api/deals/imports/{jobId} for progress
+     * Always 202 - the job hashes the file itself and ends in state DUPLICATE (with duplicateOf) when the same
+     * content is already being imported or was imported before
      */
     @PostMapping("/upload")
     public ResponseEntity<?> uploadCsvFile(@RequestParam(value = "file", required = false) MultipartFile file) {
-        System.out.println("📥 File upload request received");
+        logger.debug("File upload request received");
 
         // 🎯 Check if file is null
         if (file == null) {
-            System.out.println("❌ File parameter is null");
+            logger.debug("Upload rejected: file parameter is null");
 
             Map<String, String> response = new HashMap<>();
             response.put("status", "error");
@@ -73,74 +120,265 @@ public class DealController {
 
         try {
             // 🎯 Debug: Print file info
-            System.out.println("📋 File name: " + file.getOriginalFilename());
-            System.out.println("📏 File size: " + file.getSize() + " bytes");
-            System.out.println("📦 Content type: " + file.getContentType());
+            logger.debug("Upload {}: {} bytes, {}", file.getOriginalFilename(), file.getSize(), file.getContentType());
 
             // 🎯 Check if file is empty
             if (file.isEmpty()) {
-                System.out.println("❌ File is empty");
+                logger.debug("Upload rejected: file is empty");
                 return ResponseEntity.badRequest().body("❌ Please select a CSV file (file is empty)");
             }
 
-            // 🎯 Check file size
-            if (file.getSize() > 10 * 1024 * 1024) { // 10MB limit
-                System.out.println("❌ File too large: " + file.getSize() + " bytes");
-                return ResponseEntity.badRequest().body("❌ File too large. Maximum size is 10MB");
-            }
-
             // 🎯 Check if it's a CSV file
             String originalFilename = file.getOriginalFilename();
             if (originalFilename == null) {
-                System.out.println("❌ File has no name");
+                logger.debug("Upload rejected: file has no name");
                 return ResponseEntity.badRequest().body("❌ File has no name");
             }
 
             if (!originalFilename.toLowerCase().endsWith(".csv")) {
-                System.out.println("❌ Not a CSV file: " + originalFilename);
+                logger.debug("Upload rejected: not a CSV file: {}", originalFilename);
                 return ResponseEntity.badRequest().body("❌ Please upload a CSV file. Received: " + originalFilename);
             }
 
             // 🎯 Create temp directory if it doesn't exist
             String tempDir = System.getProperty("java.io.tmpdir");
-            System.out.println("📁 Temp directory: " + tempDir);
-
-            Path tempFilePath = Path.of(tempDir, "uploaded_deals_" + System.currentTimeMillis() + ".csv");
-
-            // 🎯 Save uploaded file temporarily
-            Files.copy(file.getInputStream(), tempFilePath, StandardCopyOption.REPLACE_EXISTING);
-            System.out.println("✅ File saved to: " + tempFilePath);
-
-            // 🎯 Process the CSV file
-            System.out.println("🔄 Starting CSV processing...");
-            dealImportService.importDealsFromCsv(tempFilePath.toString());
-            System.out.println("✅ CSV processing completed");
 
-            // 🎯 Clean up temporary file
-            Files.deleteIfExists(tempFilePath);
-            System.out.println("🧹 Temporary file cleaned up");
+            // Unique name - several uploads can now wait for their import at the same time
+            Path tempFilePath = Files.createTempFile(Path.of(tempDir), "uploaded_deals_", ".csv");
+
+            // 🎯 Move the uploaded file there (the import job deletes it when done)
+            // transferTo renames the part Tomcat already wrote to disk instead of copying it again
+            file.transferTo(tempFilePath.toFile());
+            logger.debug("Upload saved to {}", tempFilePath);
+
+            // 🎯 Hand the CSV file over to a background import job
+            ImportJob job;
+            try {
+                job = importJobService.submit(tempFilePath, originalFilename, true);
+            } catch (RejectedExecutionException e) {
+                Files.deleteIfExists(tempFilePath);
+                logger.warn("Upload of {} refused: too many imports running", originalFilename);
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body("❌ Too many imports are running. Please try again later.");
+            }
 
-            // 🎯 Return success response
+            // 🎯 Return accepted response - the client polls the job status
             Map<String, String> response = new HashMap<>();
-            response.put("status", "success");
-            response.put("message", "CSV file processed successfully");
+            response.put("status", "accepted");
+            response.put("message", "CSV file import started");
+            response.put("jobId", job.getId());
+            response.put("statusUrl", "/api/deals/imports/" + job.getId());
             response.put("filename", originalFilename);
             response.put("size", file.getSize() + " bytes");
 
-            System.out.println("🎉 Upload completed successfully");
-            return ResponseEntity.ok(response);
+            return ResponseEntity.accepted().body(response);
 
         } catch (IOException e) {
-            System.err.println("❌ File processing error: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("File processing error: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body("❌ File processing error: " + e.getMessage());
         } catch (Exception e) {
-            System.err.println("❌ Unexpected error: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Unexpected upload error: {}", e.getMessage(), e);
             return ResponseEntity.badRequest().body("❌ Error: " + e.getMessage());
         }
     }
 
+    /**
+     * 🎯 Stream a CSV file straight into the importer - no size limit, no temp file
+     * POST http://localhost:8080/api/deals/stream?filename=deals.csv
+     * Body: the raw CSV (or gzip-compressed CSV), e.g. curl --data-binary @deals.csv.gz
+     * The rows are imported while the upload is still arriving; the response comes when everything is stored.
+     * Requests run on virtual threads, so a slow upload doesn't keep other requests from being served.
+     */
+    @PostMapping("/stream")
+    public ResponseEntity<?> streamCsvFile(HttpServletRequest request,
+                                           @RequestParam(value = "filename", required = false) String filename) {
+        long contentLength = request.getContentLengthLong(); // -1 for chunked uploads
+        if (contentLength == 0) {
+            logger.debug("Streamed upload rejected: request body is empty");
+            return ResponseEntity.badRequest().body("❌ Please send the CSV content as the request body");
+        }
+
+        String fileName = filename != null && !filename.isBlank() ? filename : "stream.csv";
+
+        try {
+            ImportJob job = importJobService.runStream(request.getInputStream(), fileName, contentLength);
+            // 📋 The whole report right away - the import is over
+            Map<String, Object> status = jobStatus(job);
+            status.put("report", job.getProgress().getReport());
+
+            if (job.getState() == ImportJob.State.FAILED) {
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(status);
+            }
+            return ResponseEntity.ok(status);
+
+        } catch (RejectedExecutionException e) {
+            logger.warn("Streamed upload of {} refused: too many imports running", fileName);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body("❌ Too many imports are running. Please try again later.");
+        } catch (IOException e) {
+            logger.warn("Could not read request body of {}: {}", fileName, e.getMessage());
+            return ResponseEntity.badRequest().body("❌ Could not read request body: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 🎯 Search deals, one page at a time (keyset pagination, newest pages cost the same as the first)
+     * GET http://localhost:8080/api/deals?from=EUR&to=USD&start=2025-11-01T00:00:00&end=2025-12-01T00:00:00&limit=100
+     * Every filter is optional; start is inclusive, end exclusive. Pass nextCursor back as ?cursor= for the next page.
+     */
+    @GetMapping
+    public ResponseEntity<?> findDeals(@RequestParam(value = "from", required = false) String fromCurrency,
+                                       @RequestParam(value = "to", required = false) String toCurrency,
+                                       @RequestParam(value = "start", required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                       @RequestParam(value = "end", required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                       @RequestParam(value = "cursor", required = false) String cursor) {
+        DealQueryService.DealPage page;
+        try {
+            page = dealQueryService.findDeals(filter(fromCurrency, toCurrency, start, end), limit, cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("❌ " + e.getMessage());
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("deals", page.deals());
+        response.put("count", page.deals().size());
+        response.put("nextCursor", page.nextCursor());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 🎯 Export every matching deal - streamed straight from the database, any size
+     * GET http://localhost:8080/api/deals/export?format=csv&from=EUR&start=2025-11-01T00:00:00
+     * format=ndjson (default, one JSON object per line) or csv (same columns as the import files)
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportDeals(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                         @RequestParam(value = "from", required = false) String fromCurrency,
+                                         @RequestParam(value = "to", required = false) String toCurrency,
+                                         @RequestParam(value = "start", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                         @RequestParam(value = "end", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        DealQueryService.ExportFormat exportFormat;
+        try {
+            exportFormat = DealQueryService.ExportFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("❌ Unknown export format: " + format + " (use ndjson or csv)");
+        }
+        DealFilter filter = filter(fromCurrency, toCurrency, start, end);
+        logger.debug("Deal export requested: {} {}", exportFormat, filter);
+
+        // 🌊 Runs on an MVC async thread, writing while rows are read
+        StreamingResponseBody body = output -> {
+            long exported = dealQueryService.export(filter, exportFormat, output);
+            logger.debug("Exported {} deals", exported);
+        };
+        boolean csv = exportFormat == DealQueryService.ExportFormat.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv") : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"deals." + (csv ? "csv" : "ndjson") + "\"")
+                .body(body);
+    }
+
+    /**
+     * 🎯 Export the deals committed since the last run to Parquet files (partitioned by day and currency pair)
+     * POST http://localhost:8080/api/deals/export/parquet
+     * Same run as the scheduled one (fx.export.parquet.cron); returns 409 while a run is going on.
+     */
+    @PostMapping("/export/parquet")
+    public ResponseEntity<?> exportParquet() {
+        try {
+            DealParquetExporter.ExportRun run = dealParquetExporter.export();
+            Map<String, Object> response = new LinkedHashMap<>();
+            response.put("runNumber", run.runNumber());
+            response.put("exportedDeals", run.deals());
+            response.put("files", run.files());
+            response.put("durationMs", run.durationMillis());
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("❌ " + e.getMessage());
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("❌ Parquet export failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 🎯 Count, sum, min and max amount per currency pair and day - read from fx_deal_rollups, not fx_deals
+     * GET http://localhost:8080/api/deals/rollups?from=EUR&to=USD&startDate=2025-11-01&endDate=2025-12-01
+     * Every filter is optional; startDate is inclusive, endDate exclusive (UTC days).
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<?> dealRollups(@RequestParam(value = "from", required = false) String fromCurrency,
+                                         @RequestParam(value = "to", required = false) String toCurrency,
+                                         @RequestParam(value = "startDate", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+                                         @RequestParam(value = "endDate", required = false)
+                                         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        DealFilter filter = filter(fromCurrency, toCurrency, null, null);
+        List<DealRollup> daily = dealRollupService.findRollups(filter.fromCurrency(), filter.toCurrency(), startDate, endDate);
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("daily", daily);
+        response.put("totals", dealRollupService.totalsPerPair(daily));
+        response.put("count", daily.size());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 🎯 Business rules in evaluation order, with how often each one ran, rejected a deal and took
+     * GET http://localhost:8080/api/deals/validation-rules
+     */
+    @GetMapping("/validation-rules")
+    public ResponseEntity<?> validationRules() {
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("collectAllFailures", dealRuleEngine.isCollectAllFailures());
+        response.put("rules", dealRuleEngine.getRuleStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 🎯 Status of a background import job
+     * GET http://localhost:8080/api/deals/imports/{jobId}
+     */
+    @GetMapping("/imports/{jobId}")
+    public ResponseEntity<?> importStatus(@PathVariable String jobId) {
+        return importJobService.findJob(jobId)
+                .<ResponseEntity<?>>map(job -> ResponseEntity.ok(jobStatus(job)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ Unknown import job: " + jobId));
+    }
+
+    /**
+     * 🎯 Report of an import job: rows per outcome and error reason, the first failed rows with their
+     * record numbers, time per stage and throughput - final once the job finished
+     * GET http://localhost:8080/api/deals/imports/{jobId}/report
+     */
+    @GetMapping("/imports/{jobId}/report")
+    public ResponseEntity<?> importReport(@PathVariable String jobId) {
+        ImportJob job = importJobService.findJob(jobId).orElse(null);
+        if (job == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ Unknown import job: " + jobId);
+        }
+        ImportReport report = job.getProgress().getReport();
+        if (report == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ Import job " + jobId + " has not started yet");
+        }
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * 🎯 One deal by its deal ID - served from the in-process cache when possible
+     * GET http://localhost:8080/api/deals/D001
+     */
+    @GetMapping("/{dealUniqueId}")
+    public ResponseEntity<?> findDeal(@PathVariable String dealUniqueId) {
+        return dealLookupService.findByDealUniqueId(dealUniqueId)
+                .<ResponseEntity<?>>map(deal -> ResponseEntity.ok(dealDetails(deal)))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body("❌ Unknown deal: " + dealUniqueId));
+    }
+
     /**
      * 🎯 Import from fixed file path (for testing)
      * POST http://localhost:8080/api/deals/import-fixed
@@ -149,12 +387,14 @@ public class DealController {
     public ResponseEntity<?> importFixedFile() {
         try {
             String csvPath = "C:\\Users\\amine\\Desktop\\clustered-data-warehouse\\clustered-data-warehouse\\src\\main\\resources\\sample-deals.csv";  // Your file path
-            dealImportService.importDealsFromCsv(csvPath);
+            ImportProgress progress = new ImportProgress();
+            dealImportService.importDealsFromCsv(csvPath, progress);
 
-            Map<String, String> response = new HashMap<>();
+            Map<String, Object> response = new LinkedHashMap<>();
             response.put("status", "success");
             response.put("message", "Fixed file import completed");
             response.put("filePath", csvPath);
+            response.put("report", progress.getReport());
 
             return ResponseEntity.ok(response);
         } catch (Exception e) {
@@ -182,8 +422,59 @@ public class DealController {
         debugInfo.put("isEmpty", file.isEmpty());
         debugInfo.put("tempDir", System.getProperty("java.io.tmpdir"));
 
-        System.out.println("🔍 Debug Info: " + debugInfo);
+        logger.debug("Debug upload info: {}", debugInfo);
 
         return ResponseEntity.ok(debugInfo);
     }
-}
\ No newline at end of file
+
+    // 💼 The business fields only - cached deals that were batch-inserted don't know their internal id
+    private Map<String, Object> dealDetails(Deal deal) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("dealUniqueId", deal.getDealUniqueId());
+        details.put("fromCurrency", deal.getFromCurrency());
+        details.put("toCurrency", deal.getToCurrency());
+        details.put("dealTimestamp", deal.getDealTimestamp());
+        details.put("amount", deal.getAmount());
+        return details;
+    }
+
+    // 🔎 Blank parameters mean "no filter"
+    private DealFilter filter(String fromCurrency, String toCurrency, LocalDateTime start, LocalDateTime end) {
+        return new DealFilter(fromCurrency == null || fromCurrency.isBlank() ? null : fromCurrency.trim().toUpperCase(),
+                toCurrency == null || toCurrency.isBlank() ? null : toCurrency.trim().toUpperCase(),
+                start, end);
+    }
+
+    // 📈 Everything the client needs to show a progress bar
+    private Map<String, Object> jobStatus(ImportJob job) {
+        ImportProgress progress = job.getProgress();
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", job.getId());
+        status.put("filename", job.getFileName());
+        status.put("state", job.getState());
+        status.put("rowsProcessed", progress.getRowsProcessed());
+        status.put("successCount", progress.getSuccesses());
+        status.put("errorCount", progress.getErrors());
+        status.put("unchangedCount", progress.getUnchanged());
+        status.put("errorsByReason", progress.getErrorsByReason());
+        status.put("rowsPerSecond", progress.getRowsPerSecond());
+        status.put("bytesRead", progress.getBytesRead());
+        status.put("totalBytes", progress.getTotalBytes());
+        status.put("etaSeconds", job.isFinished() ? 0 : progress.getEstimatedSecondsRemaining());
+        status.put("submittedAt", job.getSubmittedAt());
+        status.put("startedAt", job.getStartedAt());
+        status.put("finishedAt", job.getFinishedAt());
+        if (job.getFileHash() != null) {
+            status.put("fileHash", job.getFileHash());
+        }
+        if (job.getState() == ImportJob.State.DUPLICATE) {
+            // 🔁 Nothing was read - the job importing the same content, if it was still running
+            status.put("duplicateOf", job.getDuplicateOf());
+            status.put("duplicateOfUrl", job.getDuplicateOf() == null ? null : "/api/deals/imports/" + job.getDuplicateOf());
+        }
+        if (job.getErrorMessage() != null) {
+            status.put("error", job.getErrorMessage());
+        }
+        return status;
+    }
+}
@@ -0,0 +1,99 @@
+package com.amine.fx.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * 📦 A validated deal on its way through the import, in one small object: currency codes as ints
+ * ({@link CurrencyCodes}), the timestamp as UTC epoch seconds + nanos and the amount as a long with
+ * 4 implied decimals - the scale of fx_deals.amount. A {@link Deal} needs five objects for the same data
+ * (entity, LocalDateTime, LocalDate, LocalTime, BigDecimal), and thousands of chunks are in flight
+ * during concurrent imports.
+ *
+ * Amounts that don't fit a long at scale 4 (more than 4 decimals, or beyond ~922 trillion) keep
+ * their BigDecimal in amountExact, so the database still sees - and rounds or refuses - the exact value.
+ * Deal entities are only built where one is needed: {@link #toDeal()}.
+ *
+ * @param amountScaled amount * 10^4, ignored when amountExact is set
+ * @param amountExact  null unless the amount doesn't fit amountScaled
+ */
+public record CompactDeal(String dealUniqueId, int fromCurrencyCode, int toCurrencyCode,
+                          long epochSecond, int nano, long amountScaled, BigDecimal amountExact) {
+
+    public static final int AMOUNT_SCALE = 4;
+
+    private static final int SECONDS_PER_DAY = 86_400;
+
+    // From an amount already decoded to amount * 10^4 (the fast parser)
+    public static CompactDeal of(String dealUniqueId, String fromCurrency, String toCurrency,
+                                 long epochSecond, int nano, long amountScaled) {
+        return new CompactDeal(dealUniqueId, currencyCode(fromCurrency), currencyCode(toCurrency),
+                epochSecond, nano, amountScaled, null);
+    }
+
+    public static CompactDeal of(String dealUniqueId, String fromCurrency, String toCurrency,
+                                 long epochSecond, int nano, BigDecimal amount) {
+        Long scaled = scaled(amount);
+        return new CompactDeal(dealUniqueId, currencyCode(fromCurrency), currencyCode(toCurrency),
+                epochSecond, nano, scaled != null ? scaled : 0, scaled != null ? null : amount);
+    }
+
+    public static CompactDeal from(Deal deal) {
+        LocalDateTime timestamp = deal.getDealTimestamp();
+        return of(deal.getDealUniqueId(), deal.getFromCurrency(), deal.getToCurrency(),
+                timestamp.toEpochSecond(ZoneOffset.UTC), timestamp.getNano(), deal.getAmount());
+    }
+
+    // 🚀 Same clean-up as the Deal constructor (" usd" -> "USD"); no copy when the code is clean already
+    private static int currencyCode(String currency) {
+        return CurrencyCodes.code(currency.trim().toUpperCase());
+    }
+
+    // 💰 amount * 10^4 when that is exact and fits a long, otherwise null
+    private static Long scaled(BigDecimal amount) {
+        if (amount.scale() > AMOUNT_SCALE) {
+            return null;
+        }
+        BigDecimal scaled = amount.movePointRight(AMOUNT_SCALE);
+        return scaled.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) <= 0
+                && scaled.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) >= 0 ? scaled.longValue() : null;
+    }
+
+    public String fromCurrency() {
+        return CurrencyCodes.text(fromCurrencyCode);
+    }
+
+    public String toCurrency() {
+        return CurrencyCodes.text(toCurrencyCode);
+    }
+
+    // ⏰ Built on every call - for the error records and entities, not for the insert
+    public LocalDateTime dealTimestamp() {
+        return LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+    }
+
+    // 📅 UTC day of the deal, counted from 1970-01-01
+    public long epochDay() {
+        return Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+    }
+
+    public BigDecimal amount() {
+        return amountExact != null ? amountExact : BigDecimal.valueOf(amountScaled, AMOUNT_SCALE);
+    }
+
+    public Deal toDeal() {
+        return new Deal(dealUniqueId, fromCurrency(), toCurrency(), dealTimestamp(), amount());
+    }
+
+    @Override
+    public String toString() {
+        return "CompactDeal{" +
+                "dealUniqueId='" + dealUniqueId + '\'' +
+                ", fromCurrency='" + fromCurrency() + '\'' +
+                ", toCurrency='" + toCurrency() + '\'' +
+                ", dealTimestamp=" + dealTimestamp() +
+                ", amount=" + amount() +
+                '}';
+    }
+}
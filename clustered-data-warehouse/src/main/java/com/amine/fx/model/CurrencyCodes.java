@@ -0,0 +1,102 @@
+package com.amine.fx.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 💱 Shared String instances for 3-letter upper-case currency codes, so millions of "USD"s
+ * read from a file are one String instead of millions - and a small int code for each of them,
+ * so an in-flight {@link CompactDeal} carries two ints instead of two references.
+ *
+ * Codes 0..17575 are AAA..ZZZ. Anything else (digits, symbols, other lengths) gets the next free
+ * code above that on first use; those are rare, and the table keeps them for the life of the JVM.
+ */
+public final class CurrencyCodes {
+
+    private static final int LETTERS = 26;
+    // Codes below this are AAA..ZZZ
+    public static final int LETTER_CODES = LETTERS * LETTERS * LETTERS;
+
+    // One slot per AAA..ZZZ, filled on first use (racing threads just create the same code twice)
+    private static final String[] CODES = new String[LETTER_CODES];
+
+    // 🗂️ Everything that is not AAA..ZZZ
+    private static final Map<String, Integer> OTHER_CODES = new ConcurrentHashMap<>();
+    private static final List<String> OTHER_TEXTS = new ArrayList<>();
+
+    private CurrencyCodes() {
+    }
+
+    // The text of bytes [offset, offset + length) - shared when it is a code like "EUR"
+    public static String of(byte[] bytes, int offset, int length) {
+        if (length == 3) {
+            int slot = slot(bytes[offset], bytes[offset + 1], bytes[offset + 2]);
+            if (slot >= 0) {
+                return letters(slot, bytes, offset);
+            }
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    // 🔢 Code of a currency text (already trimmed and upper-cased)
+    public static int code(String currency) {
+        if (currency.length() == 3) {
+            int slot = slot(currency.charAt(0), currency.charAt(1), currency.charAt(2));
+            if (slot >= 0) {
+                return slot;
+            }
+        }
+        Integer code = OTHER_CODES.get(currency);
+        return code != null ? code : register(currency);
+    }
+
+    // 🔤 Text of a code returned by code(String)
+    public static String text(int code) {
+        if (code < LETTER_CODES) {
+            String text = CODES[code];
+            return text != null ? text : letters(code, null, 0);
+        }
+        synchronized (OTHER_TEXTS) {
+            return OTHER_TEXTS.get(code - LETTER_CODES);
+        }
+    }
+
+    private static int register(String currency) {
+        synchronized (OTHER_TEXTS) {
+            return OTHER_CODES.computeIfAbsent(currency, text -> {
+                OTHER_TEXTS.add(text);
+                return LETTER_CODES + OTHER_TEXTS.size() - 1;
+            });
+        }
+    }
+
+    // Slot of AAA..ZZZ, or -1
+    private static int slot(int first, int second, int third) {
+        int a = first - 'A';
+        int b = second - 'A';
+        int c = third - 'A';
+        if (isLetter(a) && isLetter(b) && isLetter(c)) {
+            return (a * LETTERS + b) * LETTERS + c;
+        }
+        return -1;
+    }
+
+    private static String letters(int slot, byte[] bytes, int offset) {
+        String code = CODES[slot];
+        if (code == null) {
+            code = bytes != null
+                    ? new String(bytes, offset, 3, StandardCharsets.US_ASCII)
+                    : new String(new char[]{
+                    (char) ('A' + slot / (LETTERS * LETTERS)), (char) ('A' + slot / LETTERS % LETTERS), (char) ('A' + slot % LETTERS)});
+            CODES[slot] = code;
+        }
+        return code;
+    }
+
+    private static boolean isLetter(int index) {
+        return index >= 0 && index < LETTERS;
+    }
+}
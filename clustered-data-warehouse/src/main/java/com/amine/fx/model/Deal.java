@@ -6,9 +6,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity // 🎯 This makes it a database table
-@Table(name = "fx_deals", uniqueConstraints = {
-        @UniqueConstraint(columnNames = "deal_unique_id")  // 🚀 Prevents duplicate imports
-})
+@Table(name = "fx_deals") // 📅 Partitioned by deal_timestamp - schema in db/migration
 public class Deal {
 
     @Id
@@ -18,7 +16,7 @@ public class Deal {
 
     // 💼 Business ID - from CSV file (D001, D002...)
     @NotBlank(message = "Deal Unique ID is required")
-    @Column(name = "deal_unique_id", nullable = false, unique = true) // ❌ Can't be empty
+    @Column(name = "deal_unique_id", nullable = false) // ❌ Can't be empty - unique through fx_deal_keys (DealKey)
     private String dealUniqueId;
 
     // 💵 From Currency (USD, EUR, etc.)
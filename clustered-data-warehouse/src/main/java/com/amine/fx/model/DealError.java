@@ -16,10 +16,11 @@ public class DealError {
     @Column(name = "deal_unique_id")
     private String dealUniqueId; // 🔸 Optional - might not have it
 
-    @Column(name = "from_currency", length = 3)
+    // Raw values from the file - an invalid code can be longer than 3 characters
+    @Column(name = "from_currency")
     private String fromCurrency;
 
-    @Column(name = "to_currency", length = 3)
+    @Column(name = "to_currency")
     private String toCurrency;
 
     @Column(name = "deal_timestamp")
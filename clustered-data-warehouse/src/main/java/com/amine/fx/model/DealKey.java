@@ -0,0 +1,46 @@
+package com.amine.fx.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 🔑 One row per imported deal ID. fx_deals is partitioned by deal_timestamp, and MySQL only allows
+ * unique keys that contain the partitioning column - so "a deal ID exists only once" is enforced here.
+ */
+@Entity
+@Table(name = "fx_deal_keys")
+public class DealKey {
+
+    @Id
+    @Column(name = "deal_unique_id", nullable = false)
+    private String dealUniqueId;
+
+    // ⏰ Same as fx_deals.deal_timestamp - tells which partition holds the deal
+    @Column(name = "deal_timestamp", nullable = false)
+    private LocalDateTime dealTimestamp;
+
+    // Default constructor
+    public DealKey() {
+        // JPA requires default constructor
+    }
+
+    public DealKey(String dealUniqueId, LocalDateTime dealTimestamp) {
+        this.dealUniqueId = dealUniqueId;
+        this.dealTimestamp = dealTimestamp;
+    }
+
+    // Getters and setters
+    public String getDealUniqueId() { return dealUniqueId; }
+    public void setDealUniqueId(String dealUniqueId) { this.dealUniqueId = dealUniqueId; }
+
+    public LocalDateTime getDealTimestamp() { return dealTimestamp; }
+    public void setDealTimestamp(LocalDateTime dealTimestamp) { this.dealTimestamp = dealTimestamp; }
+
+    @Override
+    public String toString() {
+        return "DealKey{" +
+                "dealUniqueId='" + dealUniqueId + '\'' +
+                ", dealTimestamp=" + dealTimestamp +
+                '}';
+    }
+}
@@ -0,0 +1,21 @@
+package com.amine.fx.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 📈 One row of fx_deal_rollups: the deals of one currency pair on one (UTC) day.
+ * Written with plain JDBC upserts, so it is a record and not a JPA entity.
+ */
+public record DealRollup(String fromCurrency, String toCurrency, LocalDate dealDate,
+                         long dealCount, BigDecimal totalAmount, BigDecimal minAmount, BigDecimal maxAmount) {
+
+    // ➕ Both rollups must be for the same pair and day
+    public DealRollup plus(DealRollup other) {
+        return new DealRollup(fromCurrency, toCurrency, dealDate,
+                dealCount + other.dealCount,
+                totalAmount.add(other.totalAmount),
+                minAmount.min(other.minAmount),
+                maxAmount.max(other.maxAmount));
+    }
+}
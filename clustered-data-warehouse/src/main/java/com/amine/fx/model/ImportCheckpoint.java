@@ -0,0 +1,95 @@
+package com.amine.fx.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "fx_import_checkpoints") // 🔖 How far each file import got
+public class ImportCheckpoint {
+
+    public static final String STATUS_IN_PROGRESS = "IN_PROGRESS";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // 🔑 SHA-256 of the file content - the same file keeps the same checkpoint whatever its name.
+    // While a stream or a file whose hash isn't known yet is read, a temporary "stream:"/"file:" key instead
+    @Column(name = "file_hash", nullable = false, unique = true, length = 64)
+    private String fileHash;
+
+    @Column(name = "file_name", length = 500)
+    private String fileName;
+
+    // 📍 Record number of the last CSV row whose chunk was committed (0 = nothing yet)
+    @Column(name = "last_committed_record", nullable = false)
+    private long lastCommittedRecord;
+
+    // 🔁 1 for a fresh import, one more each time it is resumed (stored with the deal keys it claims)
+    @Column(name = "run_number", nullable = false)
+    private int runNumber = 1;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    // 🔁 Continues an earlier run that didn't complete - set by ImportCheckpointService.begin, not stored
+    @Transient
+    private boolean resumed;
+
+    // Default constructor
+    public ImportCheckpoint() {
+        // JPA requires default constructor
+    }
+
+    public ImportCheckpoint(String fileHash, String fileName) {
+        this.fileHash = fileHash;
+        this.fileName = fileName;
+        this.status = STATUS_IN_PROGRESS;
+        this.startedAt = LocalDateTime.now();
+        this.updatedAt = this.startedAt;
+    }
+
+    // Getters and setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getFileHash() { return fileHash; }
+    public void setFileHash(String fileHash) { this.fileHash = fileHash; }
+
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+
+    public long getLastCommittedRecord() { return lastCommittedRecord; }
+    public void setLastCommittedRecord(long lastCommittedRecord) { this.lastCommittedRecord = lastCommittedRecord; }
+
+    public int getRunNumber() { return runNumber; }
+    public void setRunNumber(int runNumber) { this.runNumber = runNumber; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public boolean isResumed() { return resumed; }
+    public void setResumed(boolean resumed) { this.resumed = resumed; }
+
+    @Override
+    public String toString() {
+        return "ImportCheckpoint{" +
+                "fileName='" + fileName + '\'' +
+                ", lastCommittedRecord=" + lastCommittedRecord +
+                ", status='" + status + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,71 @@
+package com.amine.fx.repository;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 💍 Consistent hashing of deal IDs onto nodes.
+ *
+ * Every node is placed on a 64-bit ring at virtualNodes points (hashes of "name#i"); a key belongs to the
+ * node of the first point at or after the key's own hash. Adding a node only takes over the keys right
+ * before its points - about 1/N of them - and every other key stays where it was. The many points per node
+ * even out the share each node gets.
+ *
+ * Positions only depend on the node names and the key text, so every instance of the application (and
+ * every restart) routes an ID to the same node. Immutable and thread-safe.
+ */
+public final class ConsistentHashRing {
+
+    private final long[] points;  // Sorted positions on the ring
+    private final int[] owners;   // Node index of each position
+
+    public ConsistentHashRing(List<String> nodeNames, int virtualNodes) {
+        if (nodeNames.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        int perNode = Math.max(1, virtualNodes);
+        long[][] entries = new long[nodeNames.size() * perNode][];
+        for (int node = 0; node < nodeNames.size(); node++) {
+            for (int i = 0; i < perNode; i++) {
+                entries[node * perNode + i] = new long[]{hash(nodeNames.get(node) + "#" + i), node};
+            }
+        }
+        // Ties (practically impossible with 64 bits) are broken by node index, so the ring stays deterministic
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+
+        this.points = new long[entries.length];
+        this.owners = new int[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = (int) entries[i][1];
+        }
+    }
+
+    // 🎯 Index (in the list given to the constructor) of the node that owns this key
+    public int nodeFor(String key) {
+        int position = Arrays.binarySearch(points, hash(key));
+        if (position < 0) {
+            position = -position - 1; // First point after the hash
+        }
+        return owners[position == points.length ? 0 : position]; // Past the last point: wrap around
+    }
+
+    /**
+     * FNV-1a over the UTF-16 chars, then the MurmurHash3 finalizer: fast, no allocation, and sequential IDs
+     * like D1, D2, D3 still land far apart on the ring. Defined here rather than String.hashCode(), whose
+     * 32 bits cluster for short similar strings.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,95 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.DealError;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+// Plain JDBC writes for fx_deal_errors - rejected rows are inserted in bulk instead of one save() per row.
+@Repository
+public class DealErrorJdbcRepository {
+
+    private static final String INSERT_ERROR_SQL =
+            "INSERT INTO fx_deal_errors (deal_unique_id, from_currency, to_currency, deal_timestamp, amount, " +
+                    "error_reason, occurred_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // 🕒 Same zone Hibernate uses (hibernate.jdbc.time_zone=UTC) so JPA reads see the same wall-clock time
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DealErrorJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 📦 One JDBC batch - a multi-row INSERT with rewriteBatchedStatements=true. Must run inside a transaction:
+     * if the batch fails, the rows it did insert are rolled back to a savepoint before the exception is
+     * rethrown, so the caller can retry them one by one.
+     */
+    public void batchInsert(List<DealError> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        // ↩️ On the JDBC connection itself - the JPA transaction manager can't create savepoints
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                executeBatch(errors);
+                connection.releaseSavepoint(savepoint);
+                return null;
+            } catch (RuntimeException e) {
+                connection.rollback(savepoint);
+                throw e;
+            }
+        });
+    }
+
+    private void executeBatch(List<DealError> errors) {
+        jdbcTemplate.batchUpdate(INSERT_ERROR_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                bindError(ps, errors.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return errors.size();
+            }
+        });
+    }
+
+    // 💾 Single-row insert - used to retry the rows of a failed batch one by one
+    public void insert(DealError error) {
+        jdbcTemplate.update(INSERT_ERROR_SQL, ps -> bindError(ps, error));
+    }
+
+    private void bindError(PreparedStatement ps, DealError error) throws SQLException {
+        ps.setString(1, error.getDealUniqueId());
+        ps.setString(2, error.getFromCurrency());
+        ps.setString(3, error.getToCurrency());
+        setTimestamp(ps, 4, error.getDealTimestamp());
+        ps.setString(5, error.getAmount());
+        ps.setString(6, error.getErrorReason());
+        setTimestamp(ps, 7, error.getOccurredAt());
+    }
+
+    private void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, Timestamp.valueOf(value), Calendar.getInstance(UTC));
+        }
+    }
+}
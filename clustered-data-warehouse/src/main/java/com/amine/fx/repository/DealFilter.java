@@ -0,0 +1,15 @@
+package com.amine.fx.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * 🔎 Which deals to read - every part is optional (null = no condition).
+ *
+ * @param fromCurrency  e.g. "EUR"
+ * @param toCurrency    e.g. "USD"
+ * @param startInclusive deal_timestamp >= start
+ * @param endExclusive   deal_timestamp < end
+ */
+public record DealFilter(String fromCurrency, String toCurrency,
+                         LocalDateTime startInclusive, LocalDateTime endExclusive) {
+}
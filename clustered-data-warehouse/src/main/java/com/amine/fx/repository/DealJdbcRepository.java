@@ -0,0 +1,287 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.repository.DealShards.Shard;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+// Plain JDBC writes for fx_deals - used by the import because IDENTITY ids stop Hibernate from batching.
+// Takes the import's CompactDeal as it is, so no Deal entity is built for a row that is just inserted.
+// Every deal also claims its ID in fx_deal_keys, which keeps IDs unique across the fx_deals partitions, together
+// with the import chunk that claimed it (checkpoint id + first record of the chunk).
+// Both tables live on the deal's shard (see DealShards); a chunk is written to all its shards at once.
+@Repository
+public class DealJdbcRepository {
+
+    private static final String INSERT_DEAL_SQL =
+            "INSERT INTO fx_deals (deal_unique_id, from_currency, to_currency, deal_timestamp, amount) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+    private static final String INSERT_KEY_SQL =
+            "INSERT INTO fx_deal_keys (deal_unique_id, deal_timestamp, checkpoint_id, import_run, chunk_first_record) " +
+                    "VALUES (?, ?, ?, ?, ?)";
+    private static final String DELETE_KEY_SQL =
+            "DELETE FROM fx_deal_keys WHERE deal_unique_id = ?";
+
+    // 🕒 Same zone Hibernate uses (hibernate.jdbc.time_zone=UTC) so JPA reads see the same wall-clock time
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    private final DealShards dealShards;
+
+    public DealJdbcRepository(DealShards dealShards) {
+        this.dealShards = dealShards;
+    }
+
+    /**
+     * Insert all deals as JDBC batches: first their IDs into fx_deal_keys, then the deals themselves.
+     * With rewriteBatchedStatements=true the MySQL driver sends these as multi-row INSERT statements
+     * instead of one round trip per deal.
+     *
+     * Sharded, every shard gets its part of the deals as its own batches, on its own writer threads and in
+     * its own transaction, all shards at the same time.
+     *
+     * @param checkpointId     checkpoint of the import writing the deals
+     * @param chunkFirstRecord first record of the chunk they come from
+     * @return the deals that were NOT inserted (empty when the whole batch went through) - none of
+     *         their IDs is left behind in fx_deal_keys
+     */
+    public List<CompactDeal> batchInsert(List<CompactDeal> deals, long checkpointId, int importRun,
+                                         long chunkFirstRecord) {
+        if (deals.isEmpty()) {
+            return List.of();
+        }
+
+        Set<CompactDeal> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Shard, List<CompactDeal>> byShard = dealShards.byShard(deals, CompactDeal::dealUniqueId);
+        dealShards.write(byShard,
+                        (shard, shardDeals) -> batchInsert(shard, shardDeals, checkpointId, importRun, chunkFirstRecord))
+                .forEach(failed::addAll);
+
+        return failed.isEmpty() ? List.of() : deals.stream().filter(failed::contains).toList();
+    }
+
+    // @return the deals of this shard that were NOT inserted
+    private List<CompactDeal> batchInsert(Shard shard, List<CompactDeal> deals, long checkpointId, int importRun,
+                                          long chunkFirstRecord) {
+        JdbcTemplate jdbcTemplate = shard.jdbcTemplate();
+
+        // 🔑 Claim the IDs first - a duplicate fails here, before anything lands in fx_deals
+        Set<CompactDeal> failed = Collections.newSetFromMap(new IdentityHashMap<>());
+        failed.addAll(executeBatch(jdbcTemplate, INSERT_KEY_SQL, deals,
+                (ps, deal) -> bindKey(ps, deal, checkpointId, importRun, chunkFirstRecord)));
+
+        List<CompactDeal> claimed = failed.isEmpty() ? deals : deals.stream().filter(deal -> !failed.contains(deal)).toList();
+        List<CompactDeal> failedDeals = executeBatch(jdbcTemplate, INSERT_DEAL_SQL, claimed, this::bindDeal);
+        if (!failedDeals.isEmpty()) {
+            // Give those IDs back so the one-by-one retry starts clean
+            jdbcTemplate.batchUpdate(DELETE_KEY_SQL, failedDeals, failedDeals.size(),
+                    (ps, deal) -> ps.setString(1, deal.dealUniqueId()));
+            failed.addAll(failedDeals);
+        }
+
+        return failed.isEmpty() ? List.of() : deals.stream().filter(failed::contains).toList();
+    }
+
+    // 💾 Single-row insert on the deal's shard - used to retry the rows of a failed batch one by one
+    public void insert(CompactDeal deal, long checkpointId, int importRun, long chunkFirstRecord) {
+        JdbcTemplate jdbcTemplate = dealShards.forDealId(deal.dealUniqueId()).jdbcTemplate();
+        jdbcTemplate.update(INSERT_KEY_SQL, ps -> bindKey(ps, deal, checkpointId, importRun, chunkFirstRecord));
+        try {
+            jdbcTemplate.update(INSERT_DEAL_SQL, ps -> bindDeal(ps, deal));
+        } catch (DataAccessException e) {
+            jdbcTemplate.update(DELETE_KEY_SQL, deal.dealUniqueId()); // 🔙 Don't keep the ID of a deal that isn't there
+            throw e;
+        }
+    }
+
+    /**
+     * 📦 Which of these IDs already exist? One primary-key IN (...) lookup on fx_deal_keys per shard
+     * that owns any of them, the shards in parallel.
+     */
+    public Set<String> findExistingDealUniqueIds(Collection<String> dealUniqueIds) {
+        Map<Shard, List<String>> byShard = dealShards.byShard(dealUniqueIds, id -> id);
+        Set<String> existing = new HashSet<>();
+        dealShards.scatter(shard -> findExisting(shard, byShard.getOrDefault(shard, List.of())))
+                .forEach(existing::addAll);
+        return existing;
+    }
+
+    private List<String> findExisting(Shard shard, List<String> dealUniqueIds) {
+        if (dealUniqueIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(dealUniqueIds.size(), "?"));
+        return shard.jdbcTemplate().queryForList(
+                "SELECT deal_unique_id FROM fx_deal_keys WHERE deal_unique_id IN (" + placeholders + ")",
+                String.class, dealUniqueIds.toArray());
+    }
+
+    /**
+     * 🧩 Which of these (existing) IDs did chunks of this import claim that start after the record? Sharded,
+     * a chunk commits on its shards before its checkpoint, so those deals are stored although the import's
+     * checkpoint never got past them. Only earlier runs count: a key of the current run is a real duplicate
+     * of the file. Same primary-key lookup as {@link #findExistingDealUniqueIds}.
+     */
+    public Set<String> findClaimedByImport(Collection<String> dealUniqueIds, long checkpointId, int currentRun,
+                                           long afterRecord) {
+        Map<Shard, List<String>> byShard = dealShards.byShard(dealUniqueIds, id -> id);
+        Set<String> claimed = new HashSet<>();
+        dealShards.scatter(shard -> findClaimed(shard, byShard.getOrDefault(shard, List.of()),
+                        checkpointId, currentRun, afterRecord))
+                .forEach(claimed::addAll);
+        return claimed;
+    }
+
+    private List<String> findClaimed(Shard shard, List<String> dealUniqueIds, long checkpointId, int currentRun,
+                                     long afterRecord) {
+        if (dealUniqueIds.isEmpty()) {
+            return List.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(dealUniqueIds.size(), "?"));
+        List<Object> arguments = new ArrayList<>(dealUniqueIds);
+        arguments.add(checkpointId);
+        arguments.add(currentRun);
+        arguments.add(afterRecord);
+        return shard.jdbcTemplate().queryForList(
+                "SELECT deal_unique_id FROM fx_deal_keys WHERE deal_unique_id IN (" + placeholders + ") " +
+                        "AND checkpoint_id = ? AND import_run < ? AND chunk_first_record > ?",
+                String.class, arguments.toArray());
+    }
+
+    /**
+     * 📦 The stored deals of these IDs, for idempotent imports that compare values. Same primary-key
+     * IN (...) lookup on fx_deal_keys as {@link #findExistingDealUniqueIds}, joined to fx_deals on the
+     * timestamp the key records, so only that deal's partition is read.
+     *
+     * @return existing ID -> stored deal (null in the unlikely case the key has no deal row)
+     */
+    public Map<String, CompactDeal> findStoredDeals(Collection<String> dealUniqueIds) {
+        Map<Shard, List<String>> byShard = dealShards.byShard(dealUniqueIds, id -> id);
+        Map<String, CompactDeal> stored = new HashMap<>();
+        dealShards.scatter(shard -> findStored(shard, byShard.getOrDefault(shard, List.of())))
+                .forEach(stored::putAll);
+        return stored;
+    }
+
+    private Map<String, CompactDeal> findStored(Shard shard, List<String> dealUniqueIds) {
+        if (dealUniqueIds.isEmpty()) {
+            return Map.of();
+        }
+        String placeholders = String.join(", ", Collections.nCopies(dealUniqueIds.size(), "?"));
+        Map<String, CompactDeal> stored = new HashMap<>();
+        shard.jdbcTemplate().query(
+                "SELECT k.deal_unique_id, d.from_currency, d.to_currency, d.deal_timestamp, d.amount " +
+                        "FROM fx_deal_keys k LEFT JOIN fx_deals d " +
+                        "ON d.deal_unique_id = k.deal_unique_id AND d.deal_timestamp = k.deal_timestamp " +
+                        "WHERE k.deal_unique_id IN (" + placeholders + ")",
+                (RowCallbackHandler) rs -> {
+                    String id = rs.getString(1);
+                    Timestamp timestamp = rs.getTimestamp(4, Calendar.getInstance(UTC));
+                    stored.put(id, timestamp == null ? null : CompactDeal.of(id, rs.getString(2), rs.getString(3),
+                            timestamp.toLocalDateTime().toEpochSecond(ZoneOffset.UTC), timestamp.getNanos(),
+                            rs.getBigDecimal(5)));
+                }, dealUniqueIds.toArray());
+        return stored;
+    }
+
+    // 📥 Stream every stored deal ID, shard after shard
+    public void forEachDealUniqueId(Consumer<String> action) {
+        for (Shard shard : dealShards.all()) {
+            shard.jdbcTemplate().query("SELECT deal_unique_id FROM fx_deal_keys",
+                    (RowCallbackHandler) rs -> action.accept(rs.getString(1)));
+        }
+    }
+
+    // @return the deals whose row failed
+    private List<CompactDeal> executeBatch(JdbcTemplate jdbcTemplate, String sql, List<CompactDeal> deals,
+                                           ParameterizedPreparedStatementSetter<CompactDeal> binder) {
+        if (deals.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return jdbcTemplate.execute(sql, (PreparedStatementCallback<List<CompactDeal>>) ps -> {
+                for (CompactDeal deal : deals) {
+                    binder.setValues(ps, deal);
+                    ps.addBatch();
+                }
+                try {
+                    ps.executeBatch();
+                    return List.of();
+                } catch (BatchUpdateException e) {
+                    // Read the counts here - exception translation may keep only the row's own error (H2 does)
+                    return failedDeals(deals, e);
+                }
+            });
+        } catch (DataAccessException e) {
+            return failedDeals(deals, findBatchUpdateException(e));
+        }
+    }
+
+    private void bindKey(PreparedStatement ps, CompactDeal deal, long checkpointId, int importRun,
+                         long chunkFirstRecord) throws SQLException {
+        ps.setString(1, deal.dealUniqueId());
+        ps.setTimestamp(2, Timestamp.valueOf(deal.dealTimestamp()), Calendar.getInstance(UTC));
+        ps.setLong(3, checkpointId);
+        ps.setInt(4, importRun);
+        ps.setLong(5, chunkFirstRecord);
+    }
+
+    // 🔓 The compact values are only unpacked here, right before the driver copies them
+    private void bindDeal(PreparedStatement ps, CompactDeal deal) throws SQLException {
+        ps.setString(1, deal.dealUniqueId());
+        ps.setString(2, deal.fromCurrency());
+        ps.setString(3, deal.toCurrency());
+        ps.setTimestamp(4, Timestamp.valueOf(deal.dealTimestamp()), Calendar.getInstance(UTC));
+        ps.setBigDecimal(5, deal.amount());
+    }
+
+    // 🔍 Use the driver's update counts to find out which rows of the batch actually failed
+    private List<CompactDeal> failedDeals(List<CompactDeal> deals, BatchUpdateException batchError) {
+        if (batchError == null) {
+            return deals; // No detail available - treat the whole batch as failed
+        }
+
+        int[] updateCounts = batchError.getUpdateCounts();
+        List<CompactDeal> failed = new ArrayList<>();
+        for (int i = 0; i < deals.size(); i++) {
+            // Rows after the last reported count were never executed
+            if (i >= updateCounts.length || updateCounts[i] == Statement.EXECUTE_FAILED) {
+                failed.add(deals.get(i));
+            }
+        }
+        return failed;
+    }
+
+    private BatchUpdateException findBatchUpdateException(Throwable e) {
+        Throwable current = e;
+        while (current != null) {
+            if (current instanceof BatchUpdateException batchUpdateException) {
+                return batchUpdateException;
+            }
+            current = current.getCause();
+        }
+        return null;
+    }
+}
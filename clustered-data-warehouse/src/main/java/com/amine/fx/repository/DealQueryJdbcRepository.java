@@ -0,0 +1,274 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealShards.Shard;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Plain JDBC reads of fx_deals for the query API, ordered by (deal_timestamp, id).
+ *
+ * Pages use keyset pagination: the next page starts after the last (deal_timestamp, id) seen, so page
+ * 1000 costs the same as page 1 (OFFSET would skip over all earlier rows every time). Exports are
+ * streamed row by row without Hibernate, so neither the result list nor a persistence context grows.
+ *
+ * Sharded (see {@link DealShards}), every query goes to all shards - a currency or a time range says
+ * nothing about where a deal ID hashes to. Each shard returns its rows already in order; pages are merged
+ * and cut to the limit, exports are merged row by row while they stream. Only a lookup by deal ID goes
+ * to the one shard that can have it.
+ */
+@Repository
+public class DealQueryJdbcRepository {
+
+    private static final String SELECT_DEALS =
+            "SELECT id, deal_unique_id, from_currency, to_currency, deal_timestamp, amount FROM fx_deals";
+    private static final String ORDER = " ORDER BY deal_timestamp, id";
+
+    // 🔀 Same order as ORDER, on the global ids
+    private static final Comparator<Deal> DEAL_ORDER =
+            Comparator.comparing(Deal::getDealTimestamp).thenComparing(Deal::getId);
+
+    // 🕒 Same zone Hibernate uses (hibernate.jdbc.time_zone=UTC) so JPA reads see the same wall-clock time
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    // 📥 Rows fetched per round trip while streaming (not MySQL - see streamingTemplate)
+    private static final int EXPORT_FETCH_SIZE = 1000;
+
+    private final DealShards dealShards;
+    private final Map<Shard, JdbcTemplate> streamingTemplates = new ConcurrentHashMap<>(); // 🌊 Created on first export
+
+    public DealQueryJdbcRepository(DealShards dealShards) {
+        this.dealShards = dealShards;
+    }
+
+    /**
+     * 📄 One page of deals, in (deal_timestamp, id) order.
+     *
+     * @param afterTimestamp / afterId last deal of the previous page (both null for the first page)
+     */
+    public List<Deal> findPage(DealFilter filter, LocalDateTime afterTimestamp, Long afterId, int limit) {
+        List<List<Deal>> shardPages = dealShards.scatter(shard -> findPage(shard, filter, afterTimestamp, afterId, limit));
+        if (shardPages.size() == 1) {
+            return shardPages.get(0);
+        }
+        // Every shard sent its first `limit` rows, so the first `limit` of all of them are among these
+        List<Deal> merged = new ArrayList<>();
+        shardPages.forEach(merged::addAll);
+        merged.sort(DEAL_ORDER);
+        return merged.size() <= limit ? merged : new ArrayList<>(merged.subList(0, limit));
+    }
+
+    private List<Deal> findPage(Shard shard, DealFilter filter, LocalDateTime afterTimestamp, Long afterId, int limit) {
+        Query query = where(filter);
+        if (afterTimestamp != null && afterId != null) {
+            // Same as (deal_timestamp, id) > (?, ?), written out so every database uses the index for it
+            query.sql.append(query.args.isEmpty() ? " WHERE " : " AND ")
+                    .append("(deal_timestamp > ? OR (deal_timestamp = ? AND id > ?))");
+            query.args.add(afterTimestamp);
+            query.args.add(afterTimestamp);
+            query.args.add(dealShards.localIdAtOrBefore(shard, afterId));
+        }
+        query.sql.append(ORDER).append(" LIMIT ?");
+        query.args.add(limit);
+        return shard.jdbcTemplate().query(query.sql.toString(), query.binder(), rowMapper(shard));
+    }
+
+    /**
+     * 🌊 Every matching deal, read from the database while the caller consumes the stream.
+     * Holds a connection (one per shard) until the stream is closed - always use try-with-resources.
+     */
+    public Stream<Deal> stream(DealFilter filter) {
+        Query query = where(filter);
+        query.sql.append(ORDER);
+        List<Stream<Deal>> shardStreams = new ArrayList<>();
+        try {
+            for (Shard shard : dealShards.all()) {
+                shardStreams.add(streamingTemplate(shard).queryForStream(query.sql.toString(), query.binder(),
+                        rowMapper(shard)));
+            }
+        } catch (RuntimeException e) {
+            closeAll(shardStreams);
+            throw e;
+        }
+        return shardStreams.size() == 1 ? shardStreams.get(0) : merge(shardStreams);
+    }
+
+    // 🆔 Highest id stored on the shard (its own id, not the global one), 0 when it has no deals
+    public long findMaxId(Shard shard) {
+        Long maxId = shard.jdbcTemplate().queryForObject("SELECT MAX(id) FROM fx_deals", Long.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * 🌊 Deals of one shard with afterId < id <= upToId (the shard's own ids), streamed in storage order -
+     * on MySQL that is partition after partition, so deals of the same period come out together.
+     * The returned deals carry their global id. Close the stream.
+     */
+    public Stream<Deal> streamIdRange(Shard shard, long afterId, long upToId) {
+        return streamingTemplate(shard).queryForStream(SELECT_DEALS + " WHERE id > ? AND id <= ?",
+                rowMapper(shard), afterId, upToId);
+    }
+
+    // 🔍 The deal with this ID, from the only shard that can have it
+    public Optional<Deal> findByDealUniqueId(String dealUniqueId) {
+        Shard shard = dealShards.forDealId(dealUniqueId);
+        return shard.jdbcTemplate().query(SELECT_DEALS + " WHERE deal_unique_id = ?", rowMapper(shard), dealUniqueId)
+                .stream().findFirst();
+    }
+
+    private RowMapper<Deal> rowMapper(Shard shard) {
+        return (rs, rowNum) -> {
+            Deal deal = new Deal(rs.getString("deal_unique_id"), rs.getString("from_currency"),
+                    rs.getString("to_currency"), rs.getTimestamp("deal_timestamp", Calendar.getInstance(UTC)).toLocalDateTime(),
+                    rs.getBigDecimal("amount"));
+            deal.setId(dealShards.globalId(shard, rs.getLong("id")));
+            return deal;
+        };
+    }
+
+    // 🔀 K-way merge: always hand out the smallest of the shards' next rows, so only one row per shard is held
+    private static Stream<Deal> merge(List<Stream<Deal>> shardStreams) {
+        Iterator<Deal> merged = new Iterator<>() {
+            private PriorityQueue<Head> heads;
+
+            @Override
+            public boolean hasNext() {
+                if (heads == null) {
+                    heads = new PriorityQueue<>(shardStreams.size(), Comparator.comparing(Head::deal, DEAL_ORDER));
+                    shardStreams.forEach(shardStream -> Head.advance(shardStream.iterator(), heads));
+                }
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Deal next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Head head = heads.poll();
+                Head.advance(head.rows(), heads);
+                return head.deal();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> closeAll(shardStreams));
+    }
+
+    private static void closeAll(List<Stream<Deal>> shardStreams) {
+        RuntimeException failure = null;
+        for (Stream<Deal> shardStream : shardStreams) {
+            try {
+                shardStream.close();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // Next row of one shard stream
+    private record Head(Deal deal, Iterator<Deal> rows) {
+
+        private static void advance(Iterator<Deal> rows, PriorityQueue<Head> heads) {
+            if (rows.hasNext()) {
+                heads.add(new Head(rows.next(), rows));
+            }
+        }
+    }
+
+    // 🔎 WHERE clause for the filter; plain conditions on deal_timestamp keep partition pruning working
+    private Query where(DealFilter filter) {
+        Query query = new Query();
+        List<String> conditions = new ArrayList<>();
+        if (filter.fromCurrency() != null) {
+            conditions.add("from_currency = ?");
+            query.args.add(filter.fromCurrency());
+        }
+        if (filter.toCurrency() != null) {
+            conditions.add("to_currency = ?");
+            query.args.add(filter.toCurrency());
+        }
+        if (filter.startInclusive() != null) {
+            conditions.add("deal_timestamp >= ?");
+            query.args.add(filter.startInclusive());
+        }
+        if (filter.endExclusive() != null) {
+            conditions.add("deal_timestamp < ?");
+            query.args.add(filter.endExclusive());
+        }
+        query.sql.append(SELECT_DEALS);
+        if (!conditions.isEmpty()) {
+            query.sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        return query;
+    }
+
+    /**
+     * MySQL Connector/J reads the whole result into memory unless the fetch size is Integer.MIN_VALUE,
+     * which makes it stream row by row. Other drivers (H2 in the tests) take a normal fetch size.
+     */
+    private JdbcTemplate streamingTemplate(Shard shard) {
+        return streamingTemplates.computeIfAbsent(shard, key -> {
+            JdbcTemplate jdbcTemplate = shard.jdbcTemplate();
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            boolean mySql = product != null && product.toLowerCase().contains("mysql");
+
+            JdbcTemplate template = new JdbcTemplate(jdbcTemplate.getDataSource());
+            template.setFetchSize(mySql ? Integer.MIN_VALUE : EXPORT_FETCH_SIZE);
+            return template;
+        });
+    }
+
+    // 🧱 SQL being built and its parameters, in order
+    private static class Query {
+
+        private final StringBuilder sql = new StringBuilder();
+        private final List<Object> args = new ArrayList<>();
+
+        private PreparedStatementSetter binder() {
+            return ps -> {
+                for (int i = 0; i < args.size(); i++) {
+                    bind(ps, i + 1, args.get(i));
+                }
+            };
+        }
+
+        private static void bind(PreparedStatement ps, int index, Object value) throws SQLException {
+            if (value instanceof LocalDateTime time) {
+                ps.setTimestamp(index, Timestamp.valueOf(time), Calendar.getInstance(UTC));
+            } else {
+                ps.setObject(index, value);
+            }
+        }
+    }
+}
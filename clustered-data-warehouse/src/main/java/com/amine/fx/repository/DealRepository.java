@@ -6,6 +6,7 @@ import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
+// 🧩 Primary datasource only - with fx.sharding.enabled the deals live on the shards, read them via DealQueryJdbcRepository
 @Repository // 🎯 Tells Spring: "This manages database operations for Deal"
 public interface DealRepository extends JpaRepository<Deal, Long> {  // 🚀 Changed to Long (matching Deal.id)
 
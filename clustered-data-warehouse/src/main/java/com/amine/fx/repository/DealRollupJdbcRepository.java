@@ -0,0 +1,102 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.DealRollup;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Plain JDBC access to fx_deal_rollups - upserted by every import chunk, read by GET /api/deals/rollups.
+@Repository
+public class DealRollupJdbcRepository {
+
+    // ➕ New pair/day row, or add to the existing one (H2 understands this in MySQL mode too)
+    private static final String UPSERT_ROLLUP_SQL =
+            "INSERT INTO fx_deal_rollups (from_currency, to_currency, deal_date, deal_count, total_amount, " +
+                    "min_amount, max_amount) VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE " +
+                    "deal_count = deal_count + VALUES(deal_count), " +
+                    "total_amount = total_amount + VALUES(total_amount), " +
+                    "min_amount = LEAST(min_amount, VALUES(min_amount)), " +
+                    "max_amount = GREATEST(max_amount, VALUES(max_amount))";
+
+    private static final String SELECT_ROLLUPS_SQL =
+            "SELECT from_currency, to_currency, deal_date, deal_count, total_amount, min_amount, max_amount " +
+                    "FROM fx_deal_rollups";
+
+    private static final RowMapper<DealRollup> ROLLUP_ROW_MAPPER = (rs, rowNum) -> new DealRollup(
+            rs.getString("from_currency"), rs.getString("to_currency"), rs.getDate("deal_date").toLocalDate(),
+            rs.getLong("deal_count"), rs.getBigDecimal("total_amount"),
+            rs.getBigDecimal("min_amount"), rs.getBigDecimal("max_amount"));
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DealRollupJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * 📦 Add the rollups of one chunk, as one JDBC batch in the caller's transaction.
+     * Rows are locked in the order given - pass them sorted by key so concurrent imports can't deadlock.
+     */
+    public void add(List<DealRollup> rollups) {
+        if (rollups.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_ROLLUP_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                DealRollup rollup = rollups.get(i);
+                ps.setString(1, rollup.fromCurrency());
+                ps.setString(2, rollup.toCurrency());
+                ps.setDate(3, Date.valueOf(rollup.dealDate()));
+                ps.setLong(4, rollup.dealCount());
+                ps.setBigDecimal(5, rollup.totalAmount());
+                ps.setBigDecimal(6, rollup.minAmount());
+                ps.setBigDecimal(7, rollup.maxAmount());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rollups.size();
+            }
+        });
+    }
+
+    /**
+     * 🔎 Rollup rows by pair and day range - every part optional (null = no condition).
+     *
+     * @param startDate inclusive
+     * @param endDate   exclusive
+     */
+    public List<DealRollup> find(String fromCurrency, String toCurrency, LocalDate startDate, LocalDate endDate) {
+        List<String> conditions = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (fromCurrency != null) {
+            conditions.add("from_currency = ?");
+            args.add(fromCurrency);
+        }
+        if (toCurrency != null) {
+            conditions.add("to_currency = ?");
+            args.add(toCurrency);
+        }
+        if (startDate != null) {
+            conditions.add("deal_date >= ?");
+            args.add(Date.valueOf(startDate));
+        }
+        if (endDate != null) {
+            conditions.add("deal_date < ?");
+            args.add(Date.valueOf(endDate));
+        }
+        String sql = SELECT_ROLLUPS_SQL
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + " ORDER BY from_currency, to_currency, deal_date";
+        return jdbcTemplate.query(sql, ROLLUP_ROW_MAPPER, args.toArray());
+    }
+}
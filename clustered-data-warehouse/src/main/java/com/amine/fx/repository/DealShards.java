@@ -0,0 +1,252 @@
+package com.amine.fx.repository;
+
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 🧩 The MySQL nodes fx_deals and fx_deal_keys are spread over.
+ *
+ * With fx.sharding.enabled=true every URL in fx.sharding.urls is one shard: its own connection pool, its own
+ * Flyway-migrated schema and its own writer threads. A deal lives on the shard its deal ID hashes to on a
+ * {@link ConsistentHashRing}, so the fx_deal_keys primary key of that shard is what keeps the ID unique -
+ * an ID can never be on two shards. Shards are named after their position in the list: append new nodes
+ * at the end, never reorder or remove, or deals can no longer be found.
+ *
+ * Deal ids are generated per shard, so the ids handed out by the API carry the shard in their low 8 bits
+ * (id * {@value #MAX_SHARDS} + shard index). Everything else - errors, rollups, checkpoints, staging - stays
+ * on the primary datasource.
+ *
+ * There is no distributed transaction: a chunk commits on each shard before its rollups and checkpoint commit
+ * on the primary (in the parallel pipeline even before earlier chunks of the file). Every key records the
+ * checkpoint and first record of the chunk that claimed it, so when the primary transaction fails or the
+ * application dies in between, the resumed import recognises the deals of its chunks past the checkpoint as
+ * its own: they are counted and rolled up, not inserted twice and not reported as duplicates.
+ *
+ * Disabled (the default), there is one shard - the primary datasource - whose writes run on the caller's
+ * thread and join its transaction, exactly like before sharding existed.
+ */
+@Component
+public class DealShards {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealShards.class);
+
+    // 🔢 Shard index bits in the global deal id
+    public static final int MAX_SHARDS = 256;
+
+    private final List<Shard> shards;
+    private final ConsistentHashRing ring;
+    private final ExecutorService readers; // 🔭 Scatter queries - shared by all shards, null when not sharded
+
+    public DealShards(JdbcTemplate jdbcTemplate,
+                      @Value("${fx.sharding.enabled:false}") boolean enabled,
+                      @Value("${fx.sharding.urls:}") List<String> urls,
+                      @Value("${fx.sharding.username:${spring.datasource.username:}}") String username,
+                      @Value("${fx.sharding.password:${spring.datasource.password:}}") String password,
+                      @Value("${fx.sharding.virtual-nodes:128}") int virtualNodes,
+                      @Value("${fx.sharding.pool-size:8}") int poolSize,
+                      @Value("${fx.sharding.writer-threads:4}") int writerThreads) {
+        List<String> shardUrls = urls.stream().map(String::trim).filter(url -> !url.isEmpty()).toList();
+        if (!enabled) {
+            this.shards = List.of(new Shard(0, "primary", jdbcTemplate, null, null, null));
+            this.ring = null;
+            this.readers = null;
+            return;
+        }
+        if (shardUrls.isEmpty() || shardUrls.size() > MAX_SHARDS) {
+            throw new IllegalStateException("fx.sharding.urls must list 1 to " + MAX_SHARDS + " datasources, got "
+                    + shardUrls.size());
+        }
+
+        List<Shard> connected = new ArrayList<>();
+        for (int i = 0; i < shardUrls.size(); i++) {
+            connected.add(connect(i, shardUrls.get(i), username, password, poolSize, writerThreads));
+        }
+        this.shards = List.copyOf(connected);
+        this.ring = new ConsistentHashRing(shards.stream().map(Shard::name).toList(), virtualNodes);
+        this.readers = Executors.newThreadPerTaskExecutor(threadFactory("deal-shard-reader"));
+        logger.info("Deals are sharded over {} nodes ({} virtual nodes each)", shards.size(), virtualNodes);
+    }
+
+    // 🔌 Pool, schema, transactions and writer threads of one node
+    private static Shard connect(int index, String url, String username, String password, int poolSize,
+                                 int writerThreads) {
+        String name = "shard-" + index;
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(name);
+        dataSource.setJdbcUrl(url);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setMaximumPoolSize(Math.max(writerThreads + 1, poolSize));
+
+        // Same migrations as the primary - every node has the whole schema, only fx_deals and fx_deal_keys fill up
+        String vendor = url.startsWith("jdbc:h2:") ? "h2" : "mysql";
+        Flyway.configure().dataSource(dataSource).locations("classpath:db/migration/" + vendor).load().migrate();
+
+        logger.info("Connected deal shard {} at {}", name, url);
+        return new Shard(index, name, new JdbcTemplate(dataSource),
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                Executors.newFixedThreadPool(Math.max(1, writerThreads), threadFactory(name + "-writer")),
+                dataSource);
+    }
+
+    public boolean isSharded() {
+        return ring != null;
+    }
+
+    public List<Shard> all() {
+        return shards;
+    }
+
+    // 🎯 The shard that stores (or would store) this deal ID
+    public Shard forDealId(String dealUniqueId) {
+        return ring == null ? shards.get(0) : shards.get(ring.nodeFor(dealUniqueId));
+    }
+
+    // 🗂️ Split items by the shard of their deal ID, keeping their order within each shard
+    public <T> Map<Shard, List<T>> byShard(Iterable<T> items, Function<T, String> dealUniqueId) {
+        Map<Shard, List<T>> grouped = new LinkedHashMap<>();
+        for (T item : items) {
+            grouped.computeIfAbsent(forDealId(dealUniqueId.apply(item)), shard -> new ArrayList<>()).add(item);
+        }
+        return grouped;
+    }
+
+    /**
+     * ✍️ Run one write per shard, each on its shard's writer threads and in its own transaction on that
+     * shard, all at the same time. Returns once every shard is done; the first failure is rethrown (the
+     * other shards keep what they committed).
+     */
+    public <T, R> List<R> write(Map<Shard, T> work, BiFunction<Shard, T, R> writer) {
+        if (!isSharded()) {
+            // Caller's thread, caller's transaction
+            return work.entrySet().stream().map(entry -> writer.apply(entry.getKey(), entry.getValue())).toList();
+        }
+        List<Future<R>> futures = new ArrayList<>(work.size());
+        work.forEach((shard, value) -> futures.add(shard.writers.submit(() ->
+                shard.transactionTemplate.execute(status -> writer.apply(shard, value)))));
+        return join(futures);
+    }
+
+    // 🔭 Run the same read on every shard in parallel, results in shard order
+    public <R> List<R> scatter(Function<Shard, R> reader) {
+        if (!isSharded()) {
+            return List.of(reader.apply(shards.get(0)));
+        }
+        List<Future<R>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            futures.add(readers.submit(() -> reader.apply(shard)));
+        }
+        return join(futures);
+    }
+
+    // 🆔 Id the API hands out for a row of this shard - unchanged when not sharded
+    public long globalId(Shard shard, long localId) {
+        return isSharded() ? localId * MAX_SHARDS + shard.index : localId;
+    }
+
+    // 🆔 Largest id of this shard at or before the global id (keyset pagination: "after this id")
+    public long localIdAtOrBefore(Shard shard, long globalId) {
+        return isSharded() ? Math.floorDiv(globalId - shard.index, MAX_SHARDS) : globalId;
+    }
+
+    private static <R> List<R> join(List<Future<R>> futures) {
+        List<R> results = new ArrayList<>(futures.size());
+        RuntimeException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get()); // Wait for all of them even after a failure - none keeps running behind our back
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime
+                            : new IllegalStateException("Shard operation failed", e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(pending -> pending.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for the shards", e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!isSharded()) {
+            return;
+        }
+        readers.shutdownNow();
+        for (Shard shard : shards) {
+            shard.writers.shutdownNow();
+            shard.dataSource.close();
+        }
+    }
+
+    // 🧵 Shard reads and writes only wait for their node - virtual threads, the node's pool is the limit
+    private static ThreadFactory threadFactory(String prefix) {
+        return Thread.ofVirtual().name(prefix + "-", 1).factory();
+    }
+
+    /**
+     * One node. Its JdbcTemplate runs in the shard transaction on the writer threads and in auto-commit
+     * everywhere else.
+     */
+    public static final class Shard {
+
+        private final int index;
+        private final String name;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final ExecutorService writers;
+        private final HikariDataSource dataSource;
+
+        private Shard(int index, String name, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                      ExecutorService writers, HikariDataSource dataSource) {
+            this.index = index;
+            this.name = name;
+            this.jdbcTemplate = jdbcTemplate;
+            this.transactionTemplate = transactionTemplate;
+            this.writers = writers;
+            this.dataSource = dataSource;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public JdbcTemplate jdbcTemplate() {
+            return jdbcTemplate;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
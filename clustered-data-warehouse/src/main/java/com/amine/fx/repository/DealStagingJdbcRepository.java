@@ -0,0 +1,290 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.DealError;
+import com.mysql.cj.jdbc.JdbcStatement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.stereotype.Repository;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Bulk-load path of the import: a whole chunk goes into fx_deal_staging in one statement (LOAD DATA LOCAL INFILE
+// on MySQL, fed from memory), then a handful of set-based statements move it into fx_deals, fx_deal_keys and
+// fx_deal_errors. Everything runs on the caller's transaction, so a chunk is all moved or not at all.
+@Repository
+public class DealStagingJdbcRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealStagingJdbcRepository.class);
+
+    private static final String LOAD_DATA_SQL =
+            "LOAD DATA LOCAL INFILE 'fx_deal_staging.tsv' INTO TABLE fx_deal_staging CHARACTER SET utf8mb4 " +
+                    "FIELDS TERMINATED BY '\\t' ESCAPED BY '\\\\' LINES TERMINATED BY '\\n' " +
+                    "(load_id, seq, deal_unique_id, from_currency, to_currency, deal_timestamp, amount, " +
+                    "error_reason, occurred_at)";
+    private static final String INSERT_STAGED_SQL =
+            "INSERT INTO fx_deal_staging (load_id, seq, deal_unique_id, from_currency, to_currency, deal_timestamp, " +
+                    "amount, error_reason, occurred_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    // 🔁 Deals whose ID is already taken become error rows too
+    private static final String MARK_DUPLICATES_SQL =
+            "UPDATE fx_deal_staging s SET error_reason = ?, occurred_at = ? " +
+                    "WHERE s.load_id = ? AND s.error_reason IS NULL " +
+                    "AND EXISTS (SELECT 1 FROM fx_deal_keys k WHERE k.deal_unique_id = s.deal_unique_id)";
+    private static final String SELECT_DUPLICATES_SQL =
+            "SELECT seq FROM fx_deal_staging WHERE load_id = ? AND error_reason = ? AND seq < ?";
+
+    private static final String MOVE_ERRORS_SQL =
+            "INSERT INTO fx_deal_errors (deal_unique_id, from_currency, to_currency, deal_timestamp, amount, " +
+                    "error_reason, occurred_at) " +
+                    "SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount, error_reason, occurred_at " +
+                    "FROM fx_deal_staging WHERE load_id = ? AND error_reason IS NOT NULL ORDER BY seq";
+    private static final String MOVE_KEYS_SQL =
+            "INSERT INTO fx_deal_keys (deal_unique_id, deal_timestamp) " +
+                    "SELECT deal_unique_id, deal_timestamp FROM fx_deal_staging " +
+                    "WHERE load_id = ? AND error_reason IS NULL ORDER BY seq";
+    private static final String MOVE_DEALS_SQL =
+            "INSERT INTO fx_deals (deal_unique_id, from_currency, to_currency, deal_timestamp, amount) " +
+                    "SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount FROM fx_deal_staging " +
+                    "WHERE load_id = ? AND error_reason IS NULL ORDER BY seq";
+    private static final String CLEAR_SQL = "DELETE FROM fx_deal_staging WHERE load_id = ?";
+
+    // 🕒 Same zone Hibernate uses (hibernate.jdbc.time_zone=UTC) so JPA reads see the same wall-clock time
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final DateTimeFormatter DATETIME_LITERAL = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+
+    // ER_NOT_ALLOWED_COMMAND (local_infile=OFF on older servers), CR_LOAD_DATA_LOCAL_INFILE_REJECTED,
+    // ER_CLIENT_LOCAL_FILES_DISABLED
+    private static final Set<Integer> LOCAL_INFILE_REFUSED = Set.of(1148, 2068, 3948);
+
+    // Longest text the staging (and target) columns take - longer rows go the regular way
+    public static final int MAX_TEXT_LENGTH = 255;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Boolean localInfile; // 🐬 null = not decided yet; false on H2 or when the server refuses it
+
+    public DealStagingJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Load one chunk and move it to its final tables. Must run inside a transaction; if any statement fails
+     * everything this call did is rolled back to a savepoint and the exception is rethrown, so the caller's
+     * transaction can carry on without the chunk.
+     *
+     * @param deals           valid deals, in file order
+     * @param errors          rejected rows, in file order
+     * @param duplicateReason error reason of deals whose ID already exists
+     * @return positions in deals of the ones that were not inserted because their ID already exists
+     */
+    public BitSet load(List<CompactDeal> deals, List<DealError> errors, String duplicateReason) {
+        // ↩️ On the JDBC connection itself - the JPA transaction manager can't create savepoints
+        return jdbcTemplate.execute((ConnectionCallback<BitSet>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try {
+                BitSet duplicates = move(deals, errors, duplicateReason);
+                connection.releaseSavepoint(savepoint);
+                return duplicates;
+            } catch (RuntimeException e) {
+                connection.rollback(savepoint);
+                throw e;
+            }
+        });
+    }
+
+    private BitSet move(List<CompactDeal> deals, List<DealError> errors, String duplicateReason) {
+        long loadId = ThreadLocalRandom.current().nextLong(); // Several writers share the table
+        stage(loadId, deals, errors);
+
+        BitSet duplicates = new BitSet(deals.size());
+        if (!deals.isEmpty() && jdbcTemplate.update(MARK_DUPLICATES_SQL, ps -> {
+            ps.setString(1, duplicateReason);
+            setTimestamp(ps, 2, LocalDateTime.now());
+            ps.setLong(3, loadId);
+        }) > 0) {
+            jdbcTemplate.query(SELECT_DUPLICATES_SQL, rs -> {
+                duplicates.set(rs.getInt(1));
+            }, loadId, duplicateReason, deals.size());
+        }
+
+        jdbcTemplate.update(MOVE_ERRORS_SQL, loadId);
+        if (duplicates.cardinality() < deals.size()) {
+            // 🔑 Keys first, like the batch path: a concurrent insert of the same ID fails here
+            jdbcTemplate.update(MOVE_KEYS_SQL, loadId);
+            jdbcTemplate.update(MOVE_DEALS_SQL, loadId);
+        }
+        jdbcTemplate.update(CLEAR_SQL, loadId);
+        return duplicates;
+    }
+
+    private void stage(long loadId, List<CompactDeal> deals, List<DealError> errors) {
+        int rows = deals.size() + errors.size();
+        if (rows == 0) {
+            return;
+        }
+        if (useLocalInfile()) {
+            byte[] tsv = toTsv(loadId, deals, errors);
+            try {
+                int loaded = jdbcTemplate.execute((StatementCallback<Integer>) statement -> {
+                    statement.unwrap(JdbcStatement.class).setLocalInfileInputStream(new ByteArrayInputStream(tsv));
+                    return statement.executeUpdate(LOAD_DATA_SQL);
+                });
+                if (loaded != rows) {
+                    // LOAD DATA LOCAL skips bad lines with a warning - never move a partial chunk
+                    throw new JdbcUpdateAffectedIncorrectNumberOfRowsException(LOAD_DATA_SQL, rows, loaded);
+                }
+                return;
+            } catch (DataAccessException e) {
+                if (!isLocalInfileRefused(e)) {
+                    throw e; // Lock wait, deadlock, lost connection... - only this chunk gives up on staging
+                }
+                localInfile = false;
+                logger.warn("LOAD DATA LOCAL INFILE is not available ({}) - staging with JDBC batches instead. " +
+                        "Add allowLoadLocalInfile=true to the JDBC URL and enable local_infile on the server.", e.getMessage());
+            }
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_STAGED_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setLong(1, loadId);
+                ps.setInt(2, i);
+                if (i < deals.size()) {
+                    CompactDeal deal = deals.get(i);
+                    ps.setString(3, deal.dealUniqueId());
+                    ps.setString(4, deal.fromCurrency());
+                    ps.setString(5, deal.toCurrency());
+                    setTimestamp(ps, 6, deal.dealTimestamp());
+                    ps.setString(7, deal.amount().toPlainString());
+                    ps.setNull(8, Types.VARCHAR);
+                    ps.setNull(9, Types.TIMESTAMP);
+                } else {
+                    DealError error = errors.get(i - deals.size());
+                    ps.setString(3, error.getDealUniqueId());
+                    ps.setString(4, error.getFromCurrency());
+                    ps.setString(5, error.getToCurrency());
+                    setTimestamp(ps, 6, error.getDealTimestamp());
+                    ps.setString(7, error.getAmount());
+                    ps.setString(8, error.getErrorReason());
+                    setTimestamp(ps, 9, error.getOccurredAt());
+                }
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows;
+            }
+        });
+    }
+
+    // 📄 The chunk as LOAD DATA input: tab-separated, backslash-escaped, \N for NULL
+    private byte[] toTsv(long loadId, List<CompactDeal> deals, List<DealError> errors) {
+        StringBuilder tsv = new StringBuilder((deals.size() + errors.size()) * 96);
+        int seq = 0;
+        for (CompactDeal deal : deals) {
+            appendLine(tsv, loadId, seq++, deal.dealUniqueId(), deal.fromCurrency(), deal.toCurrency(),
+                    deal.dealTimestamp(), deal.amount().toPlainString(), null, null);
+        }
+        for (DealError error : errors) {
+            appendLine(tsv, loadId, seq++, error.getDealUniqueId(), error.getFromCurrency(), error.getToCurrency(),
+                    error.getDealTimestamp(), error.getAmount(), error.getErrorReason(), error.getOccurredAt());
+        }
+        return tsv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendLine(StringBuilder tsv, long loadId, int seq, String dealUniqueId, String fromCurrency,
+                                   String toCurrency, LocalDateTime dealTimestamp, String amount, String errorReason,
+                                   LocalDateTime occurredAt) {
+        tsv.append(loadId).append('\t').append(seq);
+        appendField(tsv, dealUniqueId);
+        appendField(tsv, fromCurrency);
+        appendField(tsv, toCurrency);
+        appendField(tsv, dealTimestamp == null ? null : datetimeLiteral(dealTimestamp));
+        appendField(tsv, amount);
+        appendField(tsv, errorReason);
+        appendField(tsv, occurredAt == null ? null : datetimeLiteral(occurredAt));
+        tsv.append('\n');
+    }
+
+    private static void appendField(StringBuilder tsv, String value) {
+        tsv.append('\t');
+        if (value == null) {
+            tsv.append("\\N");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> tsv.append("\\\\");
+                case '\t' -> tsv.append("\\t");
+                case '\n' -> tsv.append("\\n");
+                case '\r' -> tsv.append("\\r");
+                case '\0' -> tsv.append("\\0");
+                default -> tsv.append(c);
+            }
+        }
+    }
+
+    /**
+     * The wall-clock value the driver stores for setTimestamp(Timestamp.valueOf(time), UTC calendar),
+     * so rows loaded as text end up exactly like rows inserted by the batch path.
+     */
+    private static String datetimeLiteral(LocalDateTime time) {
+        return LocalDateTime.ofInstant(Timestamp.valueOf(time).toInstant(), ZoneOffset.UTC).format(DATETIME_LITERAL);
+    }
+
+    private static void setTimestamp(PreparedStatement ps, int index, LocalDateTime value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+        } else {
+            ps.setTimestamp(index, Timestamp.valueOf(value), Calendar.getInstance(UTC));
+        }
+    }
+
+    // 🚫 Driver or server won't do LOAD DATA LOCAL at all - the only failure that turns it off for good
+    private static boolean isLocalInfileRefused(DataAccessException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException && LOCAL_INFILE_REFUSED.contains(sqlException.getErrorCode())) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && message.toLowerCase().contains("loading local data is disabled")) {
+                return true; // Connector/J with allowLoadLocalInfile=false
+            }
+        }
+        return false;
+    }
+
+    private boolean useLocalInfile() {
+        Boolean enabled = localInfile;
+        if (enabled == null) {
+            String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                    connection.getMetaData().getDatabaseProductName());
+            enabled = product != null && product.toLowerCase().contains("mysql");
+            localInfile = enabled;
+        }
+        return enabled;
+    }
+}
@@ -0,0 +1,32 @@
+package com.amine.fx.repository;
+
+import com.amine.fx.model.ImportCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// Repository for the resumable import checkpoints in fx_import_checkpoints.
+@Repository
+public interface ImportCheckpointRepository extends JpaRepository<ImportCheckpoint, Long> {
+
+    // 🔍 Find the checkpoint of a file by its content hash
+    Optional<ImportCheckpoint> findByFileHash(String fileHash);
+
+    // 📍 Move the checkpoint forward - runs inside the chunk transaction so both commit together
+    @Modifying
+    @Query("update ImportCheckpoint c set c.lastCommittedRecord = :record, c.updatedAt = :now where c.id = :id")
+    int advance(@Param("id") Long id, @Param("record") long record, @Param("now") LocalDateTime now);
+
+    // 🧹 Drop unfinished checkpoints whose key starts with the prefix and that didn't move since before
+    @Transactional
+    @Modifying
+    @Query("delete from ImportCheckpoint c where c.fileHash like concat(:prefix, '%') " +
+            "and c.status = com.amine.fx.model.ImportCheckpoint.STATUS_IN_PROGRESS and c.updatedAt < :before")
+    int deleteUnfinished(@Param("prefix") String prefix, @Param("before") LocalDateTime before);
+}
@@ -0,0 +1,43 @@
+package com.amine.fx.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reports every byte read from the wrapped stream to an {@link ImportProgress}.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+    private final ImportProgress progress;
+
+    public CountingInputStream(InputStream in, ImportProgress progress) {
+        super(in);
+        this.progress = progress;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            progress.addBytesRead(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        int read = super.read(buffer, offset, length);
+        if (read > 0) {
+            progress.addBytesRead(read);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        progress.addBytesRead(skipped);
+        return skipped;
+    }
+}
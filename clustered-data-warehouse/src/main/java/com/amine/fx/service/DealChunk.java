@@ -0,0 +1,19 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+
+import java.util.List;
+
+/**
+ * One chunk of the file after validation and duplicate check - ready to be written.
+ *
+ * @param sequence          position of the chunk in the file (0, 1, 2...), used to commit in order
+ * @param firstRecordNumber record number of the first CSV row in the chunk (stored with the deal IDs it claims)
+ * @param lastRecordNumber  record number of the last CSV row in the chunk (checkpoint value)
+ * @param recovered         deals an earlier run of this import stored on their shard without committing its
+ *                          checkpoint - only their rollups and counts are still missing
+ * @param unchanged         rows an idempotent import skipped - stored already with the same values
+ */
+public record DealChunk(long sequence, long firstRecordNumber, long lastRecordNumber, List<CompactDeal> deals,
+                        List<CompactDeal> recovered, List<RejectedRow> rejected, int unchanged) {
+}
@@ -0,0 +1,218 @@
+package com.amine.fx.service;
+
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * 📖 Reads the deals CSV as chunks of {@link DealRow}s, skipping rows that an earlier
+ * run already committed. Only one chunk is held in memory at a time.
+ * Gzip-compressed input is recognised by its magic bytes and unpacked on the fly.
+ */
+public class DealChunkReader implements Iterator<List<DealRow>>, Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Iterator<DealRow> rows;
+    private final Closeable source;
+    private final int chunkSize;
+    private final long resumeAfter;
+
+    private List<DealRow> nextChunk;
+
+    private ContentHash contentHash; // 🔑 null unless opened with a digest
+
+    private DealChunkReader(Iterator<DealRow> rows, Closeable source, int chunkSize, long resumeAfter) {
+        this.rows = rows;
+        this.source = source;
+        this.chunkSize = chunkSize;
+        this.resumeAfter = resumeAfter;
+    }
+
+    /**
+     * @param resumeAfter record number of the last row already committed (0 = read everything)
+     * @param fastParser  true = byte-level {@link DealRowDecoder}, false = commons-csv for every row
+     * @param progress    receives the number of bytes read, for progress and ETA
+     */
+    public static DealChunkReader open(Path path, int chunkSize, long resumeAfter, boolean fastParser,
+                                       ImportProgress progress) throws IOException {
+        return open(path, chunkSize, resumeAfter, fastParser, progress, null);
+    }
+
+    /**
+     * @param digest receives every byte of the file as it is read, see {@link #contentHash()} (null = don't hash)
+     */
+    public static DealChunkReader open(Path path, int chunkSize, long resumeAfter, boolean fastParser,
+                                       ImportProgress progress, MessageDigest digest) throws IOException {
+        InputStream in = new CountingInputStream(Files.newInputStream(path), progress);
+        if (digest == null) {
+            return open(in, chunkSize, resumeAfter, fastParser);
+        }
+        // 🔑 The raw bytes, compressed or not - the rows skipped on resume are read (and hashed) too
+        DigestInputStream hashed = new DigestInputStream(keepOpen(in), digest);
+        DealChunkReader parsed = open(hashed, chunkSize, resumeAfter, fastParser);
+        DealChunkReader reader = new DealChunkReader(parsed.rows, () -> {
+            try (in) {
+                parsed.close();
+            }
+        }, chunkSize, resumeAfter);
+        reader.contentHash = () -> {
+            hashed.transferTo(OutputStream.nullOutputStream()); // Anything after the last record belongs to the hash
+            return FileFingerprints.hex(digest);
+        };
+        return reader;
+    }
+
+    /**
+     * 🗺️ Memory-map a big local file and parse it in parallel segments on the given pool.
+     * Only for uncompressed files - see {@link #isGzip(Path)}.
+     *
+     * @param segmentSize bytes parsed per task
+     * @param parallelism fork-join threads parsing segments (memory = about twice this many segments)
+     */
+    public static DealChunkReader openMapped(Path path, int chunkSize, long resumeAfter, int segmentSize,
+                                             int parallelism, ImportProgress progress) throws IOException {
+        return openMapped(path, chunkSize, resumeAfter, segmentSize, parallelism, progress, null);
+    }
+
+    /**
+     * @param digest receives every byte of the file, in file order, see {@link #contentHash()} (null = don't hash)
+     */
+    public static DealChunkReader openMapped(Path path, int chunkSize, long resumeAfter, int segmentSize,
+                                             int parallelism, ImportProgress progress, MessageDigest digest)
+            throws IOException {
+        MappedDealFileReader reader = new MappedDealFileReader(path, segmentSize, parallelism, progress, digest);
+        DealChunkReader chunks = new DealChunkReader(reader, reader, chunkSize, resumeAfter);
+        if (digest != null) {
+            chunks.contentHash = reader::finishHash;
+        }
+        return chunks;
+    }
+
+    /**
+     * Parse straight from a stream (e.g. an HTTP request body) - nothing is buffered beyond the current chunk.
+     * Closing the reader closes the stream.
+     */
+    public static DealChunkReader open(InputStream in, int chunkSize, long resumeAfter, boolean fastParser)
+            throws IOException {
+        InputStream content = decompressIfGzip(in);
+        if (fastParser) {
+            DealRowDecoder decoder = new DealRowDecoder(content);
+            return new DealChunkReader(decoder, decoder, chunkSize, resumeAfter);
+        }
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(content, StandardCharsets.UTF_8), BUFFER_SIZE);
+        CSVParser parser = DealRowDecoder.CSV_FORMAT.parse(reader);
+        Iterator<CSVRecord> records = parser.iterator();
+        Iterator<DealRow> rows = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return records.hasNext();
+            }
+
+            @Override
+            public DealRow next() {
+                return DealRow.from(records.next());
+            }
+        };
+        return new DealChunkReader(rows, parser, chunkSize, resumeAfter);
+    }
+
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    // 🔒 commons-csv closes its input at the end - a hash still has to read what is left after the last record
+    static InputStream keepOpen(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    // 🗜️ Peek at the first two bytes: 0x1f 0x8b means gzip, whatever the file name or headers say
+    static InputStream decompressIfGzip(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        if (first == 0x1f && second == 0x8b) {
+            return new GZIPInputStream(buffered, BUFFER_SIZE);
+        }
+        return buffered;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextChunk == null) {
+            nextChunk = readChunk();
+        }
+        return !nextChunk.isEmpty();
+    }
+
+    @Override
+    public List<DealRow> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<DealRow> chunk = nextChunk;
+        nextChunk = null;
+        return chunk;
+    }
+
+    private List<DealRow> readChunk() {
+        List<DealRow> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && rows.hasNext()) {
+            DealRow row = rows.next();
+            if (row.recordNumber() <= resumeAfter) {
+                continue; // ⏭️ Already committed by an earlier run
+            }
+            chunk.add(row);
+        }
+        return chunk;
+    }
+
+    /**
+     * 🔑 SHA-256 (hex) of the whole input, computed while it was read - call it once the last chunk was taken.
+     * Only for readers opened with a digest.
+     */
+    public String contentHash() throws IOException {
+        if (contentHash == null) {
+            throw new IllegalStateException("Reader was opened without a digest");
+        }
+        return contentHash.finish();
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    // Reads what is left of the input into the digest and returns it as hex
+    @FunctionalInterface
+    interface ContentHash {
+        String finish() throws IOException;
+    }
+}
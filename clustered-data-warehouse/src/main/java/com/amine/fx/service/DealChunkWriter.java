@@ -0,0 +1,254 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.DealError;
+import com.amine.fx.model.ImportCheckpoint;
+import com.amine.fx.repository.DealJdbcRepository;
+import com.amine.fx.repository.DealShards;
+import com.amine.fx.repository.DealStagingJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 💾 Writes one {@link DealChunk} in its own transaction: valid deals as a JDBC batch, their
+ * pair/day rollups, the rejected rows (bulk inserts through the {@link DealErrorWriter}) and the new
+ * checkpoint, committed together. A chunk that rolls back leaves no error records behind, so its resumed
+ * import doesn't write them twice.
+ *
+ * In bulk-load mode deals and rejected rows go through {@link DealStagingJdbcRepository} instead: one
+ * LOAD DATA into a staging table and set-based moves from there. If that fails (a value the columns can't
+ * take, a deal ID another instance just inserted) the chunk is rolled back to a savepoint and written
+ * the regular way, so both modes end with the same deals and errors. With sharded deals the staging table
+ * (on the primary) can't move them to their shards, so chunks are always written the regular way.
+ *
+ * Sharded, every shard commits its part of the deals before this transaction commits. Each key is stored
+ * with the checkpoint and first record of its chunk, so if this transaction then fails, the resumed import
+ * finds those deals as its own: they come back as {@link DealChunk#recovered()} and are only counted and
+ * rolled up here.
+ *
+ * Safe to call from several threads at once; each call runs on the caller's own connection.
+ */
+@Component
+public class DealChunkWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealChunkWriter.class);
+
+    // ❓ Reason prefix (and summary key) for deals the database refused
+    public static final String DATABASE_ERROR = "Database error";
+
+    private final DealErrorWriter dealErrorWriter;
+    private final DealJdbcRepository dealJdbcRepository;
+    private final DealStagingJdbcRepository dealStagingRepository;
+    private final DealDeduplicator dealDeduplicator;
+    private final ImportCheckpointService checkpointService;
+    private final DealRollupService dealRollupService;
+    private final DealLookupService dealLookupService;
+    private final TransactionTemplate transactionTemplate;
+    private final DealCommitTracker commitTracker;
+    private final boolean sharded;
+    private final SampledLogger rejectedRowsLog; // 🎲 Bad files reject rows in every chunk
+
+    public DealChunkWriter(DealErrorWriter dealErrorWriter, DealJdbcRepository dealJdbcRepository,
+                           DealStagingJdbcRepository dealStagingRepository, DealDeduplicator dealDeduplicator,
+                           ImportCheckpointService checkpointService,
+                           DealRollupService dealRollupService, DealLookupService dealLookupService,
+                           TransactionTemplate transactionTemplate, DealCommitTracker commitTracker,
+                           DealShards dealShards,
+                           @Value("${fx.import.log.sample-interval:5s}") Duration logSampleInterval) {
+        this.dealErrorWriter = dealErrorWriter;
+        this.dealJdbcRepository = dealJdbcRepository;
+        this.dealStagingRepository = dealStagingRepository;
+        this.dealDeduplicator = dealDeduplicator;
+        this.checkpointService = checkpointService;
+        this.dealRollupService = dealRollupService;
+        this.dealLookupService = dealLookupService;
+        this.transactionTemplate = transactionTemplate;
+        this.commitTracker = commitTracker;
+        this.sharded = dealShards.isSharded();
+        this.rejectedRowsLog = new SampledLogger(logger, logSampleInterval);
+    }
+
+    /**
+     * @param beforeCommit called inside the transaction right before the checkpoint moves and the
+     *                     transaction commits (the parallel pipeline waits for its turn there), may be null
+     * @return what was really written - only valid once this method returned, i.e. after the commit
+     */
+    public ImportCounts write(DealChunk chunk, ImportCheckpoint checkpoint, Runnable beforeCommit) {
+        return write(chunk, checkpoint, false, beforeCommit);
+    }
+
+    /**
+     * @param bulkLoad go through the staging table (LOAD DATA + set-based moves) instead of JDBC batches
+     */
+    public ImportCounts write(DealChunk chunk, ImportCheckpoint checkpoint, boolean bulkLoad, Runnable beforeCommit) {
+        ImportCounts counts = new ImportCounts();
+        counts.addUnchanged(chunk.unchanged());
+        List<CompactDeal> inserted = new ArrayList<>(chunk.deals().size() + chunk.recovered().size());
+        // 🚦 Tracked until committed, so the incremental export knows when every id it saw is final
+        commitTracker.track(() -> transactionTemplate.executeWithoutResult(status -> {
+            List<DealError> errors = new ArrayList<>(chunk.rejected().size());
+            for (RejectedRow rejected : chunk.rejected()) {
+                errors.add(toDealError(rejected));
+            }
+
+            if (!bulkLoad || sharded || !bulkLoad(chunk, errors, counts, inserted)) {
+                // 🗂️ Rejected rows and deals the database refused, on this transaction's connection
+                chunk.rejected().forEach(rejected -> counts.addErrors(rejected.reason(), 1));
+                errors.addAll(insertDeals(chunk, checkpoint, counts, inserted));
+                dealErrorWriter.write(errors);
+            }
+            // 🧩 Stored on their shards by an earlier run whose transaction here didn't commit
+            inserted.addAll(chunk.recovered());
+            counts.addSuccesses(chunk.recovered().size());
+            if (beforeCommit != null) {
+                beforeCommit.run();
+            }
+            // 📈 After our turn: the chunks of one import take the (hot) rollup row locks one after another
+            dealRollupService.addDeals(inserted);
+            checkpointService.advance(checkpoint, chunk.lastRecordNumber());
+        }));
+        // 🔥 Committed - lookups of these deals can be served from memory now
+        dealLookupService.prewarm(inserted);
+        if (!chunk.rejected().isEmpty()) {
+            RejectedRow first = chunk.rejected().get(0);
+            rejectedRowsLog.warn("Rejected {} rows of chunk {}, first: record {} ({}): {}", chunk.rejected().size(),
+                    chunk.sequence(), first.row().recordNumber(), first.row().dealUniqueId(), first.reason());
+        }
+        return counts;
+    }
+
+    /**
+     * 🚚 Move the whole chunk through the staging table. Deals whose ID turns out to be taken are
+     * stored as duplicates, exactly like the duplicate check would have reported them.
+     *
+     * @return false when the chunk has to be written the regular way - nothing of it was kept
+     */
+    private boolean bulkLoad(DealChunk chunk, List<DealError> errors, ImportCounts counts,
+                             List<CompactDeal> inserted) {
+        if (!fitsStaging(chunk.deals(), errors)) {
+            return false;
+        }
+        BitSet duplicates;
+        try {
+            // Rolled back to its savepoint when it throws
+            duplicates = dealStagingRepository.load(chunk.deals(), errors, DealValidator.DUPLICATE_DEAL_ID);
+        } catch (DataAccessException e) {
+            logger.warn("Bulk load of chunk {} failed, writing it with JDBC batches: {}", chunk.sequence(), e.getMessage());
+            return false;
+        }
+
+        chunk.rejected().forEach(rejected -> counts.addErrors(rejected.reason(), 1));
+        counts.addErrors(DealValidator.DUPLICATE_DEAL_ID, duplicates.cardinality());
+        List<String> insertedIds = new ArrayList<>(chunk.deals().size());
+        for (int i = 0; i < chunk.deals().size(); i++) {
+            if (!duplicates.get(i)) {
+                CompactDeal deal = chunk.deals().get(i);
+                inserted.add(deal);
+                insertedIds.add(deal.dealUniqueId());
+            }
+        }
+        counts.addSuccesses(inserted.size());
+        dealDeduplicator.recordInserted(insertedIds);
+        logger.debug("Bulk-loaded chunk of {} deals and {} errors ({} duplicates)",
+                chunk.deals().size(), errors.size(), duplicates.cardinality());
+        return true;
+    }
+
+    // 📏 LOAD DATA LOCAL truncates values that are too long instead of failing - those chunks take the regular way
+    private static boolean fitsStaging(List<CompactDeal> deals, List<DealError> errors) {
+        for (CompactDeal deal : deals) {
+            if (deal.dealUniqueId().length() > DealStagingJdbcRepository.MAX_TEXT_LENGTH) {
+                return false;
+            }
+        }
+        for (DealError error : errors) {
+            if (tooLong(error.getDealUniqueId()) || tooLong(error.getFromCurrency())
+                    || tooLong(error.getToCurrency()) || tooLong(error.getAmount())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean tooLong(String value) {
+        return value != null && value.length() > DealStagingJdbcRepository.MAX_TEXT_LENGTH;
+    }
+
+    /**
+     * Insert the collected deals of the chunk as one JDBC batch. If the batch is rejected, the failed rows
+     * are retried one by one so a single bad deal doesn't take the whole chunk down with it.
+     *
+     * @param inserted receives the deals that really went in
+     * @return error records of the deals the database refused
+     */
+    private List<DealError> insertDeals(DealChunk chunk, ImportCheckpoint checkpoint, ImportCounts counts,
+                             List<CompactDeal> inserted) {
+        List<CompactDeal> deals = chunk.deals();
+        if (deals.isEmpty()) {
+            return List.of();
+        }
+
+        List<CompactDeal> failedDeals =
+                dealJdbcRepository.batchInsert(deals, checkpoint.getId(), checkpoint.getRunNumber(),
+                        chunk.firstRecordNumber());
+        Set<String> insertedIds = new HashSet<>();
+        deals.forEach(deal -> insertedIds.add(deal.dealUniqueId()));
+
+        Set<CompactDeal> refused = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<DealError> errors = new ArrayList<>();
+        for (CompactDeal deal : failedDeals) {
+            try {
+                dealJdbcRepository.insert(deal, checkpoint.getId(), checkpoint.getRunNumber(), chunk.firstRecordNumber());
+            } catch (Exception e) {
+                insertedIds.remove(deal.dealUniqueId());
+                refused.add(deal);
+                errors.add(new DealError(deal.dealUniqueId(), deal.fromCurrency(), deal.toCurrency(),
+                        deal.dealTimestamp(), deal.amount().toPlainString(), DATABASE_ERROR + ": " + e.getMessage()));
+            }
+        }
+
+        for (CompactDeal deal : deals) {
+            if (!refused.contains(deal)) {
+                inserted.add(deal);
+            }
+        }
+        counts.addSuccesses(insertedIds.size());
+        counts.addErrors(DATABASE_ERROR, errors.size());
+        dealDeduplicator.recordInserted(insertedIds);
+        logger.debug("Saved chunk of {} deals ({} retried one by one)", deals.size(), failedDeals.size());
+        return errors;
+    }
+
+    /**
+     * Error record with the original values. The timestamp is reused from validation; it is only parsed
+     * here for rows rejected before validation got to it (missing fields).
+     */
+    private DealError toDealError(RejectedRow rejected) {
+        DealRow row = rejected.row();
+        LocalDateTime dealTimestamp = rejected.timestamp();
+        if (dealTimestamp == null && DealValidator.MISSING_FIELDS.equals(rejected.reason()) && row.timestamp() != null) {
+            try {
+                dealTimestamp = LocalDateTime.parse(row.timestamp(), DealValidator.TIMESTAMP_FORMATTER);
+            } catch (DateTimeParseException e) {
+                // Keep as null if timestamp is invalid
+            }
+        }
+        return new DealError(row.dealUniqueId(), row.fromCurrency(), row.toCurrency(),
+                dealTimestamp, row.amount(), rejected.reason());
+    }
+}
@@ -0,0 +1,58 @@
+package com.amine.fx.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 🚦 Knows which deal writes of this instance are still in flight.
+ *
+ * fx_deals ids are handed out when a row is inserted, not when it is committed: while chunk 7 is still
+ * open, chunk 8 of another import may already be committed with higher ids. A reader that wants "every
+ * deal up to id N" - the incremental export - reads N first and then waits here for the writes that were
+ * running at that moment. Every id up to N belongs to one of those (or to a write that already ended),
+ * so afterwards all of them are committed or rolled back. New writes are never blocked.
+ *
+ * In memory, so it only knows this instance's writes - the export relies on it being the only writer.
+ */
+@Component
+public class DealCommitTracker {
+
+    private final AtomicLong tickets = new AtomicLong();
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition writeEnded = lock.newCondition();
+
+    // ✍️ Run a write (transaction included) so readers can wait for it
+    public void track(Runnable write) {
+        long ticket = tickets.incrementAndGet();
+        inFlight.add(ticket);
+        try {
+            write.run();
+        } finally {
+            inFlight.remove(ticket);
+            lock.lock();
+            try {
+                writeEnded.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // ⏳ Wait until every write that started before this call has ended (committed or not)
+    public void awaitWritesInFlight() throws InterruptedException {
+        long horizon = tickets.get();
+        lock.lock();
+        try {
+            while (!inFlight.headSet(horizon, true).isEmpty()) {
+                writeEnded.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.ImportCheckpoint;
+import com.amine.fx.repository.DealJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 🔁 Duplicate detection stage of the import.
+ *
+ * Per file, a {@link Session} remembers the accepted deal IDs in memory (catches repeats
+ * inside the same file) and asks the database about a whole chunk of IDs with one
+ * WHERE deal_unique_id IN (...) query on fx_deal_keys instead of one existsBy... query per row.
+ * (fx_deals itself is partitioned by timestamp, so an ID lookup there would touch every partition.)
+ * With sharding, each shard only gets asked about the IDs that hash to it.
+ *
+ * Optionally a Bloom filter preloaded from fx_deal_keys sits in front of that query: IDs it has
+ * never seen are skipped without touching the database. The primary key of fx_deal_keys stays
+ * the final guarantee if anything slips through.
+ *
+ * Imports running at the same time share a map of claimed IDs: a session claims the ID of every
+ * valid row before it looks the ID up, and keeps the claim until its import ends. When two files
+ * carry the same deal, whichever session claims it first stores it and the other one reports a
+ * plain duplicate - the second insert never reaches the unique constraint of fx_deal_keys.
+ *
+ * Memory stays flat however big the file is: once a session holds more than max-ids-in-memory IDs, it
+ * forgets those of its oldest committed chunks and releases their claims. Their deals are in fx_deal_keys by
+ * then, so a later repeat is still caught - by the per-chunk IN lookup instead of the in-memory set.
+ *
+ * An idempotent session (replays, overlapping exports) reads the stored values along with the IDs, with
+ * the same one query per chunk: a row identical to the stored deal - or to the one accepted earlier in the
+ * file - is skipped as unchanged, only a row with other values is rejected, as a conflict. So re-sending a
+ * file costs one lookup per chunk and adds nothing to fx_deal_errors.
+ *
+ * A resumed import also asks which of the IDs it found were claimed by its own chunks after the checkpoint.
+ * Sharded, those chunks committed on their shards while the checkpoint, rollups and counts on the primary
+ * did not - their deals are handed to the writer as recovered, not rejected as duplicates.
+ */
+@Component
+public class DealDeduplicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealDeduplicator.class);
+
+    private final DealJdbcRepository dealJdbcRepository;
+
+    private final boolean bloomFilterEnabled;
+    private final long bloomFilterExpectedDeals;
+    private final double bloomFilterFalsePositiveRate;
+    private final int maxIdsInMemory;
+
+    private volatile DealIdBloomFilter bloomFilter; // 🌸 Loaded on first use
+
+    // 🏷️ Deal ID -> session of the running import that will store it
+    private final Map<String, Session> claims = new ConcurrentHashMap<>();
+
+    public DealDeduplicator(DealJdbcRepository dealJdbcRepository,
+                            @Value("${fx.import.dedup.bloom-filter.enabled:false}") boolean bloomFilterEnabled,
+                            @Value("${fx.import.dedup.bloom-filter.expected-deals:10000000}") long bloomFilterExpectedDeals,
+                            @Value("${fx.import.dedup.bloom-filter.false-positive-rate:0.01}") double bloomFilterFalsePositiveRate,
+                            @Value("${fx.import.dedup.max-ids-in-memory:200000}") int maxIdsInMemory) {
+        this.dealJdbcRepository = dealJdbcRepository;
+        this.bloomFilterEnabled = bloomFilterEnabled;
+        this.bloomFilterExpectedDeals = bloomFilterExpectedDeals;
+        this.bloomFilterFalsePositiveRate = bloomFilterFalsePositiveRate;
+        this.maxIdsInMemory = Math.max(1, maxIdsInMemory);
+    }
+
+    // 🆕 Start duplicate tracking for one import
+    public Session newSession() {
+        return newSession(false);
+    }
+
+    /**
+     * @param idempotent skip rows identical to a deal already stored instead of rejecting them as duplicates
+     */
+    public Session newSession(boolean idempotent) {
+        return newSession(idempotent, null);
+    }
+
+    /**
+     * @param checkpoint checkpoint of the import - when it is resumed, deals its earlier runs stored after the
+     *                   checkpoint are recovered instead of being reported as duplicates (may be null)
+     */
+    public Session newSession(boolean idempotent, ImportCheckpoint checkpoint) {
+        return new Session(bloomFilterEnabled ? bloomFilter() : null, idempotent,
+                checkpoint != null && checkpoint.isResumed() ? checkpoint.getId() : null,
+                checkpoint != null ? checkpoint.getRunNumber() : 1,
+                checkpoint != null ? checkpoint.getLastCommittedRecord() : 0);
+    }
+
+    // ✅ Tell the Bloom filter about deals that were just inserted
+    public void recordInserted(Collection<String> dealUniqueIds) {
+        DealIdBloomFilter filter = bloomFilter;
+        if (filter != null) {
+            dealUniqueIds.forEach(filter::put);
+        }
+    }
+
+    private DealIdBloomFilter bloomFilter() {
+        DealIdBloomFilter filter = bloomFilter;
+        if (filter == null) {
+            synchronized (this) {
+                filter = bloomFilter;
+                if (filter == null) {
+                    filter = loadBloomFilter();
+                    bloomFilter = filter;
+                }
+            }
+        }
+        return filter;
+    }
+
+    // 📥 Stream every existing deal ID from fx_deal_keys (of every shard) into a fresh Bloom filter
+    private DealIdBloomFilter loadBloomFilter() {
+        DealIdBloomFilter filter = new DealIdBloomFilter(bloomFilterExpectedDeals, bloomFilterFalsePositiveRate);
+        long[] loaded = {0};
+        dealJdbcRepository.forEachDealUniqueId(id -> {
+            filter.put(id);
+            loaded[0]++;
+        });
+        logger.info("Preloaded {} deal IDs into the duplicate Bloom filter", loaded[0]);
+        return filter;
+    }
+
+    // 📊 IDs currently claimed by running imports
+    public int getClaimedDealIds() {
+        return claims.size();
+    }
+
+    /**
+     * Duplicate state for a single file import. Not thread-safe - one per import, and chunks
+     * must be resolved in file order so the first occurrence of an ID always wins. Only
+     * {@link #committed} may be called from the writer threads.
+     * Close it when the import ends to release its claims.
+     */
+    public class Session implements AutoCloseable {
+
+        private final DealIdBloomFilter filter;
+        private final boolean idempotent;
+        private final Long resumedCheckpointId;   // 🔁 null unless resuming an interrupted import
+        private final int importRun;              // Run number of the checkpoint, stamped on fx_deal_keys
+        private final long resumedAfterRecord;    // Its checkpoint when this run started
+        // 📝 IDs accepted earlier in this file -> the deal (idempotent) or null (values not needed)
+        private final Map<String, CompactDeal> acceptedInFile = new HashMap<>();
+        private final Set<String> claimed = new HashSet<>();        // 🏷️ IDs this session holds in claims
+        private final Deque<ChunkIds> claimedByChunk = new ArrayDeque<>(); // Same IDs, oldest chunk first
+        // 🧩 Recovered IDs are stored under an earlier run, the IN lookup would recover them again - never forgotten
+        private final Set<String> recoveredInFile = new HashSet<>();
+        private final AtomicLong committedThrough = new AtomicLong(-1); // Last chunk sequence in the database
+        private Set<String> claimedElsewhere = Set.of();            // 🚧 IDs of the current chunk another import holds
+        // 🗄️ IDs of the current chunk found in fx_deals -> the stored deal (idempotent) or null
+        private Map<String, CompactDeal> existingInDatabase = Map.of();
+        private Set<String> storedByEarlierRun = Set.of();         // 🧩 IDs of the current chunk to recover
+
+        private long databaseLookups;
+        private long skippedByBloomFilter;
+        private long claimedByOtherImports;
+
+        private Session(DealIdBloomFilter filter, boolean idempotent, Long resumedCheckpointId, int importRun,
+                        long resumedAfterRecord) {
+            this.filter = filter;
+            this.idempotent = idempotent;
+            this.resumedCheckpointId = resumedCheckpointId;
+            this.importRun = importRun;
+            this.resumedAfterRecord = resumedAfterRecord;
+        }
+
+        /**
+         * Decide the final outcome of every row of the next chunk: accepted deal or rejected row.
+         * Same order of checks as before: missing fields, then duplicates, then the other checks.
+         */
+        public DealChunk resolve(long sequence, List<ValidatedRow> rows) {
+            forgetCommittedChunks();
+            claimedByChunk.addLast(new ChunkIds(sequence, new ArrayList<>()));
+            prepareChunk(rows);
+
+            List<CompactDeal> deals = new ArrayList<>(rows.size());
+            List<CompactDeal> recovered = new ArrayList<>();
+            List<RejectedRow> rejected = new ArrayList<>();
+            int unchanged = 0;
+            for (ValidatedRow validated : rows) {
+                DealRow row = validated.row();
+                if (validated.missingFields()) {
+                    rejected.add(new RejectedRow(row, validated.error(), validated.timestamp()));
+                } else if (isDuplicate(row.dealUniqueId())) {
+                    String reason = duplicateReason(validated);
+                    if (reason == null) {
+                        unchanged++; // 🔁 Stored already, exactly like this
+                    } else {
+                        rejected.add(new RejectedRow(row, reason, validated.timestamp()));
+                    }
+                } else if (validated.error() != null) {
+                    rejected.add(new RejectedRow(row, validated.error(), validated.timestamp()));
+                } else {
+                    markAccepted(validated.deal());
+                    if (storedByEarlierRun.contains(row.dealUniqueId())) {
+                        recoveredInFile.add(row.dealUniqueId());
+                        recovered.add(validated.deal()); // 🧩 Ours - stored on its shard, never counted
+                    } else {
+                        deals.add(validated.deal());
+                    }
+                }
+            }
+
+            long firstRecordNumber = rows.isEmpty() ? 0 : rows.get(0).row().recordNumber();
+            long lastRecordNumber = rows.isEmpty() ? 0 : rows.get(rows.size() - 1).row().recordNumber();
+            return new DealChunk(sequence, firstRecordNumber, lastRecordNumber, deals, recovered, rejected, unchanged);
+        }
+
+        /**
+         * What to do with a row whose ID is taken. Without idempotency it is a plain duplicate. Idempotent, a
+         * valid row with the same values as the deal holding the ID is unchanged (null), anything else is a
+         * conflict - unless the ID is held by another running import, whose values aren't known yet.
+         */
+        private String duplicateReason(ValidatedRow validated) {
+            if (!idempotent) {
+                return DealValidator.DUPLICATE_DEAL_ID;
+            }
+            String id = validated.row().dealUniqueId();
+            CompactDeal holder = acceptedInFile.containsKey(id) ? acceptedInFile.get(id) : existingInDatabase.get(id);
+            if (holder == null) {
+                return DealValidator.DUPLICATE_DEAL_ID;
+            }
+            if (validated.error() == null && sameValues(holder, validated.deal())) {
+                return null;
+            }
+            return DealValidator.CONFLICTING_DEAL_ID;
+        }
+
+        // 🔁 Claim the IDs of the chunk, then look the rest up in the database with a single query
+        private void prepareChunk(List<ValidatedRow> rows) {
+            Set<String> candidates = new HashSet<>();
+            Set<String> otherImports = new HashSet<>();
+            for (ValidatedRow validated : rows) {
+                if (validated.missingFields()) {
+                    continue; // Rejected before the duplicate check anyway
+                }
+                String id = validated.row().dealUniqueId();
+                if (id == null || id.isBlank() || acceptedInFile.containsKey(id)) {
+                    continue; // Already answered from memory
+                }
+                if (!claim(id, validated.error() == null)) {
+                    otherImports.add(id);
+                    continue; // 🚧 Another running import stores this deal
+                }
+                if (filter != null && !filter.mightContain(id)) {
+                    skippedByBloomFilter++;
+                    continue; // 🌸 Definitely not in fx_deals
+                }
+                candidates.add(id);
+            }
+
+            claimedElsewhere = otherImports;
+            claimedByOtherImports += otherImports.size();
+            storedByEarlierRun = Set.of();
+            if (candidates.isEmpty()) {
+                existingInDatabase = Map.of();
+                return;
+            }
+            databaseLookups += candidates.size();
+            if (idempotent) {
+                existingInDatabase = dealJdbcRepository.findStoredDeals(candidates);
+            } else {
+                Map<String, CompactDeal> existing = new HashMap<>();
+                dealJdbcRepository.findExistingDealUniqueIds(candidates).forEach(id -> existing.put(id, null));
+                existingInDatabase = existing;
+            }
+            if (resumedCheckpointId != null && !existingInDatabase.isEmpty()) {
+                // A chunk starting after the checkpoint never committed on the primary: answer those IDs as if
+                // they weren't stored yet, so every row gets the same verdict as in the earlier run
+                storedByEarlierRun = dealJdbcRepository.findClaimedByImport(existingInDatabase.keySet(),
+                        resumedCheckpointId, importRun, resumedAfterRecord);
+                if (!storedByEarlierRun.isEmpty()) {
+                    Map<String, CompactDeal> existing = new HashMap<>(existingInDatabase);
+                    existing.keySet().removeAll(storedByEarlierRun);
+                    existingInDatabase = existing;
+                }
+            }
+        }
+
+        /**
+         * Only valid rows take a claim - an invalid row must not block a valid one in another file,
+         * it only checks whether somebody else holds the ID.
+         *
+         * @return false when another running import holds the ID
+         */
+        private boolean claim(String dealUniqueId, boolean valid) {
+            if (!valid) {
+                Session owner = claims.get(dealUniqueId);
+                return owner == null || owner == this;
+            }
+            Session owner = claims.putIfAbsent(dealUniqueId, this);
+            if (owner == null) {
+                claimed.add(dealUniqueId);
+                claimedByChunk.getLast().ids().add(dealUniqueId);
+                return true;
+            }
+            return owner == this;
+        }
+
+        /**
+         * 🧹 Over max-ids-in-memory, drop the IDs of the oldest chunks that are committed. Every ID this file
+         * accepted is claimed by the chunk that accepted it (or an earlier one), so it is in fx_deal_keys by
+         * now and a repeat gets caught by the IN lookup - a key of the current run is never recovered.
+         */
+        private void forgetCommittedChunks() {
+            long committed = committedThrough.get();
+            while (claimed.size() > maxIdsInMemory && !claimedByChunk.isEmpty()
+                    && claimedByChunk.getFirst().sequence() <= committed) {
+                for (String id : claimedByChunk.removeFirst().ids()) {
+                    if (!recoveredInFile.contains(id)) {
+                        acceptedInFile.remove(id);
+                    }
+                    claimed.remove(id);
+                    claims.remove(id, this);
+                }
+            }
+        }
+
+        // 💾 The chunk is committed - its IDs may be forgotten once the session holds too many
+        public void committed(long sequence) {
+            committedThrough.accumulateAndGet(sequence, Math::max);
+        }
+
+        private boolean isDuplicate(String dealUniqueId) {
+            return acceptedInFile.containsKey(dealUniqueId) || claimedElsewhere.contains(dealUniqueId)
+                    || existingInDatabase.containsKey(dealUniqueId);
+        }
+
+        // ✅ Remember a deal that passed validation so later rows with the same ID are duplicates
+        private void markAccepted(CompactDeal deal) {
+            acceptedInFile.put(deal.dealUniqueId(), idempotent ? deal : null);
+        }
+
+        // ⚖️ Same deal as far as fx_deals can tell - amounts compared by value, 100.5 equals 100.5000
+        private static boolean sameValues(CompactDeal stored, CompactDeal row) {
+            return stored.fromCurrencyCode() == row.fromCurrencyCode()
+                    && stored.toCurrencyCode() == row.toCurrencyCode()
+                    && stored.epochSecond() == row.epochSecond()
+                    && stored.nano() == row.nano()
+                    && stored.amount().compareTo(row.amount()) == 0;
+        }
+
+        public long getDatabaseLookups() {
+            return databaseLookups;
+        }
+
+        public long getSkippedByBloomFilter() {
+            return skippedByBloomFilter;
+        }
+
+        public long getClaimedByOtherImports() {
+            return claimedByOtherImports;
+        }
+
+        // 🔓 Import ended - its deals are committed (or will be resumed), other imports may take the IDs again
+        @Override
+        public void close() {
+            claimed.forEach(id -> claims.remove(id, this));
+            claimed.clear();
+            claimedByChunk.clear();
+        }
+    }
+
+    private record ChunkIds(long sequence, List<String> ids) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.DealError;
+import com.amine.fx.repository.DealErrorJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 🗂️ Saves rejected rows to fx_deal_errors in bulk inserts.
+ *
+ * Runs in the caller's transaction - the chunk's - so a chunk's error records commit or roll back together
+ * with its deals and its checkpoint. A resumed import therefore never finds errors of a chunk it has to
+ * read again, and never writes them twice.
+ */
+@Component
+public class DealErrorWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealErrorWriter.class);
+
+    private final DealErrorJdbcRepository errorRepository;
+    private final int batchSize;
+    private final SampledLogger failedInsertsLog;
+
+    public DealErrorWriter(DealErrorJdbcRepository errorRepository,
+                           @Value("${fx.import.errors.batch-size:500}") int batchSize,
+                           @Value("${fx.import.log.sample-interval:5s}") Duration logSampleInterval) {
+        this.errorRepository = errorRepository;
+        this.batchSize = Math.max(1, batchSize);
+        this.failedInsertsLog = new SampledLogger(logger, logSampleInterval);
+    }
+
+    // 💾 Save the errors in batches of batch-size rows - must run inside a transaction
+    public void write(List<DealError> errors) {
+        for (int from = 0; from < errors.size(); from += batchSize) {
+            writeBatch(errors.subList(from, Math.min(errors.size(), from + batchSize)));
+        }
+    }
+
+    private void writeBatch(List<DealError> batch) {
+        try {
+            errorRepository.batchInsert(batch);
+        } catch (Exception batchError) {
+            // One bad row must not lose the others - retry one by one (the batch was rolled back to its savepoint)
+            for (DealError error : batch) {
+                try {
+                    errorRepository.insert(error);
+                } catch (Exception e) {
+                    failedInsertsLog.error("Failed to save deal error for {}: {}", error.getDealUniqueId(), e.getMessage());
+                }
+            }
+        }
+        logger.debug("Saved {} deal errors", batch.size());
+    }
+}
@@ -0,0 +1,346 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.ImportCheckpoint;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * 🏭 Multi-core version of the import, split into stages connected by bounded queues:
+ *
+ * <pre>
+ *   reader (caller thread) → validator pool → dedup (1 thread, file order) → writer pool
+ * </pre>
+ *
+ * Parsing timestamps/amounts and validating runs on all validator threads. The duplicate check
+ * stays single-threaded so the first occurrence of an ID always wins, exactly like the sequential
+ * path. Writers run on their own connections; each one inserts its chunk in parallel with the
+ * others but commits strictly in file order, so the checkpoint never points past a gap.
+ *
+ * Writers of all running imports share the slots of the {@link ImportWriteScheduler}, so the writer
+ * threads of one import are an upper bound, not a guaranteed number of connections.
+ *
+ * Validators are platform threads - they keep a core busy anyway - and there is one pool of them for
+ * all running imports, so concurrent imports and the watch folder share the cores instead of each
+ * starting a thread per core. The dedup stage and the writers mostly wait for the database, so they are
+ * virtual threads of the import: it costs no pooled OS threads while its writers wait for a connection,
+ * a writer slot or their turn to commit.
+ *
+ * Bounded queues give backpressure: the reader blocks when validators or writers fall behind,
+ * so at most a few chunks per stage are in memory. How full the queues are is published as the
+ * fx.import.pipeline.queue gauge (summed over all running imports).
+ */
+@Component
+public class DealImportPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealImportPipeline.class);
+
+    // 🏁 End-of-input markers passed down the queues
+    private static final Future<List<ValidatedRow>> END_OF_ROWS = CompletableFuture.completedFuture(List.of());
+    private static final DealChunk END_OF_CHUNKS = new DealChunk(-1, 0, 0, List.of(), List.of(), List.of(), 0);
+
+    private final DealValidator dealValidator;
+    private final DealChunkWriter chunkWriter;
+    private final ImportMetrics importMetrics;
+
+    private final int validatorThreads;
+    private final ExecutorService validators; // ✅ Shared by every run - one thread per core, not per import
+    private final int writerThreads;
+    private final int queueCapacity;
+
+    // 🏃 Pipelines running right now (one per import), for the queue gauges
+    private final Set<Run> activeRuns = ConcurrentHashMap.newKeySet();
+
+    public DealImportPipeline(DealValidator dealValidator, DealChunkWriter chunkWriter,
+                              ImportMetrics importMetrics, MeterRegistry meterRegistry,
+                              @Value("${fx.import.pipeline.validator-threads:0}") int validatorThreads,
+                              @Value("${fx.import.pipeline.writer-threads:4}") int writerThreads,
+                              @Value("${fx.import.pipeline.queue-capacity:8}") int queueCapacity) {
+        this.dealValidator = dealValidator;
+        this.chunkWriter = chunkWriter;
+        this.importMetrics = importMetrics;
+        // 0 = one validator per CPU core
+        this.validatorThreads = validatorThreads > 0 ? validatorThreads : Runtime.getRuntime().availableProcessors();
+        this.validators = Executors.newFixedThreadPool(this.validatorThreads, threadFactory("deal-validator"));
+        this.writerThreads = Math.max(1, writerThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+
+        registerQueueGauge(meterRegistry, "validated", run -> run.validatedQueue.size());
+        registerQueueGauge(meterRegistry, "write", run -> run.writeQueue.size());
+    }
+
+    private void registerQueueGauge(MeterRegistry meterRegistry, String queue, ToIntFunction<Run> size) {
+        Gauge.builder("fx.import.pipeline.queue", activeRuns, runs -> runs.stream().mapToInt(size).sum())
+                .description("Chunks waiting between two pipeline stages")
+                .tag("queue", queue)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        validators.shutdownNow();
+    }
+
+    /**
+     * Run all chunks through the pipeline and wait until the last one is committed.
+     */
+    public ImportCounts run(Iterator<List<DealRow>> chunks, DealDeduplicator.Session duplicates,
+                            ImportWriteScheduler.Lane writeLane, ImportCheckpoint checkpoint, boolean bulkLoad,
+                            ImportProgress progress, Observation observation) {
+        Run run = new Run(duplicates, writeLane, checkpoint, bulkLoad, progress, observation);
+        activeRuns.add(run);
+        try {
+            return run.execute(chunks);
+        } finally {
+            activeRuns.remove(run);
+        }
+    }
+
+    // 🔄 State of one pipeline execution
+    private class Run {
+
+        private final DealDeduplicator.Session duplicates;
+        private final ImportWriteScheduler.Lane writeLane; // 🚦 Shared writer slots, fair between imports
+        private final ImportCheckpoint checkpoint;
+        private final boolean bulkLoad; // 🚚 Write chunks through the staging table
+        private final ImportProgress progress;
+        private final ImportReport report; // 📋 Gets the stage timings
+        private final Observation observation; // 📊 Parent of the per-chunk stage observations
+
+        private final BlockingQueue<Future<List<ValidatedRow>>> validatedQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final BlockingQueue<DealChunk> writeQueue = new ArrayBlockingQueue<>(queueCapacity);
+        private final CommitGate commitGate = new CommitGate();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final ImportCounts counts = new ImportCounts();
+
+        private final ExecutorService sequencer = Executors.newSingleThreadExecutor(virtualThreadFactory("deal-dedup"));
+        private final ExecutorService writers = Executors.newFixedThreadPool(writerThreads, virtualThreadFactory("deal-writer"));
+
+        private Run(DealDeduplicator.Session duplicates, ImportWriteScheduler.Lane writeLane,
+                    ImportCheckpoint checkpoint, boolean bulkLoad, ImportProgress progress, Observation observation) {
+            this.duplicates = duplicates;
+            this.writeLane = writeLane;
+            this.checkpoint = checkpoint;
+            this.bulkLoad = bulkLoad;
+            this.progress = progress;
+            this.report = progress.getReport();
+            this.observation = observation;
+        }
+
+        private ImportCounts execute(Iterator<List<DealRow>> chunks) {
+            List<Future<?>> stages = new ArrayList<>();
+            stages.add(sequencer.submit(this::sequence));
+            for (int i = 0; i < writerThreads; i++) {
+                stages.add(writers.submit(this::write));
+            }
+
+            try {
+                read(chunks);
+                for (Future<?> stage : stages) {
+                    stage.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(e);
+            } catch (ExecutionException e) {
+                fail(e.getCause());
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                cancelValidations();
+                sequencer.shutdownNow();
+                writers.shutdownNow();
+            }
+
+            Throwable error = failure.get();
+            if (error != null) {
+                throw new IllegalStateException("Parallel import failed: " + error.getMessage(), error);
+            }
+            logger.debug("Pipeline finished with {} validator and {} writer threads", validatorThreads, writerThreads);
+            return counts;
+        }
+
+        // 📖 Stage 1 (caller thread): read chunks and hand them to the validator pool in file order
+        private void read(Iterator<List<DealRow>> chunks) throws InterruptedException {
+            while (failure.get() == null && chunks.hasNext()) {
+                List<DealRow> rows = importMetrics.observeStage(ImportMetrics.PARSE, observation, report, chunks::next);
+                Future<List<ValidatedRow>> validated = validators.submit(() -> validate(rows));
+                putUntilFailed(validatedQueue, validated);
+            }
+            putUntilFailed(validatedQueue, END_OF_ROWS);
+        }
+
+        // ✅ Stage 2 (shared validator pool): parse and check every row of a chunk
+        private List<ValidatedRow> validate(List<DealRow> rows) {
+            if (failure.get() != null) {
+                return List.of(); // Failed while queued - leave the threads to the other imports
+            }
+            return importMetrics.observeStage(ImportMetrics.VALIDATE, observation, report, () -> {
+                List<ValidatedRow> validated = new ArrayList<>(rows.size());
+                for (DealRow row : rows) {
+                    validated.add(dealValidator.validate(row));
+                }
+                return validated;
+            });
+        }
+
+        // 🔁 Stage 3 (single thread): duplicate check in file order
+        private void sequence() {
+            try {
+                long sequence = 0;
+                while (true) {
+                    Future<List<ValidatedRow>> next = validatedQueue.take();
+                    if (next == END_OF_ROWS) {
+                        break;
+                    }
+                    List<ValidatedRow> validated = next.get();
+                    long chunkSequence = sequence++;
+                    DealChunk chunk = importMetrics.observeStage(ImportMetrics.DEDUP, observation, report,
+                            () -> duplicates.resolve(chunkSequence, validated));
+                    putUntilFailed(writeQueue, chunk);
+                }
+                for (int i = 0; i < writerThreads; i++) {
+                    putUntilFailed(writeQueue, END_OF_CHUNKS); // One stop signal per writer
+                }
+            } catch (Throwable e) {
+                fail(e instanceof ExecutionException ? e.getCause() : e);
+            }
+        }
+
+        // 💾 Stage 4 (writer pool): write chunks in parallel, commit them in order
+        private void write() {
+            try {
+                while (true) {
+                    DealChunk chunk = writeQueue.take();
+                    if (chunk == END_OF_CHUNKS) {
+                        return;
+                    }
+                    // ⏱️ persist includes the commit-wait, which is also reported on its own
+                    ImportCounts written = importMetrics.observeStage(ImportMetrics.PERSIST, observation, report,
+                            () -> writeLane.write(chunk.sequence(), () -> chunkWriter.write(chunk, checkpoint, bulkLoad,
+                                    () -> importMetrics.observeStage(ImportMetrics.COMMIT_WAIT, observation, report,
+                                            () -> commitGate.awaitTurn(chunk.sequence())))));
+                    commitGate.committed(chunk.sequence());
+                    duplicates.committed(chunk.sequence());
+                    progress.chunkCommitted(chunk, written);
+                    importMetrics.chunkCommitted(written);
+                    synchronized (counts) {
+                        counts.add(written);
+                    }
+                }
+            } catch (Throwable e) {
+                fail(e);
+            }
+        }
+
+        // 🧹 The validator pool is shared, so only this run's chunks are cancelled, never the pool
+        private void cancelValidations() {
+            List<Future<List<ValidatedRow>>> pending = new ArrayList<>();
+            validatedQueue.drainTo(pending);
+            pending.forEach(validated -> validated.cancel(true));
+        }
+
+        private <T> void putUntilFailed(BlockingQueue<T> queue, T item) throws InterruptedException {
+            while (failure.get() == null) {
+                if (queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            }
+        }
+
+        // 🚨 First failure wins; stop every stage so nobody waits forever
+        private void fail(Throwable e) {
+            if (failure.compareAndSet(null, e)) {
+                logger.error("Parallel import failed: {}", e.getMessage());
+                commitGate.abort();
+                cancelValidations();
+                sequencer.shutdownNow();
+                writers.shutdownNow();
+            }
+        }
+    }
+
+    // 🚦 Lets chunk N commit only after chunk N-1 has committed (a lock, not a monitor - writers are virtual threads)
+    private static class CommitGate {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private long nextSequence;
+        private boolean aborted;
+
+        void awaitTurn(long sequence) {
+            lock.lock();
+            try {
+                while (!aborted && nextSequence != sequence) {
+                    changed.await();
+                }
+                if (aborted) {
+                    throw new IllegalStateException("Import aborted before chunk " + sequence + " could commit");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting to commit chunk " + sequence, e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void committed(long sequence) {
+            lock.lock();
+            try {
+                nextSequence = sequence + 1;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void abort() {
+            lock.lock();
+            try {
+                aborted = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreadFactory(String prefix) {
+        return Thread.ofVirtual().name(prefix + "-", 1).factory();
+    }
+}
@@ -1,17 +1,10 @@
 package com.amine.fx.service;
 
 // Database models - our ingredients
-import com.amine.fx.model.Deal;
-import com.amine.fx.model.DealError;
+import com.amine.fx.model.ImportCheckpoint;
 
-// Database managers - our storage
-import com.amine.fx.repository.DealRepository;
-import com.amine.fx.repository.DealErrorRepository;
-
-// CSV reading tools - our order ticket reader
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+// Metrics and tracing - our dashboard
+import io.micrometer.observation.Observation;
 
 // Logging - our intercom
 import org.slf4j.Logger;
@@ -19,20 +12,21 @@ import org.slf4j.LoggerFactory;
 
 // Spring annotations - instructions
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.unit.DataSize;
 
 // File handling - our order ticket folder
 import java.io.IOException;
-import java.math.BigDecimal;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-
-
-// Date and number parsing - our timer and scale
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 @Service // 🎯 Tells Spring: "This contains business logic"
 public class DealImportService {
@@ -40,159 +34,320 @@ public class DealImportService {
     // 📢 intercom for logging messages
     private static final Logger logger = LoggerFactory.getLogger(DealImportService.class);
 
-    // 🕒 How to read dates like "2025-11-13T10:00:00"
-    private static final DateTimeFormatter TIMESTAMP_FORMATTER =
-            DateTimeFormatter.ISO_LOCAL_DATE_TIME; // Handles "2025-11-13T10:00:00"
+    // 🔗 Our kitchen stations
+    private final DealValidator dealValidator;
+    private final DealDeduplicator dealDeduplicator;
+    private final DealChunkWriter chunkWriter;
+    private final DealImportPipeline importPipeline;
+    private final ImportWriteScheduler writeScheduler;
+    private final ImportCheckpointService checkpointService;
+    private final DealReaderFactory readerFactory;
+    private final ImportMetrics importMetrics;
+
+    // 📦 How many rows we validate, insert and commit together (one transaction per chunk)
+    private final int chunkSize;
 
-    // 🔗 Connect to our storage managers
-    private final DealRepository dealRepository;
-    private final DealErrorRepository dealErrorRepository;
+    // 🏭 Use the multi-threaded pipeline instead of doing everything on the calling thread
+    private final boolean pipelineEnabled;
+
+    // 🚚 Files from this size on are bulk-loaded through the staging table, in bigger chunks
+    private final boolean bulkLoadEnabled;
+    private final long bulkLoadMinFileSize;
+    private final int bulkLoadChunkSize;
+
+    // 🔁 Skip what is stored already: known content as a whole, identical rows one by one
+    private final boolean idempotentEnabled;
+
+    // 📋 Failed rows listed with their record number in the import report
+    private final int reportSampleFailures;
 
     @Autowired // 🎯 Spring automatically provides these
-    public DealImportService(DealRepository dealRepository, DealErrorRepository dealErrorRepository) {
-        this.dealRepository = dealRepository;
-        this.dealErrorRepository = dealErrorRepository;
+    public DealImportService(DealValidator dealValidator, DealDeduplicator dealDeduplicator,
+                             DealChunkWriter chunkWriter, DealImportPipeline importPipeline,
+                             ImportWriteScheduler writeScheduler, ImportCheckpointService checkpointService,
+                             DealReaderFactory readerFactory, ImportMetrics importMetrics,
+                             @Value("${fx.import.chunk-size:1000}") int chunkSize,
+                             @Value("${fx.import.pipeline.enabled:true}") boolean pipelineEnabled,
+                             @Value("${fx.import.bulk-load.enabled:false}") boolean bulkLoadEnabled,
+                             @Value("${fx.import.bulk-load.min-file-size:1GB}") DataSize bulkLoadMinFileSize,
+                             @Value("${fx.import.bulk-load.chunk-size:20000}") int bulkLoadChunkSize,
+                             @Value("${fx.import.idempotent.enabled:false}") boolean idempotentEnabled,
+                             @Value("${fx.import.report.sample-failures:20}") int reportSampleFailures) {
+        this.dealValidator = dealValidator;
+        this.dealDeduplicator = dealDeduplicator;
+        this.chunkWriter = chunkWriter;
+        this.importPipeline = importPipeline;
+        this.writeScheduler = writeScheduler;
+        this.checkpointService = checkpointService;
+        this.readerFactory = readerFactory;
+        this.importMetrics = importMetrics;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pipelineEnabled = pipelineEnabled;
+        this.bulkLoadEnabled = bulkLoadEnabled;
+        this.bulkLoadMinFileSize = bulkLoadMinFileSize.toBytes();
+        this.bulkLoadChunkSize = Math.max(1, bulkLoadChunkSize);
+        this.idempotentEnabled = idempotentEnabled;
+        this.reportSampleFailures = reportSampleFailures;
+    }
+
+    //🍳 Process the entire CSV file - one short transaction per chunk, resumable after a crash
+    public ImportCounts importDealsFromCsv(String filePath) {
+        return importDealsFromCsv(filePath, pipelineEnabled, new ImportProgress());
+    }
+
+    public ImportCounts importDealsFromCsv(String filePath, ImportProgress progress) {
+        return importDealsFromCsv(filePath, pipelineEnabled, progress);
+    }
+
+    public ImportCounts importDealsFromCsv(String filePath, boolean parallel) {
+        return importDealsFromCsv(filePath, parallel, new ImportProgress());
+    }
+
+    /**
+     * Process the entire CSV file.
+     *
+     * @param parallel true = staged multi-threaded pipeline, false = everything on the calling thread.
+     *                 Both produce exactly the same deals and errors.
+     * @param progress updated while the import runs (rows committed, bytes read), gets the {@link ImportReport}
+     * @return totals of this run (rows skipped by a resumed checkpoint are not counted)
+     */
+    public ImportCounts importDealsFromCsv(String filePath, boolean parallel, ImportProgress progress) {
+        return importDealsFromCsv(filePath, null, parallel, null, idempotentEnabled, progress);
+    }
+
+    /**
+     * @param fileHash SHA-256 of the file when the caller already computed it (null = hash it while reading)
+     */
+    public ImportCounts importDealsFromCsv(String filePath, String fileHash, ImportProgress progress) {
+        return importDealsFromCsv(filePath, fileHash, pipelineEnabled, null, idempotentEnabled, progress);
+    }
+
+    /**
+     * 🚚 Bulk-load mode for big backfills, whatever the file size: every chunk is loaded into a staging
+     * table in one statement (LOAD DATA LOCAL INFILE on MySQL) and moved into fx_deals and fx_deal_errors
+     * with set-based INSERT ... SELECT. Same deals and errors as {@link #importDealsFromCsv(String)}.
+     */
+    public ImportCounts bulkLoadDealsFromCsv(String filePath) {
+        return importDealsFromCsv(filePath, null, pipelineEnabled, true, idempotentEnabled, new ImportProgress());
+    }
+
+    public ImportCounts bulkLoadDealsFromCsv(String filePath, boolean parallel) {
+        return importDealsFromCsv(filePath, null, parallel, true, idempotentEnabled, new ImportProgress());
+    }
+
+    /**
+     * 🔁 Idempotent import, whatever fx.import.idempotent.enabled says: content that was imported completely
+     * before is skipped without reading a row. Otherwise rows identical to a stored deal are counted as
+     * unchanged instead of being saved as duplicate errors; only a row that has the ID of a stored deal but
+     * other values is rejected, as a conflict. Re-sending a file adds nothing to fx_deal_errors.
+     */
+    public ImportCounts importDealsIdempotently(String filePath) {
+        return importDealsIdempotently(filePath, pipelineEnabled, new ImportProgress());
+    }
+
+    public ImportCounts importDealsIdempotently(String filePath, boolean parallel, ImportProgress progress) {
+        return importDealsFromCsv(filePath, null, parallel, null, true, progress);
     }
 
-    //🍳 Process the entire CSV file
-    @Transactional // 🎯 This is a database operation
-    public void importDealsFromCsv(String filePath) {
+    /**
+     * @param bulkLoad true/false to choose the write mode, null to decide by file size
+     */
+    private ImportCounts importDealsFromCsv(String filePath, String fileHash, boolean parallel, Boolean bulkLoad,
+                                            boolean idempotent, ImportProgress progress) {
         logger.info("Starting CSV import from file: {}", filePath);
 
         Path path = Path.of(filePath);
+        ImportReport report = new ImportReport(path.getFileName().toString(), "file", reportSampleFailures);
+        progress.attach(report);
 
         // 🚫 Check if file exists first
         if (!Files.exists(path)) {
+            report.failed(0, "CSV file not found: " + filePath);
             logger.error("CSV file not found: {}", filePath);
-            System.err.println("❌ CSV file not found: " + filePath);
-            return; // Exit gracefully instead of throwing exception
+            return new ImportCounts(); // Exit gracefully instead of throwing exception
         }
 
-        int successCount = 0;
-        int errorCount = 0;
-
-        try (CSVParser parser = CSVParser.parse(path,
-                java.nio.charset.StandardCharsets.UTF_8,
-                CSVFormat.DEFAULT.withFirstRecordAsHeader().withTrim())) {
-
-            // 📖 Read CSV line by line
-            for (CSVRecord record : parser) {
-                try {
-                    processDealRecord(record);// 🍳 Cook this line(record)
-                    successCount++;
-                } catch (Exception e) {
-                    errorCount++;
-                    logger.error("Failed to process record {}: {}", record.getRecordNumber(), e.getMessage());
-                    // 🚨 Continue cooking other orders even if this one fails!
+        ImportCounts counts;
+        Observation observation = importMetrics.startImport("file", path.getFileName().toString());
+        try (Observation.Scope scope = observation.openScope()) {
+            long fileSize = Files.size(path);
+            progress.start(fileSize);
+            importMetrics.recordFileSize(fileSize);
+            boolean bulk = bulkLoad != null ? bulkLoad : bulkLoadEnabled && fileSize >= bulkLoadMinFileSize;
+
+            int rowsPerChunk = bulk ? bulkLoadChunkSize : chunkSize;
+            // 🔑 Up front only when it is given (jobs hash uploads to spot re-submissions) or needed before the
+            // first row (an idempotent import skips content it imported before) - otherwise hashed while reading
+            String hash = fileHash != null ? fileHash : idempotent ? FileFingerprints.sha256(path) : null;
+
+            // ⏭️ Imported completely before - an idempotent import has nothing to add
+            if (idempotent && checkpointService.isCompleted(hash)) {
+                report.mode(parallel, bulk, true, rowsPerChunk, 0);
+                report.skipped();
+                logger.info("Import report: {}", report);
+                return new ImportCounts();
+            }
+
+            // 🔖 Same content = same checkpoint, so a restarted import skips what was already committed.
+            // Without the hash yet, the same unchanged file (path, size, modification time) is recognised instead.
+            ImportCheckpoint checkpoint = hash != null
+                    ? checkpointService.begin(hash, path.getFileName().toString())
+                    : checkpointService.beginFile(path, path.getFileName().toString());
+            report.mode(parallel, bulk, idempotent, rowsPerChunk, checkpoint.getLastCommittedRecord());
+
+            MessageDigest digest = hash == null ? FileFingerprints.newSha256() : null;
+            String contentHash = hash;
+            try (DealChunkReader chunks = readerFactory.open(path, rowsPerChunk,
+                    checkpoint.getLastCommittedRecord(), progress, digest)) {
+                counts = importChunks(chunks, path.getFileName().toString(), checkpoint, parallel, bulk, idempotent,
+                        progress, observation);
+                if (digest != null) {
+                    contentHash = chunks.contentHash();
                 }
             }
 
+            if (hash != null) {
+                checkpointService.complete(checkpoint);
+            } else {
+                checkpointService.complete(checkpoint, contentHash);
+            }
+
         } catch (IOException e) {
             logger.error("Failed to read CSV file: {}", filePath, e);
+            observation.error(e);
+            finish(report, progress, e);
             throw new RuntimeException("CSV file reading failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            finish(report, progress, e);
+            throw e;
+        } finally {
+            observation.stop();
         }
-
-        logger.info("CSV import completed. Successful: {}, Failed: {}", successCount, errorCount);
-        System.out.println("✅ CSV import completed. Successful: " + successCount + ", Failed: " + errorCount);
+        finish(report, progress, null);
+        return counts;
     }
 
     /**
-     * Process a single deal record with validation and persistence
+     * 🌊 Import a CSV that arrives as a stream (e.g. an HTTP request body) - rows are parsed as the
+     * bytes come in, nothing is written to disk and memory stays at a few chunks whatever the size.
+     * Gzip-compressed content is unpacked on the fly.
+     *
+     * A stream cannot be re-read, so it cannot be resumed: the content hash is computed while
+     * reading and stored in the checkpoint at the end.
+     *
+     * @param contentLength size of the stream in bytes, -1 if unknown (only used for the ETA)
      */
-    private void processDealRecord(CSVRecord record) {
-        // 📋 Get ingredients from CSV
-        String dealUniqueId = record.get("Deal Unique Id");
-        String fromCurrency = record.get("From Currency ISO Code");
-        String toCurrency = record.get("To Currency ISO Code");
-        String timestampStr = record.get("Deal timestamp");
-        String amountStr = record.get("Deal Amount");
-
-        logger.debug("Processing deal: {}", dealUniqueId);
-
-        // 🚀 Step 1: Basic validation - check for empty required fields
-        if (isBlank(dealUniqueId) || isBlank(fromCurrency) || isBlank(toCurrency) ||
-                isBlank(timestampStr) || isBlank(amountStr)) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Missing required fields");
-            return;// 🚫 Stop if missing ingredients
-        }
-
-        // 🚀 Step 2: Check for duplicate deal
-        if (dealRepository.existsByDealUniqueId(dealUniqueId)) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Duplicate deal ID");
-            return;// 🚫 Stop if duplicate
+    public ImportCounts importDealsFromStream(InputStream in, String fileName, long contentLength,
+                                              ImportProgress progress) {
+        logger.info("Starting streamed CSV import: {} ({} bytes)", fileName, contentLength);
+        progress.start(contentLength);
+        ImportReport report = new ImportReport(fileName, "stream", reportSampleFailures);
+        report.mode(pipelineEnabled, false, idempotentEnabled, chunkSize, 0);
+        progress.attach(report);
+
+        ImportCheckpoint checkpoint = checkpointService.beginStream(fileName);
+        MessageDigest digest = FileFingerprints.newSha256();
+        // 🔑 Hash and count the raw bytes exactly as received (compressed or not)
+        InputStream body = new DigestInputStream(new CountingInputStream(in, progress), digest);
+
+        ImportCounts counts;
+        Observation observation = importMetrics.startImport("stream", fileName);
+        try (Observation.Scope scope = observation.openScope();
+             DealChunkReader chunks = readerFactory.open(body, chunkSize)) {
+            counts = importChunks(chunks, fileName, checkpoint, pipelineEnabled, false, idempotentEnabled, progress,
+                    observation);
+            body.transferTo(OutputStream.nullOutputStream()); // Anything after the last record still belongs to the hash
+            importMetrics.recordFileSize(progress.getBytesRead());
+        } catch (IOException e) {
+            logger.error("Failed to read CSV stream: {}", fileName, e);
+            observation.error(e);
+            abandon(checkpoint);
+            finish(report, progress, e);
+            throw new RuntimeException("CSV stream reading failed: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            abandon(checkpoint);
+            finish(report, progress, e);
+            throw e;
+        } finally {
+            observation.stop();
         }
 
-        // 🚀 Step 3: Check if timestamp is valid
-        LocalDateTime dealTimestamp;
-        try {
-            dealTimestamp = LocalDateTime.parse(timestampStr, TIMESTAMP_FORMATTER);
-        } catch (DateTimeParseException e) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Invalid timestamp format. Expected: YYYY-MM-DDTHH:MM:SS");
-            return;// 🚫 Stop if bad timestamp
-        }
+        checkpointService.complete(checkpoint, FileFingerprints.hex(digest));
+        finish(report, progress, null);
+        return counts;
+    }
 
-        // 🚀 Step 4: Check if amount is valid
-        BigDecimal amount;
+    // 🗑️ A failed stream can't be resumed - don't leave its checkpoint behind (the hourly purge catches it otherwise)
+    private void abandon(ImportCheckpoint checkpoint) {
         try {
-            amount = new BigDecimal(amountStr.trim());
-            if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-                saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                        "Deal amount must be greater than 0");
-                return; // 🚫 Stop if amount is zero or negative
-            }
-        } catch (NumberFormatException e) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Invalid amount format");
-            return; // 🚫 Stop if amount is not a number
-        }
-
-        // 🚀 Step 5: Check currency codes
-        if (fromCurrency.trim().length() != 3 || toCurrency.trim().length() != 3) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Currency codes must be exactly 3 characters");
-            return; // 🚫 Stop if bad currency codes
+            checkpointService.abandonStream(checkpoint);
+        } catch (RuntimeException e) {
+            logger.warn("Could not delete the checkpoint of failed stream {}: {}", checkpoint.getFileName(), e.getMessage());
         }
+    }
 
-        // 🚀 Step 6: All checks passed! Save the deal
-        try {
-            Deal deal = new Deal(dealUniqueId, fromCurrency, toCurrency, dealTimestamp, amount);
-            dealRepository.save(deal); // 💾 Save to database
-            logger.info("Successfully saved deal: {}", dealUniqueId);
-        } catch (Exception e) {
-            saveDealError(dealUniqueId, fromCurrency, toCurrency, timestampStr, amountStr,
-                    "Database error: " + e.getMessage());
+    // 📋 Close the report and log it - the one line an import writes about its rows
+    private void finish(ImportReport report, ImportProgress progress, Exception error) {
+        if (error == null) {
+            report.completed(progress.getBytesRead());
+            logger.info("Import report: {}", report);
+        } else {
+            report.failed(progress.getBytesRead(), error.getMessage());
+            logger.warn("Import report: {}", report);
         }
     }
 
-    /**
-     * Save error record for failed deal processing
-     */
-    private void saveDealError(String dealUniqueId, String fromCurrency, String toCurrency,
-                               String timestampStr, String amountStr, String errorReason) {
-        try {
-            LocalDateTime dealTimestamp = null;
-            try {
-                dealTimestamp = LocalDateTime.parse(timestampStr, TIMESTAMP_FORMATTER);
-            } catch (DateTimeParseException e) {
-                // Keep as null if timestamp is invalid
-            }
-
-            DealError error = new DealError(dealUniqueId, fromCurrency, toCurrency,
-                    dealTimestamp, amountStr, errorReason);
-            dealErrorRepository.save(error);
-            logger.warn("Saved deal error: {} - {}", dealUniqueId, errorReason);
-        } catch (Exception e) {
-            logger.error("Failed to save deal error for {}: {}", dealUniqueId, e.getMessage());
+    // 🍳 Run all chunks through the pipeline (or the single-threaded path) and return the totals
+    // 🚦 Claimed IDs and writer slots are shared with the other imports running at the same time
+    private ImportCounts importChunks(DealChunkReader chunks, String fileName, ImportCheckpoint checkpoint,
+                                      boolean parallel, boolean bulkLoad, boolean idempotent, ImportProgress progress,
+                                      Observation observation) {
+        ImportCounts counts;
+        try (DealDeduplicator.Session duplicates = dealDeduplicator.newSession(idempotent, checkpoint);
+             ImportWriteScheduler.Lane writeLane = writeScheduler.openLane(fileName)) {
+            counts = parallel
+                    ? importPipeline.run(chunks, duplicates, writeLane, checkpoint, bulkLoad, progress, observation)
+                    : importSequentially(chunks, duplicates, writeLane, checkpoint, bulkLoad, progress, observation);
+
+            progress.getReport().duplicateCheck(duplicates.getDatabaseLookups(),
+                    duplicates.getSkippedByBloomFilter(), duplicates.getClaimedByOtherImports());
         }
+        return counts;
     }
 
     /**
-     * Helper method to check if string is blank (null or empty)
+     * Single-threaded path: validate, check duplicates and commit one chunk after the other.
      */
-    private boolean isBlank(String str) {
-        return str == null || str.trim().isEmpty();
+    private ImportCounts importSequentially(Iterator<List<DealRow>> chunks, DealDeduplicator.Session duplicates,
+                                            ImportWriteScheduler.Lane writeLane, ImportCheckpoint checkpoint,
+                                            boolean bulkLoad, ImportProgress progress, Observation observation) {
+        ImportCounts counts = new ImportCounts();
+        ImportReport report = progress.getReport();
+        long sequence = 0;
+        while (chunks.hasNext()) {
+            List<DealRow> rows = importMetrics.observeStage(ImportMetrics.PARSE, observation, report, chunks::next);
+
+            List<ValidatedRow> validated = importMetrics.observeStage(ImportMetrics.VALIDATE, observation, report, () -> {
+                List<ValidatedRow> result = new ArrayList<>(rows.size());
+                for (DealRow row : rows) {
+                    result.add(dealValidator.validate(row)); // 🍳 Cook this line(record)
+                }
+                return result;
+            });
+
+            // 🔁 One database round trip answers "does it exist?" for the whole chunk
+            long chunkSequence = sequence++;
+            DealChunk chunk = importMetrics.observeStage(ImportMetrics.DEDUP, observation, report,
+                    () -> duplicates.resolve(chunkSequence, validated));
+            ImportCounts written = importMetrics.observeStage(ImportMetrics.PERSIST, observation, report,
+                    () -> writeLane.write(chunk.sequence(), () -> chunkWriter.write(chunk, checkpoint, bulkLoad, null)));
+            duplicates.committed(chunk.sequence());
+            progress.chunkCommitted(chunk, written);
+            importMetrics.chunkCommitted(written);
+            counts.add(written);
+        }
+        return counts;
     }
-}
\ No newline at end of file
+}
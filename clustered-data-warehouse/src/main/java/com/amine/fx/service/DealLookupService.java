@@ -0,0 +1,73 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealQueryJdbcRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * 🔍 Deal lookups by deal ID, with a bounded in-process cache in front of {@link DealQueryJdbcRepository}
+ * (which asks only the shard the ID hashes to).
+ *
+ * Deals never change once imported, so a cached deal is never stale - entries only leave the cache
+ * when it is full (Caffeine keeps the most frequently read ones) or after the TTL. Freshly committed
+ * deals are put in right away, because reconciliation asks for those first. Unknown IDs are not
+ * cached: the deal may be imported a second later.
+ *
+ * Hits, misses, evictions and size are published as cache.* metrics tagged cache=fx.deals.
+ */
+@Service
+public class DealLookupService {
+
+    private final DealQueryJdbcRepository dealQueryRepository;
+    private final Cache<String, CompactDeal> cache; // 📦 One small object per deal instead of a whole entity
+    private final boolean prewarm;
+
+    public DealLookupService(DealQueryJdbcRepository dealQueryRepository, MeterRegistry meterRegistry,
+                             @Value("${fx.deals.cache.max-size:100000}") long maxSize,
+                             @Value("${fx.deals.cache.ttl:1h}") Duration ttl,
+                             @Value("${fx.deals.cache.prewarm:true}") boolean prewarm) {
+        this.dealQueryRepository = dealQueryRepository;
+        this.prewarm = prewarm;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "fx.deals");
+    }
+
+    /**
+     * 🔍 From the cache, or from the database (and then cached) - empty if no such deal.
+     * The returned entity is a detached copy without its generated id (batch-inserted deals don't know it).
+     */
+    public Optional<Deal> findByDealUniqueId(String dealUniqueId) {
+        CompactDeal deal = cache.get(dealUniqueId,
+                id -> dealQueryRepository.findByDealUniqueId(id).map(CompactDeal::from).orElse(null));
+        return Optional.ofNullable(deal).map(CompactDeal::toDeal);
+    }
+
+    // 🔥 Cache deals that were just committed
+    public void prewarm(Collection<CompactDeal> committedDeals) {
+        if (!prewarm) {
+            return;
+        }
+        for (CompactDeal deal : committedDeals) {
+            cache.put(deal.dealUniqueId(), deal);
+        }
+    }
+
+    // 🧹 Deals were removed from the database (partitions dropped by the retention)
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,300 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealQueryJdbcRepository;
+import com.amine.fx.repository.DealShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 🗄️ Incremental export of fx_deals to Parquet files for analytical jobs, which then read the files
+ * instead of pulling deals from MySQL row by row.
+ *
+ * Files are laid out Hive-style, so Spark, DuckDB or pyarrow read the partition columns from the path and
+ * skip whole directories on filters like deal_date or currency_pair:
+ * <pre>
+ *   {directory}/deal_date=2025-11-13/currency_pair=EUR_USD/run-000042-0007.parquet
+ * </pre>
+ * Each run only exports the deals committed since the previous run: it remembers the highest id it
+ * exported per shard in fx_deal_export_watermarks and reads the ids above it with a primary key range
+ * scan. Before reading, it waits for the chunk transactions that were still open (see
+ * {@link DealCommitTracker}), so a deal whose id is below the new watermark can't commit later and be
+ * missed - however slowly that transaction commits.
+ *
+ * ⚠️ Single instance only: the tracker lives in this JVM. A chunk written by another instance (or any
+ * other process writing fx_deals) can take an id below the new watermark and commit after the run -
+ * that deal is never exported. Enable the export only where the application runs as one instance, the
+ * one that does every import.
+ *
+ * A run writes new files only, named after its run number. The watermark moves once every file of the
+ * run is complete; the files of a run that died before that are deleted by the next run, which exports
+ * the same deals again. Runs on a cron (fx.export.parquet.cron) and on demand, never two at once.
+ */
+@Service
+public class DealParquetExporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealParquetExporter.class);
+
+    private static final Pattern RUN_FILE = Pattern.compile("run-(\\d+)-\\d+\\.parquet");
+    private static final String IN_PROGRESS_SUFFIX = ".tmp";
+
+    private static final String SELECT_WATERMARKS =
+            "SELECT shard_index, last_deal_id, last_run FROM fx_deal_export_watermarks";
+    private static final String UPSERT_WATERMARK =
+            "INSERT INTO fx_deal_export_watermarks (shard_index, last_deal_id, last_run, updated_at) VALUES (?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE last_deal_id = VALUES(last_deal_id), last_run = VALUES(last_run), " +
+                    "updated_at = VALUES(updated_at)";
+
+    private final DealQueryJdbcRepository dealQueryRepository;
+    private final DealShards dealShards;
+    private final DealCommitTracker commitTracker;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Path directory;
+    private final ParquetDealWriter.Compression compression;
+    private final long rowGroupSize;
+    private final int maxOpenFiles;
+
+    private final ReentrantLock running = new ReentrantLock();
+
+    public DealParquetExporter(DealQueryJdbcRepository dealQueryRepository, DealShards dealShards,
+                               DealCommitTracker commitTracker, JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               @Value("${fx.export.parquet.directory:export/deals}") String directory,
+                               @Value("${fx.export.parquet.compression:GZIP}") ParquetDealWriter.Compression compression,
+                               @Value("${fx.export.parquet.row-group-size:16MB}") DataSize rowGroupSize,
+                               @Value("${fx.export.parquet.max-open-files:16}") int maxOpenFiles) {
+        this.dealQueryRepository = dealQueryRepository;
+        this.dealShards = dealShards;
+        this.commitTracker = commitTracker;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.directory = Paths.get(directory);
+        this.compression = compression;
+        this.rowGroupSize = Math.max(1, rowGroupSize.toBytes());
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
+    }
+
+    @Scheduled(cron = "${fx.export.parquet.cron:-}")
+    public void scheduledExport() {
+        try {
+            export();
+        } catch (IllegalStateException e) {
+            logger.warn("Scheduled Parquet export skipped: {}", e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            // Nothing moved - the next run exports the same deals
+            logger.error("Scheduled Parquet export failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 📤 Export every deal committed since the last run.
+     *
+     * @throws IllegalStateException when a run is already going on
+     */
+    public ExportRun export() throws IOException {
+        if (!running.tryLock()) {
+            throw new IllegalStateException("A Parquet export is already running");
+        }
+        try {
+            return runExport();
+        } finally {
+            running.unlock();
+        }
+    }
+
+    private ExportRun runExport() throws IOException {
+        long start = System.nanoTime();
+        Map<Integer, Long> watermarks = new HashMap<>();
+        long[] lastRun = {0};
+        jdbcTemplate.query(SELECT_WATERMARKS, rs -> {
+            watermarks.put(rs.getInt("shard_index"), rs.getLong("last_deal_id"));
+            lastRun[0] = Math.max(lastRun[0], rs.getLong("last_run"));
+        });
+        long runNumber = lastRun[0] + 1;
+        deleteUnfinishedRuns(runNumber);
+
+        // 🚦 Read the highest ids first, then wait for the writes that may still commit ids below them
+        List<DealShards.Shard> shards = dealShards.all();
+        long[] upToIds = new long[shards.size()];
+        for (DealShards.Shard shard : shards) {
+            upToIds[shard.index()] = dealQueryRepository.findMaxId(shard);
+        }
+        try {
+            commitTracker.awaitWritesInFlight();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for open deal writes", e);
+        }
+
+        long exported = 0;
+        int files;
+        try (PartitionFiles partitionFiles = new PartitionFiles(runNumber)) {
+            for (DealShards.Shard shard : shards) {
+                long afterId = watermarks.getOrDefault(shard.index(), 0L);
+                if (upToIds[shard.index()] <= afterId) {
+                    upToIds[shard.index()] = afterId; // Nothing new (or the deals were deleted) - keep the watermark
+                    continue;
+                }
+                try (Stream<Deal> deals = dealQueryRepository.streamIdRange(shard, afterId, upToIds[shard.index()])) {
+                    Iterator<Deal> iterator = deals.iterator();
+                    while (iterator.hasNext()) {
+                        partitionFiles.write(iterator.next());
+                        exported++;
+                    }
+                }
+            }
+            partitionFiles.closeAll();
+            files = partitionFiles.completed;
+        }
+
+        if (exported > 0) {
+            LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (DealShards.Shard shard : shards) {
+                    jdbcTemplate.update(UPSERT_WATERMARK, shard.index(), upToIds[shard.index()], runNumber,
+                            Timestamp.valueOf(now));
+                }
+            });
+        }
+        long durationMillis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Parquet export run {}: {} deals into {} files under {} in {} ms",
+                runNumber, exported, files, directory.toAbsolutePath(), durationMillis);
+        return new ExportRun(exported > 0 ? runNumber : lastRun[0], exported, files, durationMillis);
+    }
+
+    // 🧹 Files of runs that never moved the watermark (and half-written files) would be exported twice
+    private void deleteUnfinishedRuns(long runNumber) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> leftovers;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            leftovers = paths.filter(Files::isRegularFile).filter(path -> {
+                String name = path.getFileName().toString();
+                Matcher run = RUN_FILE.matcher(name);
+                return name.endsWith(IN_PROGRESS_SUFFIX) || (run.matches() && Long.parseLong(run.group(1)) >= runNumber);
+            }).toList();
+        }
+        for (Path leftover : leftovers) {
+            Files.delete(leftover);
+        }
+        if (!leftovers.isEmpty()) {
+            logger.warn("Deleted {} files of an unfinished Parquet export run", leftovers.size());
+        }
+    }
+
+    /**
+     * @param runNumber run whose files hold the deals (the last run when nothing was new)
+     */
+    public record ExportRun(long runNumber, long deals, int files, long durationMillis) {
+    }
+
+    /**
+     * 📂 The open file of each (date, currency pair) partition. Only maxOpenFiles stay open - each holds up to
+     * a row group (row-group-size bytes) in memory - so the least recently written one is finished when another partition shows
+     * up; deals of that partition that come later go into a new file.
+     */
+    private final class PartitionFiles implements AutoCloseable {
+
+        private final long runNumber;
+        private final LinkedHashMap<String, OpenFile> open = new LinkedHashMap<>(16, 0.75f, true);
+        private int sequence;
+        private int completed;
+
+        private PartitionFiles(long runNumber) {
+            this.runNumber = runNumber;
+        }
+
+        void write(Deal deal) throws IOException {
+            LocalDate date = deal.getDealTimestamp().toLocalDate();
+            String key = "deal_date=" + date + "/currency_pair=" + pathSafe(deal.getFromCurrency()) + "_"
+                    + pathSafe(deal.getToCurrency());
+            OpenFile file = open.get(key);
+            if (file == null) {
+                if (open.size() == maxOpenFiles) {
+                    Iterator<OpenFile> eldest = open.values().iterator();
+                    eldest.next().finish();
+                    eldest.remove();
+                }
+                file = new OpenFile(directory.resolve(key), "run-%06d-%04d.parquet".formatted(runNumber, ++sequence));
+                open.put(key, file);
+            }
+            file.writer.write(deal);
+        }
+
+        void closeAll() throws IOException {
+            Iterator<OpenFile> files = open.values().iterator();
+            while (files.hasNext()) {
+                files.next().finish();
+                files.remove();
+            }
+        }
+
+        // 💥 Only reached with files still open when the run failed - drop the half-written ones
+        @Override
+        public void close() {
+            for (OpenFile file : open.values()) {
+                try {
+                    file.writer.close();
+                    Files.deleteIfExists(file.inProgress);
+                } catch (IOException e) {
+                    logger.warn("Could not remove unfinished export file {}: {}", file.inProgress, e.getMessage());
+                }
+            }
+            open.clear();
+        }
+
+        // Currency codes are 3 characters, but not necessarily letters
+        private static String pathSafe(String currency) {
+            return currency.replaceAll("[^A-Za-z0-9]", "-");
+        }
+
+        private final class OpenFile {
+
+            private final Path inProgress;
+            private final Path target;
+            private final ParquetDealWriter writer;
+
+            private OpenFile(Path partition, String name) throws IOException {
+                Files.createDirectories(partition);
+                this.target = partition.resolve(name);
+                this.inProgress = partition.resolve("." + name + IN_PROGRESS_SUFFIX); // Hidden from Spark and *.parquet globs
+                this.writer = new ParquetDealWriter(inProgress, compression, rowGroupSize);
+            }
+
+            // ✅ Footer written - only now the file appears under its real name
+            void finish() throws IOException {
+                writer.close();
+                Files.move(inProgress, target, StandardCopyOption.ATOMIC_MOVE);
+                completed++;
+            }
+        }
+    }
+}
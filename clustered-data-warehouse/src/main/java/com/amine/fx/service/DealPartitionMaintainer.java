@@ -0,0 +1,256 @@
+package com.amine.fx.service;
+
+import com.amine.fx.repository.DealShards;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 📅 Keeps the partitions of fx_deals (range-partitioned by deal_timestamp, see db/migration/mysql) ahead of time.
+ *
+ * fx_deals always ends with a catch-all partition p_future. On startup and every night this splits dated
+ * partitions (one per month or per day) off p_future until the configured number of future periods exists,
+ * so new deals never pile up in p_future. The first run starts at the oldest deal already in p_future (or at
+ * fx.deals.partitions.start when that is earlier), so history loaded before it gets its own partitions
+ * too instead of landing in one partition that pruning and retention can't split. With a retention set, partitions that ended more than that many
+ * periods ago are dropped - a DROP PARTITION is instant, unlike a DELETE - and their IDs are released
+ * from fx_deal_keys.
+ *
+ * Runs on every shard of {@link DealShards} (just the primary datasource when not sharded), and only on
+ * MySQL; the H2 test schema is not partitioned.
+ */
+@Component
+public class DealPartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealPartitionMaintainer.class);
+
+    private static final String FUTURE_PARTITION = "p_future";
+    private static final int KEY_DELETE_BATCH = 10_000;
+    private static final int MAX_PARTITIONS = 8192; // MySQL limit per table
+
+    public enum Granularity {
+        MONTHLY(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("'p'yyyyMM")),
+        DAILY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("'p'yyyyMMdd"));
+
+        private final ChronoUnit unit;
+        private final DateTimeFormatter partitionName;
+
+        Granularity(ChronoUnit unit, DateTimeFormatter partitionName) {
+            this.unit = unit;
+            this.partitionName = partitionName;
+        }
+
+        // Start of the period this time falls into
+        LocalDateTime periodStart(LocalDateTime time) {
+            LocalDateTime day = time.truncatedTo(ChronoUnit.DAYS);
+            return this == MONTHLY ? day.withDayOfMonth(1) : day;
+        }
+
+        LocalDateTime plus(LocalDateTime periodStart, long periods) {
+            return periodStart.plus(periods, unit);
+        }
+
+        String partitionName(LocalDateTime periodStart) {
+            return partitionName.format(periodStart);
+        }
+    }
+
+    private final DealShards dealShards;
+    private final DealLookupService dealLookupService;
+
+    private final boolean enabled;
+    private final Granularity granularity;
+    private final int createAhead;
+    private final int retention;
+    private final LocalDateTime start; // null = from the oldest deal
+
+    public DealPartitionMaintainer(DealShards dealShards, DealLookupService dealLookupService,
+                                   @Value("${fx.deals.partitions.enabled:true}") boolean enabled,
+                                   @Value("${fx.deals.partitions.granularity:MONTHLY}") Granularity granularity,
+                                   @Value("${fx.deals.partitions.create-ahead:3}") int createAhead,
+                                   @Value("${fx.deals.partitions.retention:0}") int retention,
+                                   @Value("${fx.deals.partitions.start:}") String start) {
+        this.dealShards = dealShards;
+        this.dealLookupService = dealLookupService;
+        this.enabled = enabled;
+        this.granularity = granularity;
+        this.createAhead = Math.max(1, createAhead);
+        this.retention = Math.max(0, retention);
+        this.start = start.isBlank() ? null : LocalDate.parse(start.trim()).atStartOfDay();
+    }
+
+    // 🚀 Before the first import of this run (ApplicationStartedEvent comes before the CommandLineRunners)
+    @EventListener(ApplicationStartedEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${fx.deals.partitions.cron:0 30 0 * * *}")
+    public void maintain() {
+        if (!enabled) {
+            return;
+        }
+        for (DealShards.Shard shard : dealShards.all()) {
+            maintain(shard.jdbcTemplate(), shard.name());
+        }
+    }
+
+    private void maintain(JdbcTemplate jdbcTemplate, String shard) {
+        if (!isMySql(jdbcTemplate)) {
+            return;
+        }
+        try {
+            List<Partition> partitions = partitions(jdbcTemplate);
+            if (partitions.isEmpty()) {
+                logger.warn("fx_deals is not partitioned on {} - skipping partition maintenance", shard);
+                return;
+            }
+            createFuturePartitions(jdbcTemplate, partitions);
+            if (retention > 0) {
+                dropExpiredPartitions(jdbcTemplate, partitions);
+            }
+        } catch (RuntimeException e) {
+            // Next run tries again; p_future still takes every deal meanwhile
+            logger.error("fx_deals partition maintenance failed on {}: {}", shard, e.getMessage(), e);
+        }
+    }
+
+    // ➕ Split dated partitions off p_future until createAhead periods after the current one exist
+    private void createFuturePartitions(JdbcTemplate jdbcTemplate, List<Partition> partitions) {
+        // Deals already in p_future - on the first run, everything imported before partitioning was maintained
+        LocalDateTime oldestDeal = jdbcTemplate.queryForObject(
+                "SELECT MIN(deal_timestamp) FROM fx_deals PARTITION (" + FUTURE_PARTITION + ")", LocalDateTime.class);
+        List<String> definitions = newPartitions(partitions, oldestDeal, now());
+        if (definitions.isEmpty()) {
+            return;
+        }
+        if (partitions.size() + definitions.size() > MAX_PARTITIONS) {
+            throw new IllegalStateException("Splitting p_future would need " + definitions.size() + " new " + granularity
+                    + " partitions - more than MySQL allows. Use MONTHLY or a later fx.deals.partitions.start");
+        }
+
+        jdbcTemplate.execute("ALTER TABLE fx_deals REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + String.join(", ", definitions) + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+        logger.info("Created {} fx_deals partitions ({} up to {})", definitions.size(),
+                definitions.get(0), definitions.get(definitions.size() - 1));
+    }
+
+    /**
+     * Partitions to split off p_future: one per period from the oldest deal in it (or the configured start,
+     * whichever is earlier) up to createAhead periods after the current one.
+     *
+     * @param oldestDeal oldest deal_timestamp in p_future, null when it is empty
+     * @return partition definitions in bound order, empty when the existing ones reach far enough
+     */
+    List<String> newPartitions(List<Partition> partitions, LocalDateTime oldestDeal, LocalDateTime now) {
+        LocalDateTime currentPeriod = granularity.periodStart(now);
+        LocalDateTime target = granularity.plus(currentPeriod, createAhead + 1L);
+
+        LocalDateTime lastBound = partitions.stream()
+                .map(Partition::upperBound)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(LocalDateTime.MIN);
+        if (!lastBound.isBefore(target)) {
+            return List.of();
+        }
+
+        LocalDateTime first = currentPeriod;
+        for (LocalDateTime candidate : new LocalDateTime[]{oldestDeal, start}) {
+            if (candidate != null && candidate.isBefore(first)) {
+                first = candidate;
+            }
+        }
+        // Never below the last existing bound; the first new partition also takes anything from there to its start
+        LocalDateTime period = granularity.periodStart(first.isBefore(lastBound) ? lastBound : first);
+
+        List<String> definitions = new ArrayList<>();
+        while (period.isBefore(target)) {
+            LocalDateTime bound = granularity.plus(period, 1);
+            definitions.add("PARTITION " + granularity.partitionName(period) + " VALUES LESS THAN ('" + format(bound) + "')");
+            period = bound;
+        }
+        return definitions;
+    }
+
+    // 🗑️ Drop partitions whose whole range is older than the retention, then release their IDs
+    private void dropExpiredPartitions(JdbcTemplate jdbcTemplate, List<Partition> partitions) {
+        LocalDateTime cutoff = granularity.plus(granularity.periodStart(now()), -retention);
+
+        List<String> expired = new ArrayList<>();
+        LocalDateTime droppedUpTo = null;
+        for (Partition partition : partitions) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                expired.add(partition.name());
+                droppedUpTo = partition.upperBound();
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+
+        jdbcTemplate.execute("ALTER TABLE fx_deals DROP PARTITION " + String.join(", ", expired));
+        dealLookupService.invalidateAll(); // Don't keep serving the dropped deals from memory
+        // Small batches keep the transactions (and locks) on fx_deal_keys short
+        long released = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update("DELETE FROM fx_deal_keys WHERE deal_timestamp < ? LIMIT " + KEY_DELETE_BATCH,
+                    format(droppedUpTo)); // Same literal as the partition bound, no time zone conversion
+            released += deleted;
+        } while (deleted == KEY_DELETE_BATCH);
+        logger.info("Dropped expired fx_deals partitions {} (deals before {}), released {} deal IDs",
+                expired, format(droppedUpTo), released);
+    }
+
+    // 🕒 Deal timestamps are stored as UTC wall-clock time (hibernate.jdbc.time_zone=UTC)
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+
+    private List<Partition> partitions(JdbcTemplate jdbcTemplate) {
+        return jdbcTemplate.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS " +
+                        "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'fx_deals' AND PARTITION_NAME IS NOT NULL " +
+                        "ORDER BY PARTITION_ORDINAL_POSITION",
+                (rs, rowNum) -> new Partition(rs.getString(1), parseBound(rs.getString(2))));
+    }
+
+    // 📏 "'2025-12-01 00:00:00'" -> 2025-12-01T00:00, MAXVALUE -> null
+    static LocalDateTime parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        return LocalDateTime.parse(description.replace("'", "").trim().replace(' ', 'T'));
+    }
+
+    private static String format(LocalDateTime time) {
+        return time.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+    }
+
+    private boolean isMySql(JdbcTemplate jdbcTemplate) {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+
+    /**
+     * @param upperBound exclusive upper bound, null for MAXVALUE
+     */
+    record Partition(String name, LocalDateTime upperBound) {
+    }
+}
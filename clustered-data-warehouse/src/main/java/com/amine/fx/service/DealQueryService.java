@@ -0,0 +1,154 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealFilter;
+import com.amine.fx.repository.DealQueryJdbcRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 🔎 Reads deals back out: one page at a time for the UI/API, or everything as a stream for exports.
+ *
+ * Pages are chained with an opaque cursor (the (deal_timestamp, id) of the last deal, base64url-encoded),
+ * so a client never sees skipped or repeated deals while new ones are being imported.
+ * Exports write each deal to the response as soon as it is read - memory stays flat whatever the size.
+ */
+@Service
+public class DealQueryService {
+
+    // 📋 Same columns as the import files, so an export can be imported again
+    static final String[] CSV_HEADER = {
+            "Deal Unique Id", "From Currency ISO Code", "To Currency ISO Code", "Deal timestamp", "Deal Amount"};
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    public enum ExportFormat { NDJSON, CSV }
+
+    private final DealQueryJdbcRepository dealQueryRepository;
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final int maxPageSize;
+
+    public DealQueryService(DealQueryJdbcRepository dealQueryRepository,
+                            @Value("${fx.query.max-page-size:1000}") int maxPageSize) {
+        this.dealQueryRepository = dealQueryRepository;
+        this.maxPageSize = Math.max(1, maxPageSize);
+    }
+
+    /**
+     * 📄 One page of deals after the given cursor.
+     *
+     * @param cursor nextCursor of the previous page, null for the first page
+     * @throws IllegalArgumentException if the cursor was not produced by this service
+     */
+    public DealPage findDeals(DealFilter filter, Integer limit, String cursor) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(1, limit), maxPageSize);
+
+        LocalDateTime afterTimestamp = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            String[] position = decodeCursor(cursor);
+            afterTimestamp = LocalDateTime.parse(position[0]);
+            afterId = Long.parseLong(position[1]);
+        }
+
+        // 🔭 One extra row tells whether there is a next page without a COUNT(*)
+        List<Deal> deals = dealQueryRepository.findPage(filter, afterTimestamp, afterId, pageSize + 1);
+        String nextCursor = null;
+        if (deals.size() > pageSize) {
+            deals = deals.subList(0, pageSize);
+            Deal last = deals.get(pageSize - 1);
+            nextCursor = encodeCursor(last.getDealTimestamp(), last.getId());
+        }
+        return new DealPage(deals, nextCursor);
+    }
+
+    /**
+     * 📤 Write every matching deal to the output, in (deal_timestamp, id) order.
+     *
+     * @return number of deals written
+     */
+    public long export(DealFilter filter, ExportFormat format, OutputStream output) throws IOException {
+        try (Stream<Deal> deals = dealQueryRepository.stream(filter)) {
+            return format == ExportFormat.CSV ? writeCsv(deals.iterator(), output) : writeNdjson(deals.iterator(), output);
+        }
+    }
+
+    // 🧾 One JSON object per line - the generator writes straight to the stream, no Deal -> Map -> String
+    private long writeNdjson(Iterator<Deal> deals, OutputStream output) throws IOException {
+        long count = 0;
+        try (JsonGenerator json = jsonFactory.createGenerator(output, JsonEncoding.UTF8)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+            while (deals.hasNext()) {
+                Deal deal = deals.next();
+                json.writeStartObject();
+                json.writeNumberField("id", deal.getId());
+                json.writeStringField("dealUniqueId", deal.getDealUniqueId());
+                json.writeStringField("fromCurrency", deal.getFromCurrency());
+                json.writeStringField("toCurrency", deal.getToCurrency());
+                json.writeStringField("dealTimestamp", deal.getDealTimestamp().toString());
+                json.writeNumberField("amount", deal.getAmount());
+                json.writeEndObject();
+                json.writeRaw('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private long writeCsv(Iterator<Deal> deals, OutputStream output) throws IOException {
+        long count = 0;
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8), 64 * 1024);
+        CSVPrinter csv = new CSVPrinter(writer, CSVFormat.DEFAULT.builder().setHeader(CSV_HEADER).build());
+        while (deals.hasNext()) {
+            Deal deal = deals.next();
+            csv.printRecord(deal.getDealUniqueId(), deal.getFromCurrency(), deal.getToCurrency(),
+                    deal.getDealTimestamp(), deal.getAmount().toPlainString());
+            count++;
+        }
+        csv.flush(); // Not close() - the servlet container owns the response stream
+        return count;
+    }
+
+    static String encodeCursor(LocalDateTime timestamp, long id) {
+        String position = timestamp + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decodeCursor(String cursor) {
+        try {
+            String[] position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            if (position.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+            LocalDateTime.parse(position[0]);
+            Long.parseLong(position[1]);
+            return position;
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor, e);
+        }
+    }
+
+    /**
+     * @param nextCursor pass as ?cursor= to get the next page, null on the last page
+     */
+    public record DealPage(List<Deal> deals, String nextCursor) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.amine.fx.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+
+/**
+ * 📖 Picks how a CSV is read: memory-mapped and parsed in parallel for big local files,
+ * the byte-level parser for everything else, or plain commons-csv when the fast parser is switched off.
+ */
+@Component
+public class DealReaderFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealReaderFactory.class);
+
+    // ⚡ Byte-level CSV parser for the deals format (commons-csv still handles quoted input)
+    private final boolean fastParserEnabled;
+
+    // 🗺️ Memory-mapped, parallel parsing of local files from this size on
+    private final boolean mappedParserEnabled;
+    private final long mappedParserMinFileSize;
+    private final int mappedParserSegmentSize;
+    private final int mappedParserThreads;
+
+    public DealReaderFactory(@Value("${fx.import.fast-parser.enabled:true}") boolean fastParserEnabled,
+                             @Value("${fx.import.mapped-parser.enabled:true}") boolean mappedParserEnabled,
+                             @Value("${fx.import.mapped-parser.min-file-size:256MB}") DataSize mappedParserMinFileSize,
+                             @Value("${fx.import.mapped-parser.segment-size:4MB}") DataSize mappedParserSegmentSize,
+                             @Value("${fx.import.mapped-parser.threads:0}") int mappedParserThreads) {
+        this.fastParserEnabled = fastParserEnabled;
+        this.mappedParserEnabled = mappedParserEnabled;
+        this.mappedParserMinFileSize = mappedParserMinFileSize.toBytes();
+        this.mappedParserSegmentSize = (int) Math.min(Integer.MAX_VALUE / 2, mappedParserSegmentSize.toBytes());
+        this.mappedParserThreads = mappedParserThreads > 0
+                ? mappedParserThreads
+                : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Open a local file, resuming after the given record.
+     */
+    public DealChunkReader open(Path path, int chunkSize, long resumeAfter, ImportProgress progress) throws IOException {
+        return open(path, chunkSize, resumeAfter, progress, null);
+    }
+
+    /**
+     * @param digest hashes the file while it is read - see {@link DealChunkReader#contentHash()} (null = don't hash)
+     */
+    public DealChunkReader open(Path path, int chunkSize, long resumeAfter, ImportProgress progress,
+                                MessageDigest digest) throws IOException {
+        if (fastParserEnabled && mappedParserEnabled && Files.size(path) >= mappedParserMinFileSize
+                && !DealChunkReader.isGzip(path)) {
+            logger.info("Parsing {} memory-mapped on {} threads", path.getFileName(), mappedParserThreads);
+            return DealChunkReader.openMapped(path, chunkSize, resumeAfter, mappedParserSegmentSize,
+                    mappedParserThreads, progress, digest);
+        }
+        return DealChunkReader.open(path, chunkSize, resumeAfter, fastParserEnabled, progress, digest);
+    }
+
+    // 🌊 Streams can only be read front to back
+    public DealChunkReader open(InputStream in, int chunkSize) throws IOException {
+        return DealChunkReader.open(in, chunkSize, 0, fastParserEnabled);
+    }
+}
@@ -0,0 +1,131 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.CurrencyCodes;
+import com.amine.fx.model.DealRollup;
+import com.amine.fx.repository.DealRollupJdbcRepository;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 📈 Count, sum, min and max of the deal amounts per currency pair and day (fx_deal_rollups).
+ *
+ * Each import chunk folds its inserted deals into a handful of rollup rows in memory (summing the
+ * scaled longs of {@link CompactDeal}, no BigDecimal per deal) and adds them in the chunk's own
+ * transaction - the rollups never count a deal that was rolled back, and reading them costs the
+ * same whether fx_deals holds a thousand deals or a billion.
+ */
+@Service
+public class DealRollupService {
+
+    // 🔒 Lock order of the upserts - the same for every chunk, so concurrent imports can't deadlock
+    private static final Comparator<DealRollup> KEY_ORDER = Comparator
+            .comparing(DealRollup::fromCurrency)
+            .thenComparing(DealRollup::toCurrency)
+            .thenComparing(DealRollup::dealDate);
+
+    private final DealRollupJdbcRepository dealRollupRepository;
+
+    public DealRollupService(DealRollupJdbcRepository dealRollupRepository) {
+        this.dealRollupRepository = dealRollupRepository;
+    }
+
+    /**
+     * ➕ Add freshly inserted deals to the rollups - call inside the transaction that inserted them.
+     */
+    public void addDeals(Collection<CompactDeal> deals) {
+        dealRollupRepository.add(rollUp(deals));
+    }
+
+    // 🧮 One rollup per pair and day, sorted by key. Deal timestamps are UTC wall-clock time
+    static List<DealRollup> rollUp(Collection<CompactDeal> deals) {
+        Map<PairDay, Totals> totals = new HashMap<>();
+        for (CompactDeal deal : deals) {
+            totals.computeIfAbsent(new PairDay(deal.fromCurrencyCode(), deal.toCurrencyCode(), deal.epochDay()),
+                    key -> new Totals()).add(deal);
+        }
+        List<DealRollup> rollups = new ArrayList<>(totals.size());
+        totals.forEach((key, total) -> rollups.add(total.toRollup(key)));
+        rollups.sort(KEY_ORDER);
+        return rollups;
+    }
+
+    /**
+     * 🔎 Rollups per pair and day, ordered by pair then day. Every filter is optional.
+     *
+     * @param startDate inclusive
+     * @param endDate   exclusive
+     */
+    public List<DealRollup> findRollups(String fromCurrency, String toCurrency, LocalDate startDate, LocalDate endDate) {
+        return dealRollupRepository.find(fromCurrency, toCurrency, startDate, endDate);
+    }
+
+    private record PairDay(int fromCurrencyCode, int toCurrencyCode, long epochDay) {
+    }
+
+    // 🔢 Sums the scaled longs of the chunk; BigDecimal only for amounts (or sums) that don't fit one
+    private static class Totals {
+
+        private long count;
+        private long scaledSum;
+        private long scaledMin = Long.MAX_VALUE;
+        private long scaledMax = Long.MIN_VALUE;
+        private BigDecimal exactSum = BigDecimal.ZERO; // Whatever didn't fit scaledSum
+        private BigDecimal exactMin;
+        private BigDecimal exactMax;
+
+        void add(CompactDeal deal) {
+            count++;
+            if (deal.amountExact() == null) {
+                long amount = deal.amountScaled();
+                scaledMin = Math.min(scaledMin, amount);
+                scaledMax = Math.max(scaledMax, amount);
+                long sum = scaledSum + amount;
+                if (((scaledSum ^ sum) & (amount ^ sum)) < 0) { // Overflow
+                    exactSum = exactSum.add(BigDecimal.valueOf(scaledSum, CompactDeal.AMOUNT_SCALE));
+                    sum = amount;
+                }
+                scaledSum = sum;
+            } else {
+                BigDecimal amount = deal.amountExact();
+                exactSum = exactSum.add(amount);
+                exactMin = exactMin == null ? amount : exactMin.min(amount);
+                exactMax = exactMax == null ? amount : exactMax.max(amount);
+            }
+        }
+
+        DealRollup toRollup(PairDay key) {
+            BigDecimal total = exactSum.add(BigDecimal.valueOf(scaledSum, CompactDeal.AMOUNT_SCALE));
+            BigDecimal min = exactMin;
+            BigDecimal max = exactMax;
+            if (scaledMin <= scaledMax) { // At least one scaled amount
+                BigDecimal scaledMinAmount = BigDecimal.valueOf(scaledMin, CompactDeal.AMOUNT_SCALE);
+                BigDecimal scaledMaxAmount = BigDecimal.valueOf(scaledMax, CompactDeal.AMOUNT_SCALE);
+                min = min == null ? scaledMinAmount : min.min(scaledMinAmount);
+                max = max == null ? scaledMaxAmount : max.max(scaledMaxAmount);
+            }
+            return new DealRollup(CurrencyCodes.text(key.fromCurrencyCode()), CurrencyCodes.text(key.toCurrencyCode()),
+                    LocalDate.ofEpochDay(key.epochDay()), count, total, min, max);
+        }
+    }
+
+    /**
+     * 📊 The daily rollups of each pair added up over the whole range (dealDate = first day with deals).
+     */
+    public List<DealRollup> totalsPerPair(List<DealRollup> dailyRollups) {
+        Map<String, DealRollup> totals = new LinkedHashMap<>();
+        for (DealRollup rollup : dailyRollups) {
+            totals.merge(rollup.fromCurrency() + "/" + rollup.toCurrency(), rollup, DealRollup::plus);
+        }
+        return new ArrayList<>(totals.values());
+    }
+}
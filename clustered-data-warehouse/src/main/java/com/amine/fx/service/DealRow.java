@@ -0,0 +1,157 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import org.apache.commons.csv.CSVRecord;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * One raw line of the deals CSV, exactly as it was read (before any validation).
+ * Values are already trimmed by the reader. Missing columns (short or irregular lines) come through as null.
+ *
+ * Rows from the fast byte parser ({@link DealRowDecoder}) also carry the timestamp and amount already
+ * decoded, as plain longs; their text is only turned into a String when somebody asks for it (e.g. for an error record).
+ */
+public final class DealRow {
+
+    // 📋 CSV header names
+    public static final String DEAL_UNIQUE_ID = "Deal Unique Id";
+    public static final String FROM_CURRENCY = "From Currency ISO Code";
+    public static final String TO_CURRENCY = "To Currency ISO Code";
+    public static final String DEAL_TIMESTAMP = "Deal timestamp";
+    public static final String DEAL_AMOUNT = "Deal Amount";
+
+    private final long recordNumber;
+    private final String dealUniqueId;
+    private final String fromCurrency;
+    private final String toCurrency;
+
+    // 🚫 Marks a value the fast parser did not decode (the validator parses the text instead)
+    public static final long NOT_DECODED = Long.MIN_VALUE;
+
+    // ⚡ Decoded by the fast parser: UTC epoch seconds, and amount * 10^4 (see CompactDeal)
+    private final long decodedEpochSecond;
+    private final long decodedAmountScaled;
+
+    // 📦 Where the raw text lives in the reader's buffer (length -1 = column missing)
+    private final byte[] source;
+    private final int timestampOffset;
+    private final int timestampLength;
+    private final int amountOffset;
+    private final int amountLength;
+
+    // Filled on first access - a race only means decoding the same bytes twice
+    private String timestamp;
+    private String amount;
+
+    public DealRow(long recordNumber, String dealUniqueId, String fromCurrency, String toCurrency,
+                   String timestamp, String amount) {
+        this(recordNumber, dealUniqueId, fromCurrency, toCurrency, NOT_DECODED, NOT_DECODED, null, -1, -1, -1, -1);
+        this.timestamp = timestamp;
+        this.amount = amount;
+    }
+
+    DealRow(long recordNumber, String dealUniqueId, String fromCurrency, String toCurrency,
+            long decodedEpochSecond, long decodedAmountScaled, byte[] source,
+            int timestampOffset, int timestampLength, int amountOffset, int amountLength) {
+        this.recordNumber = recordNumber;
+        this.dealUniqueId = dealUniqueId;
+        this.fromCurrency = fromCurrency;
+        this.toCurrency = toCurrency;
+        this.decodedEpochSecond = decodedEpochSecond;
+        this.decodedAmountScaled = decodedAmountScaled;
+        this.source = source;
+        this.timestampOffset = timestampOffset;
+        this.timestampLength = timestampLength;
+        this.amountOffset = amountOffset;
+        this.amountLength = amountLength;
+    }
+
+    public static DealRow from(CSVRecord record) {
+        return from(record, 0);
+    }
+
+    // 🔢 recordOffset = records read before this parser started (when the fast parser handed over mid-file)
+    public static DealRow from(CSVRecord record, long recordOffset) {
+        return new DealRow(record.getRecordNumber() + recordOffset,
+                get(record, DEAL_UNIQUE_ID),
+                get(record, FROM_CURRENCY),
+                get(record, TO_CURRENCY),
+                get(record, DEAL_TIMESTAMP),
+                get(record, DEAL_AMOUNT));
+    }
+
+    private static String get(CSVRecord record, String column) {
+        return record.isSet(column) ? record.get(column) : null;
+    }
+
+    public long recordNumber() {
+        return recordNumber;
+    }
+
+    public String dealUniqueId() {
+        return dealUniqueId;
+    }
+
+    public String fromCurrency() {
+        return fromCurrency;
+    }
+
+    public String toCurrency() {
+        return toCurrency;
+    }
+
+    public String timestamp() {
+        if (timestamp == null && timestampLength >= 0) {
+            timestamp = new String(source, timestampOffset, timestampLength, StandardCharsets.UTF_8);
+        }
+        return timestamp;
+    }
+
+    public String amount() {
+        if (amount == null && amountLength >= 0) {
+            amount = new String(source, amountOffset, amountLength, StandardCharsets.UTF_8);
+        }
+        return amount;
+    }
+
+    public boolean hasDecodedTimestamp() {
+        return decodedEpochSecond != NOT_DECODED;
+    }
+
+    public long decodedEpochSecond() {
+        return decodedEpochSecond;
+    }
+
+    public boolean hasDecodedAmount() {
+        return decodedAmountScaled != NOT_DECODED;
+    }
+
+    public long decodedAmountScaled() {
+        return decodedAmountScaled;
+    }
+
+    // Decoded timestamp as an object (null if not decoded) - only for error records
+    public LocalDateTime decodedTimestamp() {
+        return hasDecodedTimestamp() ? LocalDateTime.ofEpochSecond(decodedEpochSecond, 0, ZoneOffset.UTC) : null;
+    }
+
+    public BigDecimal decodedAmount() {
+        return hasDecodedAmount() ? BigDecimal.valueOf(decodedAmountScaled, CompactDeal.AMOUNT_SCALE) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "DealRow{" +
+                "recordNumber=" + recordNumber +
+                ", dealUniqueId='" + dealUniqueId + '\'' +
+                ", fromCurrency='" + fromCurrency + '\'' +
+                ", toCurrency='" + toCurrency + '\'' +
+                ", timestamp='" + timestamp() + '\'' +
+                ", amount='" + amount() + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,449 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.CurrencyCodes;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * ⚡ Fast parser for the 5-column deals CSV. It works on the raw bytes: header positions are resolved
+ * once, currency codes come from {@link CurrencyCodes}, and timestamps and amounts are decoded straight
+ * from the bytes - no CSVRecord and no String per field.
+ *
+ * It reads exactly like {@link #CSV_FORMAT} (first record as header, trimmed values). Anything it does
+ * not handle itself (a quote character, an unusual header) is handed to commons-csv, which then reads
+ * the rest of the input starting at that record.
+ */
+final class DealRowDecoder implements Iterator<DealRow>, Closeable {
+
+    // 📄 The deals CSV as commons-csv reads it - also what the commons-csv parser of DealChunkReader uses
+    static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader()
+            .setSkipHeaderRecord(true)
+            .setTrim(true)
+            .build();
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final String[] COLUMNS = {
+            DealRow.DEAL_UNIQUE_ID, DealRow.FROM_CURRENCY, DealRow.TO_CURRENCY,
+            DealRow.DEAL_TIMESTAMP, DealRow.DEAL_AMOUNT};
+    private static final int ID = 0;
+    private static final int FROM = 1;
+    private static final int TO = 2;
+    private static final int TIMESTAMP = 3;
+    private static final int AMOUNT = 4;
+
+    private final InputStream in;
+
+    // 📦 Rows keep pointing into the buffer they were read from, so a full buffer is never reused - a new one is started
+    private byte[] buffer = new byte[BLOCK_SIZE];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    // ✂️ Current record: where it starts and its trimmed fields
+    private int recordStart;
+    private int fieldCount;
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private boolean recordHasQuote;
+
+    private String[] headerNames;
+    private final int[] columnPositions = new int[COLUMNS.length]; // -1 = column not in the header
+    private long recordNumber;
+
+    // 🐢 commons-csv takes over from here once the input needs it
+    private CSVParser fallbackParser;
+    private Iterator<CSVRecord> fallbackRecords;
+    private long fallbackOffset;
+
+    private DealRow next;
+
+    DealRowDecoder(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Continue a file whose header was already read elsewhere.
+     *
+     * @param recordsBefore records that come before this input in the file, so record numbers carry on
+     */
+    DealRowDecoder(InputStream in, String[] headerNames, long recordsBefore) {
+        this.in = in;
+        this.recordNumber = recordsBefore;
+        if (headerNames != null) {
+            useHeader(headerNames);
+        }
+    }
+
+    /**
+     * Parse the records in bytes [from, to) of an in-memory segment. The rows point into {@code bytes}.
+     * Without header names, the first record of the segment is read as the header.
+     */
+    DealRowDecoder(byte[] bytes, int from, int to, String[] headerNames, long recordsBefore) {
+        this(InputStream.nullInputStream(), headerNames, recordsBefore);
+        this.buffer = bytes;
+        this.position = from;
+        this.limit = to;
+        this.endOfInput = true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = readRow();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public DealRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        DealRow row = next;
+        next = null;
+        return row;
+    }
+
+    // Next data row, or null at the end of the input
+    private DealRow readRow() throws IOException {
+        if (headerNames == null && fallbackRecords == null && !readHeader()) {
+            return null;
+        }
+        if (fallbackRecords == null && readRecord() && recordHasQuote) {
+            switchToCommonsCsv(CSV_FORMAT.builder().setHeader(headerNames).setSkipHeaderRecord(false).build());
+            fallbackOffset = recordNumber;
+        }
+        if (fallbackRecords != null) {
+            return fallbackRecords.hasNext() ? DealRow.from(fallbackRecords.next(), fallbackOffset) : null;
+        }
+        if (fieldCount == 0) {
+            return null; // End of input
+        }
+
+        recordNumber++;
+        int timestamp = columnPositions[TIMESTAMP] < fieldCount ? columnPositions[TIMESTAMP] : -1;
+        int amount = columnPositions[AMOUNT] < fieldCount ? columnPositions[AMOUNT] : -1;
+        return new DealRow(recordNumber,
+                text(columnPositions[ID]),
+                currency(columnPositions[FROM]),
+                currency(columnPositions[TO]),
+                timestamp >= 0 ? decodeTimestamp(buffer, fieldStarts[timestamp], length(timestamp)) : DealRow.NOT_DECODED,
+                amount >= 0 ? decodeAmount(buffer, fieldStarts[amount], length(amount)) : DealRow.NOT_DECODED,
+                buffer,
+                timestamp >= 0 ? fieldStarts[timestamp] : 0, timestamp >= 0 ? length(timestamp) : -1,
+                amount >= 0 ? fieldStarts[amount] : 0, amount >= 0 ? length(amount) : -1);
+    }
+
+    /**
+     * 📋 Resolve the column positions once. Quotes, blank or repeated names go to commons-csv,
+     * so odd headers behave exactly as before (including its errors).
+     */
+    private boolean readHeader() throws IOException {
+        if (!readRecord()) {
+            return false;
+        }
+        String[] names = new String[fieldCount];
+        Set<String> seen = new HashSet<>();
+        boolean regular = !recordHasQuote;
+        for (int i = 0; i < fieldCount && regular; i++) {
+            names[i] = new String(buffer, fieldStarts[i], length(i), StandardCharsets.UTF_8);
+            regular = !names[i].isEmpty() && seen.add(names[i]);
+        }
+        if (!regular) {
+            switchToCommonsCsv(CSV_FORMAT);
+            return true;
+        }
+        useHeader(names);
+        return true;
+    }
+
+    private void useHeader(String[] names) {
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columnPositions[column] = -1;
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(COLUMNS[column])) {
+                    columnPositions[column] = i;
+                }
+            }
+        }
+        headerNames = names;
+    }
+
+    /**
+     * 📋 The header names, read now if needed. Null when the header is unusual and commons-csv took over.
+     */
+    String[] header() throws IOException {
+        if (headerNames == null && fallbackRecords == null) {
+            readHeader();
+        }
+        return headerNames;
+    }
+
+    /**
+     * Read the next non-empty line and split it into trimmed fields.
+     *
+     * @return false at the end of the input
+     */
+    private boolean readRecord() throws IOException {
+        fieldCount = 0;
+        recordHasQuote = false;
+
+        // ⏭️ Empty lines are not records (this also swallows the \n of a \r\n)
+        while (true) {
+            recordStart = position; // Nothing before this needs to survive a buffer switch
+            if (position == limit && !fill()) {
+                return false;
+            }
+            byte b = buffer[position];
+            if (b != '\n' && b != '\r') {
+                break;
+            }
+            position++;
+        }
+
+        recordStart = position;
+        int fieldStart = position;
+        int scan = position;
+        while (true) {
+            if (scan == limit) {
+                int shift = recordStart;
+                if (!fill()) {
+                    break; // Last line without a line break
+                }
+                shift -= recordStart; // fill() may have moved the record to a new buffer
+                scan -= shift;
+                fieldStart -= shift;
+                for (int i = 0; i < fieldCount; i++) {
+                    fieldStarts[i] -= shift;
+                    fieldEnds[i] -= shift;
+                }
+                continue;
+            }
+            byte b = buffer[scan];
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            if (b == ',') {
+                addField(fieldStart, scan);
+                fieldStart = scan + 1;
+            } else if (b == '"') {
+                recordHasQuote = true;
+            }
+            scan++;
+        }
+        addField(fieldStart, scan);
+        position = scan < limit ? scan + 1 : scan;
+        return true;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        // ✂️ Same as String.trim(): drop control characters and spaces at both ends
+        while (start < end && (buffer[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    /**
+     * Read more bytes after {@code limit}. A full buffer is not overwritten: the unfinished record
+     * (from {@code recordStart}) is copied to the start of a fresh one.
+     *
+     * @return false at the end of the input
+     */
+    private boolean fill() throws IOException {
+        if (endOfInput) {
+            return false;
+        }
+        if (limit == buffer.length) {
+            int keep = limit - recordStart;
+            byte[] fresh = new byte[Math.max(BLOCK_SIZE, keep * 2)];
+            System.arraycopy(buffer, recordStart, fresh, 0, keep);
+            buffer = fresh;
+            position -= recordStart;
+            limit = keep;
+            recordStart = 0;
+        }
+        int read;
+        do {
+            read = in.read(buffer, limit, buffer.length - limit);
+        } while (read == 0);
+        if (read < 0) {
+            endOfInput = true;
+            return false;
+        }
+        limit += read;
+        return true;
+    }
+
+    // 🐢 Let commons-csv parse everything from the current record on
+    private void switchToCommonsCsv(CSVFormat format) throws IOException {
+        InputStream rest = new SequenceInputStream(
+                new ByteArrayInputStream(buffer, recordStart, limit - recordStart), in);
+        fallbackParser = format.parse(new BufferedReader(new InputStreamReader(rest, StandardCharsets.UTF_8)));
+        fallbackRecords = fallbackParser.iterator();
+    }
+
+    private int length(int field) {
+        return fieldEnds[field] - fieldStarts[field];
+    }
+
+    private String text(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return null;
+        }
+        return new String(buffer, fieldStarts[field], length(field), StandardCharsets.UTF_8);
+    }
+
+    private String currency(int field) {
+        if (field < 0 || field >= fieldCount) {
+            return null;
+        }
+        return CurrencyCodes.of(buffer, fieldStarts[field], length(field));
+    }
+
+    /**
+     * 🕒 Decode "yyyy-MM-ddTHH:mm:ss" to UTC epoch seconds, without building a LocalDateTime. Anything else
+     * (fractions, lower-case t, impossible dates) returns NOT_DECODED and is left to the validator's
+     * DateTimeFormatter, so the result is the same.
+     */
+    static long decodeTimestamp(byte[] bytes, int offset, int length) {
+        if (length != 19 || bytes[offset + 4] != '-' || bytes[offset + 7] != '-' || bytes[offset + 10] != 'T'
+                || bytes[offset + 13] != ':' || bytes[offset + 16] != ':') {
+            return DealRow.NOT_DECODED;
+        }
+        int year = digits(bytes, offset, 4);
+        int month = digits(bytes, offset + 5, 2);
+        int day = digits(bytes, offset + 8, 2);
+        int hour = digits(bytes, offset + 11, 2);
+        int minute = digits(bytes, offset + 14, 2);
+        int second = digits(bytes, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return DealRow.NOT_DECODED;
+        }
+        return epochDay(year, month, day) * 86_400 + hour * 3_600 + minute * 60 + second;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> Year.isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    // 📅 Days since 1970-01-01 of a valid date with year >= 0 (same arithmetic as LocalDate.toEpochDay)
+    private static long epochDay(int year, int month, int day) {
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= Year.isLeap(year) ? 1 : 2;
+        }
+        return total - 719_528; // Days from 0000-01-01 to 1970-01-01
+    }
+
+    // Value of count ASCII digits, or -1 if one of them is not a digit
+    private static int digits(byte[] bytes, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * 💰 Decode plain decimals like "1000.50" or "-3" (up to 18 digits, at most 4 decimals) to the amount
+     * times 10^4 - the long {@link CompactDeal} keeps. Anything else returns NOT_DECODED and is left to the
+     * validator's BigDecimal, so the result is the same.
+     */
+    static long decodeAmount(byte[] bytes, int offset, int length) {
+        int i = offset;
+        int end = offset + length;
+        boolean negative = false;
+        if (i < end && (bytes[i] == '+' || bytes[i] == '-')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int integerDigits = 0;
+        int scale = 0;
+        boolean point = false;
+        for (; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit >= 0 && digit <= 9) {
+                if (++digits > 18) {
+                    return DealRow.NOT_DECODED; // Might not fit in a long
+                }
+                unscaled = unscaled * 10 + digit;
+                if (point) {
+                    scale++;
+                } else {
+                    integerDigits++;
+                }
+            } else if (bytes[i] == '.' && !point) {
+                point = true;
+            } else {
+                return DealRow.NOT_DECODED;
+            }
+        }
+        if (integerDigits == 0 || (point && scale == 0) || scale > CompactDeal.AMOUNT_SCALE) {
+            return DealRow.NOT_DECODED;
+        }
+        for (; scale < CompactDeal.AMOUNT_SCALE; scale++) {
+            if (unscaled > Long.MAX_VALUE / 10) {
+                return DealRow.NOT_DECODED; // Too big for scale 4 in a long
+            }
+            unscaled *= 10;
+        }
+        return negative ? -unscaled : unscaled;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            if (fallbackParser != null) {
+                fallbackParser.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
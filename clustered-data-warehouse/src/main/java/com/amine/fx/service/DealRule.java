@@ -0,0 +1,29 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+
+/**
+ * 📏 One business rule a deal must pass after it was parsed (amount, timestamp and currency codes are
+ * known to be well-formed by then). Rules declared as Spring beans are added to the ones configured under
+ * fx.validation.rules and compiled into one plan by {@link DealRuleEngine}.
+ *
+ * Rules run for every row of every import on the validator threads, so {@link #accepts} must be
+ * thread-safe, must not block and should not allocate - read the primitive fields of the
+ * {@link CompactDeal} rather than building strings or dates.
+ */
+public interface DealRule {
+
+    // 🏷️ Short name for logs and the rule= tag of the metrics, e.g. "distinct-currencies"
+    String name();
+
+    // ❓ Reason stored in fx_deal_errors when a deal fails the rule
+    String reason();
+
+    /**
+     * Relative cost of one evaluation - cheaper rules run first, so most bad rows are rejected before the
+     * expensive rules see them. Comparing two ints is 1, a lookup in a small table about 2-3.
+     */
+    int cost();
+
+    boolean accepts(CompactDeal deal);
+}
@@ -0,0 +1,214 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ⚖️ Runs the business rules on every deal that passed the format checks of {@link DealValidator}.
+ *
+ * The rules configured under fx.validation.rules and every {@link DealRule} bean are compiled once, at
+ * startup, into a plan: an array sorted by {@link DealRule#cost()}, cheapest first. Checking a deal is a
+ * loop over that array - no lookups by name, no configuration reads, no allocation unless the deal fails.
+ *
+ * By default the first failed rule is the error reason. With fx.validation.collect-all-failures=true every
+ * rule runs and the reasons of all failed ones are stored together, separated by "; ".
+ *
+ * Per rule the engine counts evaluations and failures, and times one evaluation in
+ * fx.validation.timing.sample-interval, so measuring stays cheap enough to leave on:
+ * <pre>
+ *   fx.validation.rule.evaluations{rule=...}  deals the rule looked at
+ *   fx.validation.rule.failures{rule=...}     deals it rejected
+ *   fx.validation.rule.duration{rule=...}     sampled time of one evaluation
+ * </pre>
+ */
+@Component
+public class DealRuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(DealRuleEngine.class);
+
+    // 📏 fx_deal_errors.error_reason
+    public static final int MAX_REASON_LENGTH = 500;
+    private static final String REASON_SEPARATOR = "; ";
+
+    private final CompiledRule[] plan;
+    private final boolean collectAllFailures;
+    private final int timingSampleMask;
+
+    @Autowired
+    public DealRuleEngine(ObjectProvider<DealRule> codeRules, MeterRegistry meterRegistry,
+                          @Value("${fx.validation.collect-all-failures:false}") boolean collectAllFailures,
+                          @Value("${fx.validation.timing.sample-interval:1024}") int timingSampleInterval,
+                          @Value("${fx.validation.rules.distinct-currencies.enabled:false}") boolean distinctCurrencies,
+                          @Value("${fx.validation.rules.iso-currency.enabled:false}") boolean isoCurrency,
+                          @Value("${fx.validation.rules.iso-currency.codes:}") List<String> isoCurrencyCodes,
+                          @Value("${fx.validation.rules.no-future-timestamps.enabled:false}") boolean noFutureTimestamps,
+                          @Value("${fx.validation.rules.no-future-timestamps.tolerance:5m}") Duration futureTolerance,
+                          @Value("${fx.validation.rules.max-amount.limits:}") List<String> amountLimits) {
+        this(configuredRules(codeRules, distinctCurrencies, isoCurrency, isoCurrencyCodes, noFutureTimestamps,
+                futureTolerance, amountLimits), collectAllFailures, timingSampleInterval, meterRegistry);
+    }
+
+    public DealRuleEngine(List<DealRule> rules, boolean collectAllFailures, int timingSampleInterval,
+                          MeterRegistry meterRegistry) {
+        this.collectAllFailures = collectAllFailures;
+        // Power of two, so "time this one?" is a mask on a random int
+        this.timingSampleMask = Integer.highestOneBit(Math.max(1, timingSampleInterval)) - 1;
+
+        // 🛠️ Compile: cheapest first, declaration order among equal costs
+        List<DealRule> ordered = new ArrayList<>(rules);
+        ordered.sort(Comparator.comparingInt(DealRule::cost));
+        this.plan = ordered.stream().map(CompiledRule::new).toArray(CompiledRule[]::new);
+
+        for (CompiledRule rule : plan) {
+            rule.register(meterRegistry);
+        }
+        if (plan.length > 0) {
+            logger.info("Validation rules in evaluation order: {}", ordered.stream().map(DealRule::name).toList());
+        }
+    }
+
+    // 🚫 No business rules - only the format checks apply
+    public static DealRuleEngine none() {
+        return new DealRuleEngine(List.of(), false, 1, null);
+    }
+
+    private static List<DealRule> configuredRules(ObjectProvider<DealRule> codeRules, boolean distinctCurrencies,
+                                                  boolean isoCurrency, List<String> isoCurrencyCodes,
+                                                  boolean noFutureTimestamps, Duration futureTolerance,
+                                                  List<String> amountLimits) {
+        List<DealRule> rules = new ArrayList<>();
+        if (distinctCurrencies) {
+            rules.add(DealRules.distinctCurrencies());
+        }
+        if (isoCurrency) {
+            rules.add(DealRules.isoCurrencies(nonBlank(isoCurrencyCodes)));
+        }
+        if (noFutureTimestamps) {
+            rules.add(DealRules.noFutureTimestamps(futureTolerance, Clock.systemUTC()));
+        }
+        List<String> limits = nonBlank(amountLimits);
+        if (!limits.isEmpty()) {
+            rules.add(DealRules.maxAmountPerPair(limits));
+        }
+        codeRules.orderedStream().forEach(rules::add);
+        return rules;
+    }
+
+    private static List<String> nonBlank(List<String> values) {
+        return values.stream().map(String::trim).filter(value -> !value.isEmpty()).toList();
+    }
+
+    /**
+     * @return null when the deal passes every rule, otherwise the error reason(s)
+     */
+    public String check(CompactDeal deal) {
+        if (plan.length == 0) {
+            return null;
+        }
+        boolean timed = (ThreadLocalRandom.current().nextInt() & timingSampleMask) == 0;
+        String failure = null;
+        for (CompiledRule rule : plan) {
+            if (rule.accepts(deal, timed)) {
+                continue;
+            }
+            if (!collectAllFailures) {
+                return rule.rule.reason();
+            }
+            failure = failure == null ? rule.rule.reason() : failure + REASON_SEPARATOR + rule.rule.reason();
+        }
+        return failure == null || failure.length() <= MAX_REASON_LENGTH ? failure : failure.substring(0, MAX_REASON_LENGTH);
+    }
+
+    // 📋 What each rule did so far, in evaluation order
+    public List<RuleStats> getRuleStats() {
+        List<RuleStats> stats = new ArrayList<>(plan.length);
+        for (CompiledRule rule : plan) {
+            stats.add(rule.stats());
+        }
+        return stats;
+    }
+
+    public boolean isCollectAllFailures() {
+        return collectAllFailures;
+    }
+
+    /**
+     * @param meanNanos mean time of one evaluation over the sampled ones, 0 before the first sample
+     */
+    public record RuleStats(String name, String reason, int cost, long evaluations, long failures, double meanNanos) {
+    }
+
+    // 📊 A rule and its counters - LongAdders, so validator threads don't fight over one cache line
+    private static final class CompiledRule {
+
+        private final DealRule rule;
+        private final LongAdder evaluations = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder sampledNanos = new LongAdder();
+        private final LongAdder samples = new LongAdder();
+
+        private CompiledRule(DealRule rule) {
+            this.rule = rule;
+        }
+
+        private boolean accepts(CompactDeal deal, boolean timed) {
+            boolean accepted;
+            if (timed) {
+                long start = System.nanoTime();
+                accepted = rule.accepts(deal);
+                sampledNanos.add(System.nanoTime() - start);
+                samples.increment();
+            } else {
+                accepted = rule.accepts(deal);
+            }
+            evaluations.increment();
+            if (!accepted) {
+                failures.increment();
+            }
+            return accepted;
+        }
+
+        private void register(MeterRegistry meterRegistry) {
+            if (meterRegistry == null) {
+                return;
+            }
+            FunctionCounter.builder("fx.validation.rule.evaluations", evaluations, LongAdder::doubleValue)
+                    .description("Deals checked by the validation rule")
+                    .tag("rule", rule.name())
+                    .register(meterRegistry);
+            FunctionCounter.builder("fx.validation.rule.failures", failures, LongAdder::doubleValue)
+                    .description("Deals rejected by the validation rule")
+                    .tag("rule", rule.name())
+                    .register(meterRegistry);
+            FunctionTimer.builder("fx.validation.rule.duration", this,
+                            compiled -> compiled.samples.sum(), compiled -> compiled.sampledNanos.sum(),
+                            TimeUnit.NANOSECONDS)
+                    .description("Sampled time of one evaluation of the validation rule")
+                    .tag("rule", rule.name())
+                    .register(meterRegistry);
+        }
+
+        private RuleStats stats() {
+            long sampleCount = samples.sum();
+            return new RuleStats(rule.name(), rule.reason(), rule.cost(), evaluations.sum(), failures.sum(),
+                    sampleCount == 0 ? 0 : (double) sampledNanos.sum() / sampleCount);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.model.CurrencyCodes;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 🧰 The built-in {@link DealRule}s. Each one turns its configuration into a lookup table when it is
+ * created, so checking a deal is a couple of array reads on the deal's int currency codes and longs.
+ */
+public final class DealRules {
+
+    // ❓ Error reasons stored in fx_deal_errors
+    public static final String SAME_CURRENCY = "From and to currency must be different";
+    public static final String UNKNOWN_CURRENCY = "Currency code is not a known ISO 4217 code";
+    public static final String FUTURE_TIMESTAMP = "Deal timestamp is in the future";
+    public static final String AMOUNT_OVER_LIMIT = "Deal amount is above the limit for this currency pair";
+
+    private DealRules() {
+    }
+
+    // 🔁 EUR -> EUR is not a deal
+    public static DealRule distinctCurrencies() {
+        return new DistinctCurrencies();
+    }
+
+    /**
+     * 💱 Both currencies must be in the list.
+     *
+     * @param codes ISO 4217 codes; empty = every currency the JDK knows
+     */
+    public static DealRule isoCurrencies(Collection<String> codes) {
+        BitSet known = new BitSet(CurrencyCodes.LETTER_CODES);
+        if (codes.isEmpty()) {
+            Currency.getAvailableCurrencies().forEach(currency -> known.set(CurrencyCodes.code(currency.getCurrencyCode())));
+        } else {
+            for (String code : codes) {
+                known.set(CurrencyCodes.code(currencyCode(code)));
+            }
+        }
+        return new IsoCurrencies(known);
+    }
+
+    // ⏰ Deals can't happen later than now (+ tolerance for clocks of the sending systems)
+    public static DealRule noFutureTimestamps(Duration tolerance, Clock clock) {
+        return new NoFutureTimestamps(tolerance.toSeconds(), clock);
+    }
+
+    /**
+     * 💰 Upper amount limit per currency pair; pairs without a limit are not checked.
+     *
+     * @param limits entries like "EUR/USD=5000000"
+     */
+    public static DealRule maxAmountPerPair(List<String> limits) {
+        long[][] scaledLimits = new long[CurrencyCodes.LETTER_CODES][];
+        BigDecimal[][] exactLimits = new BigDecimal[CurrencyCodes.LETTER_CODES][];
+        for (String entry : limits) {
+            String[] pairAndLimit = entry.split("=");
+            String[] pair = pairAndLimit[0].split("/");
+            if (pairAndLimit.length != 2 || pair.length != 2) {
+                throw new IllegalArgumentException("Amount limit must look like EUR/USD=5000000, got: " + entry);
+            }
+            int from = CurrencyCodes.code(currencyCode(pair[0]));
+            int to = CurrencyCodes.code(currencyCode(pair[1]));
+            BigDecimal limit = new BigDecimal(pairAndLimit[1].trim());
+
+            if (scaledLimits[from] == null) {
+                scaledLimits[from] = new long[CurrencyCodes.LETTER_CODES];
+                exactLimits[from] = new BigDecimal[CurrencyCodes.LETTER_CODES];
+            }
+            scaledLimits[from][to] = limit.movePointRight(CompactDeal.AMOUNT_SCALE).longValueExact();
+            exactLimits[from][to] = limit;
+        }
+        return new MaxAmountPerPair(scaledLimits, exactLimits);
+    }
+
+    // Limits and whitelists only hold AAA..ZZZ - anything else is a configuration mistake
+    private static String currencyCode(String code) {
+        String trimmed = code.trim().toUpperCase(Locale.ROOT);
+        if (CurrencyCodes.code(trimmed) >= CurrencyCodes.LETTER_CODES) {
+            throw new IllegalArgumentException("Not a 3-letter currency code: '" + code + "'");
+        }
+        return trimmed;
+    }
+
+    private record DistinctCurrencies() implements DealRule {
+
+        @Override
+        public String name() {
+            return "distinct-currencies";
+        }
+
+        @Override
+        public String reason() {
+            return SAME_CURRENCY;
+        }
+
+        @Override
+        public int cost() {
+            return 1;
+        }
+
+        @Override
+        public boolean accepts(CompactDeal deal) {
+            return deal.fromCurrencyCode() != deal.toCurrencyCode();
+        }
+    }
+
+    private record IsoCurrencies(BitSet known) implements DealRule {
+
+        @Override
+        public String name() {
+            return "iso-currency";
+        }
+
+        @Override
+        public String reason() {
+            return UNKNOWN_CURRENCY;
+        }
+
+        @Override
+        public int cost() {
+            return 2;
+        }
+
+        @Override
+        public boolean accepts(CompactDeal deal) {
+            return known.get(deal.fromCurrencyCode()) && known.get(deal.toCurrencyCode());
+        }
+    }
+
+    private record NoFutureTimestamps(long toleranceSeconds, Clock clock) implements DealRule {
+
+        @Override
+        public String name() {
+            return "no-future-timestamps";
+        }
+
+        @Override
+        public String reason() {
+            return FUTURE_TIMESTAMP;
+        }
+
+        @Override
+        public int cost() {
+            return 3; // Reads the clock
+        }
+
+        @Override
+        public boolean accepts(CompactDeal deal) {
+            return deal.epochSecond() <= clock.millis() / 1000 + toleranceSeconds;
+        }
+    }
+
+    private record MaxAmountPerPair(long[][] scaledLimits, BigDecimal[][] exactLimits) implements DealRule {
+
+        @Override
+        public String name() {
+            return "max-amount-per-pair";
+        }
+
+        @Override
+        public String reason() {
+            return AMOUNT_OVER_LIMIT;
+        }
+
+        @Override
+        public int cost() {
+            return 4;
+        }
+
+        @Override
+        public boolean accepts(CompactDeal deal) {
+            int from = deal.fromCurrencyCode();
+            int to = deal.toCurrencyCode();
+            if (from >= scaledLimits.length || to >= scaledLimits.length || scaledLimits[from] == null
+                    || exactLimits[from][to] == null) {
+                return true; // No limit for this pair
+            }
+            // 🐢 Only amounts that don't fit the scaled long need the BigDecimal
+            return deal.amountExact() == null
+                    ? deal.amountScaled() <= scaledLimits[from][to]
+                    : deal.amountExact().compareTo(exactLimits[from][to]) <= 0;
+        }
+    }
+}
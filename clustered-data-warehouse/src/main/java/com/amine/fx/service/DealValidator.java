@@ -0,0 +1,120 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * ✅ Checks and converts a single CSV row. Stateless, so any number of threads can share it.
+ * The duplicate check is not done here - see {@link DealDeduplicator}.
+ *
+ * The format checks below are fixed: they decide whether there is a deal at all. Business rules
+ * (currency whitelist, amount limits, ...) run on the converted deal in the {@link DealRuleEngine}.
+ */
+@Component
+public class DealValidator {
+
+    // 🕒 How to read dates like "2025-11-13T10:00:00"
+    public static final DateTimeFormatter TIMESTAMP_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    // ❓ Error reasons stored in fx_deal_errors
+    public static final String MISSING_FIELDS = "Missing required fields";
+    public static final String DUPLICATE_DEAL_ID = "Duplicate deal ID";
+    // 🔁 Idempotent imports: the ID is stored already, with other values
+    public static final String CONFLICTING_DEAL_ID = "Deal ID already stored with different values";
+    public static final String INVALID_TIMESTAMP = "Invalid timestamp format. Expected: YYYY-MM-DDTHH:MM:SS";
+    public static final String AMOUNT_NOT_POSITIVE = "Deal amount must be greater than 0";
+    public static final String INVALID_AMOUNT = "Invalid amount format";
+    public static final String INVALID_CURRENCY = "Currency codes must be exactly 3 characters";
+
+    private final DealRuleEngine ruleEngine;
+
+    // Format checks only (benchmarks, decoder tests)
+    public DealValidator() {
+        this(DealRuleEngine.none());
+    }
+
+    @Autowired
+    public DealValidator(DealRuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+    }
+
+    public ValidatedRow validate(DealRow row) {
+        // 📋 Get ingredients from CSV
+        String dealUniqueId = row.dealUniqueId();
+        String fromCurrency = row.fromCurrency();
+        String toCurrency = row.toCurrency();
+        boolean timestampDecoded = row.hasDecodedTimestamp(); // ⚡ Already decoded by the fast parser (or not)
+        boolean amountDecoded = row.hasDecodedAmount();
+
+        // 🚀 Step 1: Basic validation - check for empty required fields
+        if (isBlank(dealUniqueId) || isBlank(fromCurrency) || isBlank(toCurrency) ||
+                (!timestampDecoded && isBlank(row.timestamp())) ||
+                (!amountDecoded && isBlank(row.amount()))) {
+            return ValidatedRow.missingFields(row, MISSING_FIELDS); // 🚫 Stop if missing ingredients
+        }
+
+        // 🚀 Step 2 (duplicate check) happens later, when rows are back in file order
+
+        // 🚀 Step 3: Check if timestamp is valid
+        LocalDateTime dealTimestamp = null; // 📦 Stays null on the fast path - the epoch seconds are enough
+        if (!timestampDecoded) {
+            try {
+                dealTimestamp = LocalDateTime.parse(row.timestamp(), TIMESTAMP_FORMATTER);
+            } catch (DateTimeParseException e) {
+                return ValidatedRow.invalid(row, INVALID_TIMESTAMP); // 🚫 Stop if bad timestamp
+            }
+        }
+
+        // 🚀 Step 4: Check if amount is valid
+        BigDecimal amount = null; // 📦 Stays null on the fast path - the scaled long is enough
+        if (!amountDecoded) {
+            try {
+                amount = new BigDecimal(row.amount());
+            } catch (NumberFormatException e) {
+                return ValidatedRow.invalid(row, INVALID_AMOUNT, timestamp(row, dealTimestamp)); // 🚫 Stop if amount is not a number
+            }
+        }
+        if (amountDecoded ? row.decodedAmountScaled() <= 0 : amount.signum() <= 0) {
+            return ValidatedRow.invalid(row, AMOUNT_NOT_POSITIVE, timestamp(row, dealTimestamp)); // 🚫 Stop if amount is zero or negative
+        }
+
+        // 🚀 Step 5: Check currency codes (values are already trimmed by the reader)
+        if (fromCurrency.length() != 3 || toCurrency.length() != 3) {
+            return ValidatedRow.invalid(row, INVALID_CURRENCY, timestamp(row, dealTimestamp)); // 🚫 Stop if bad currency codes
+        }
+
+        // 🚀 Step 6: Well-formed! One compact object - the JPA entity is only built if somebody needs it
+        long epochSecond = timestampDecoded ? row.decodedEpochSecond() : dealTimestamp.toEpochSecond(ZoneOffset.UTC);
+        int nano = timestampDecoded ? 0 : dealTimestamp.getNano();
+        CompactDeal deal = amountDecoded
+                ? CompactDeal.of(dealUniqueId, fromCurrency, toCurrency, epochSecond, nano, row.decodedAmountScaled())
+                : CompactDeal.of(dealUniqueId, fromCurrency, toCurrency, epochSecond, nano, amount);
+
+        // 🚀 Step 7: Business rules, on the compact values
+        String ruleFailure = ruleEngine.check(deal);
+        if (ruleFailure != null) {
+            return ValidatedRow.invalid(row, ruleFailure, deal.dealTimestamp()); // 🚫 Well-formed, but not acceptable
+        }
+        return ValidatedRow.valid(row, deal);
+    }
+
+    // ⏰ Timestamp for the error record of a rejected row
+    private static LocalDateTime timestamp(DealRow row, LocalDateTime parsed) {
+        return parsed != null ? parsed : row.decodedTimestamp();
+    }
+
+    /**
+     * Helper method to check if string is blank (null or empty)
+     * The reader already trimmed the value, so no trim() copy is needed here.
+     */
+    private boolean isBlank(String str) {
+        return str == null || str.isEmpty();
+    }
+}
@@ -0,0 +1,58 @@
+package com.amine.fx.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 🔑 Content hashes used to recognise a file again (checkpoints, re-submissions).
+ */
+public final class FileFingerprints {
+
+    private FileFingerprints() {
+    }
+
+    // SHA-256 of the whole file as 64 lowercase hex characters
+    public static String sha256(Path path) throws IOException {
+        MessageDigest digest = newSha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(path)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Identity of a local file without reading it: hex SHA-256 of its absolute path, size and modification time,
+     * cut to the given length. The same unchanged file gets the same identity, an edited one a new one.
+     */
+    public static String identity(Path path, int length) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String identity = path.toAbsolutePath().normalize() + "\n" + attributes.size() + "\n"
+                + attributes.lastModifiedTime().toMillis();
+        byte[] hash = newSha256().digest(identity.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(hash).substring(0, Math.min(length, hash.length * 2));
+    }
+
+    // Hex of a finished digest, as stored in fx_import_checkpoints.file_hash
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Every JVM must provide it
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.ImportCheckpoint;
+import com.amine.fx.repository.ImportCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * 🔖 Keeps track of how far each file import got, so a restarted import resumes
+ * after the last committed chunk instead of starting over.
+ *
+ * Streamed uploads can't be resumed, so their temporary checkpoint is deleted when the stream fails.
+ * One left behind by a crash is purged once it hasn't moved for fx.import.checkpoints.stream-expiry.
+ */
+@Service
+public class ImportCheckpointService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportCheckpointService.class);
+
+    // Temporary file_hash of a stream or file that is still being read (a SHA-256 hex string never contains ':')
+    private static final String STREAM_KEY_PREFIX = "stream:";
+    private static final String FILE_KEY_PREFIX = "file:";
+
+    private final ImportCheckpointRepository checkpointRepository;
+    private final Duration streamExpiry;
+
+    public ImportCheckpointService(ImportCheckpointRepository checkpointRepository,
+                                   @Value("${fx.import.checkpoints.stream-expiry:1h}") Duration streamExpiry) {
+        this.checkpointRepository = checkpointRepository;
+        this.streamExpiry = streamExpiry;
+    }
+
+    /**
+     * Find the checkpoint to continue from. An unfinished import of the same content is resumed,
+     * a finished one is started again from the first record - under a new checkpoint, so the deal IDs
+     * its chunks claim (fx_deal_keys.checkpoint_id) are never mistaken for the ones of the earlier run.
+     * A resumed checkpoint starts its next run (fx_deal_keys.import_run), for the same reason.
+     */
+    @Transactional
+    public ImportCheckpoint begin(String fileHash, String fileName) {
+        ImportCheckpoint checkpoint = checkpointRepository.findByFileHash(fileHash).orElse(null);
+
+        if (checkpoint != null && ImportCheckpoint.STATUS_COMPLETED.equals(checkpoint.getStatus())) {
+            logger.info("File {} was imported before - importing it again from the start", fileName);
+            checkpointRepository.delete(checkpoint);
+            checkpointRepository.flush(); // Gone before the new row takes its file_hash
+            checkpoint = null;
+        }
+        if (checkpoint == null) {
+            checkpoint = new ImportCheckpoint(fileHash, fileName);
+        } else {
+            checkpoint.setResumed(true);
+            checkpoint.setRunNumber(checkpoint.getRunNumber() + 1);
+            if (checkpoint.getLastCommittedRecord() > 0) {
+                logger.info("Resuming import of {} after record {}", fileName, checkpoint.getLastCommittedRecord());
+            }
+        }
+
+        checkpoint.setFileName(fileName);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        ImportCheckpoint saved = checkpointRepository.save(checkpoint);
+        saved.setResumed(checkpoint.isResumed());
+        return saved;
+    }
+
+    /**
+     * Checkpoint for a local file whose content hash isn't known yet - it is computed while the rows are read.
+     * The temporary key is made of the file's path, size and modification time, so importing the same unchanged
+     * file again after a crash resumes it. {@link #complete(ImportCheckpoint, String)} replaces it with the hash.
+     */
+    @Transactional
+    public ImportCheckpoint beginFile(Path path, String fileName) throws IOException {
+        return begin(FILE_KEY_PREFIX + FileFingerprints.identity(path, 64 - FILE_KEY_PREFIX.length()), fileName);
+    }
+
+    // ✅ Was this exact content imported completely before?
+    @Transactional(readOnly = true)
+    public boolean isCompleted(String fileHash) {
+        return checkpointRepository.findByFileHash(fileHash)
+                .map(checkpoint -> ImportCheckpoint.STATUS_COMPLETED.equals(checkpoint.getStatus()))
+                .orElse(false);
+    }
+
+    /**
+     * Checkpoint for a streamed upload. The content hash is only known once the whole stream was read,
+     * so the import runs under a temporary key that {@link #complete(ImportCheckpoint, String)} replaces
+     * with the real hash.
+     */
+    @Transactional
+    public ImportCheckpoint beginStream(String fileName) {
+        return checkpointRepository.save(new ImportCheckpoint(STREAM_KEY_PREFIX + UUID.randomUUID(), fileName));
+    }
+
+    // 🗑️ The stream failed - nothing can ever resume it under a random key
+    @Transactional
+    public void abandonStream(ImportCheckpoint checkpoint) {
+        checkpointRepository.deleteById(checkpoint.getId());
+    }
+
+    /**
+     * 🧹 Delete the checkpoints of streams that died with the application. A running stream moves its
+     * checkpoint with every chunk, so only streams idle for longer than the expiry are removed.
+     *
+     * @return number of checkpoints deleted
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    @Scheduled(cron = "${fx.import.checkpoints.cleanup-cron:0 15 * * * *}")
+    public int purgeAbandonedStreams() {
+        int purged = checkpointRepository.deleteUnfinished(STREAM_KEY_PREFIX, LocalDateTime.now().minus(streamExpiry));
+        if (purged > 0) {
+            logger.info("Deleted {} checkpoints of abandoned streamed imports", purged);
+        }
+        return purged;
+    }
+
+    // 📍 Must run inside the chunk transaction (MANDATORY) so data and checkpoint commit together
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void advance(ImportCheckpoint checkpoint, long lastCommittedRecord) {
+        checkpointRepository.advance(checkpoint.getId(), lastCommittedRecord, LocalDateTime.now());
+        checkpoint.setLastCommittedRecord(lastCommittedRecord);
+    }
+
+    @Transactional
+    public void complete(ImportCheckpoint checkpoint) {
+        checkpointRepository.findById(checkpoint.getId()).ifPresent(saved -> {
+            saved.setStatus(ImportCheckpoint.STATUS_COMPLETED);
+            saved.setUpdatedAt(LocalDateTime.now());
+        });
+    }
+
+    // 🔑 Swap the temporary key for the real content hash, so the same content is recognised next time
+    @Transactional
+    public void complete(ImportCheckpoint checkpoint, String fileHash) {
+        Optional<ImportCheckpoint> earlier = checkpointRepository.findByFileHash(fileHash);
+        if (earlier.isPresent()) {
+            // Same content was imported before - keep that row and drop the temporary one
+            checkpointRepository.deleteById(checkpoint.getId());
+            earlier.get().setFileName(checkpoint.getFileName());
+            earlier.get().setLastCommittedRecord(checkpoint.getLastCommittedRecord());
+            earlier.get().setStatus(ImportCheckpoint.STATUS_COMPLETED);
+            earlier.get().setUpdatedAt(LocalDateTime.now());
+            return;
+        }
+        checkpointRepository.findById(checkpoint.getId()).ifPresent(saved -> {
+            saved.setFileHash(fileHash);
+            saved.setStatus(ImportCheckpoint.STATUS_COMPLETED);
+            saved.setUpdatedAt(LocalDateTime.now());
+        });
+    }
+}
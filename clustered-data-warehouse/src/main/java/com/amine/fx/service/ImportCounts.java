@@ -0,0 +1,60 @@
+package com.amine.fx.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 🧮 Running totals of an import (or of one chunk), with the errors counted per reason.
+ * Unchanged rows are deals an idempotent import found stored already, with the same values.
+ */
+public class ImportCounts {
+
+    private long successes;
+    private long errors;
+    private long unchanged;
+    private final Map<String, Long> errorsByReason = new TreeMap<>();
+
+    public void addSuccesses(long count) {
+        successes += count;
+    }
+
+    public void addUnchanged(long count) {
+        unchanged += count;
+    }
+
+    public void addErrors(String reason, long count) {
+        if (count <= 0) {
+            return;
+        }
+        errors += count;
+        errorsByReason.merge(reason, count, Long::sum);
+    }
+
+    public void add(ImportCounts other) {
+        successes += other.successes;
+        errors += other.errors;
+        unchanged += other.unchanged;
+        other.errorsByReason.forEach((reason, count) -> errorsByReason.merge(reason, count, Long::sum));
+    }
+
+    public long getSuccesses() {
+        return successes;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getTotal() {
+        return successes + errors + unchanged;
+    }
+
+    // ❓ e.g. {"Duplicate deal ID"=120, "Missing required fields"=3}
+    public Map<String, Long> getErrorsByReason() {
+        return errorsByReason;
+    }
+}
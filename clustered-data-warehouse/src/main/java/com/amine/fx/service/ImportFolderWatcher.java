@@ -0,0 +1,322 @@
+package com.amine.fx.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 📂 Watch-folder ingestion: CSV files dropped into fx.import.watch.directory are imported without
+ * anyone calling the API, then moved to the done or failed folder.
+ *
+ * A {@link WatchService} reports new and growing files. A file is handed over only once its size and
+ * modification time stayed the same for fx.import.watch.stable-time, so a file that is still being
+ * copied in is never read half-way. Files go through {@link ImportJobService} like uploads do - same
+ * job status endpoint, same content-hash check - and at most fx.import.watch.max-concurrent of them
+ * are imported at once. Files already in the folder at startup (or after lost events) are picked up by
+ * a full scan, so a file whose import was interrupted by a restart resumes from its checkpoint.
+ */
+@Component
+public class ImportFolderWatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportFolderWatcher.class);
+
+    private static final DateTimeFormatter RENAME_PREFIX = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS_");
+    private static final FileState NOT_MEASURED = new FileState(-1, -1, 0);
+
+    private final ImportJobService importJobService;
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Path doneDirectory;
+    private final Path failedDirectory;
+    private final List<String> suffixes;
+    private final long stableNanos;
+    private final long pollMillis;
+    private final int maxConcurrent;
+
+    private final Counter doneFiles;
+    private final Counter failedFiles;
+    private final Counter alreadyImportedFiles;
+
+    // ⏳ Files seen but not handed over yet, with their last observed size and time
+    private final Map<Path, FileState> pending = new ConcurrentHashMap<>();
+    // 🏃 Files being imported right now
+    private final Set<Path> inFlight = ConcurrentHashMap.newKeySet();
+    // 🔁 Files whose content another job was importing -> that job; handed over again once it finished
+    private final Map<Path, String> waitingFor = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ImportFolderWatcher(ImportJobService importJobService, MeterRegistry meterRegistry,
+                               @Value("${fx.import.watch.enabled:false}") boolean enabled,
+                               @Value("${fx.import.watch.directory:inbox}") String directory,
+                               @Value("${fx.import.watch.done-directory:}") String doneDirectory,
+                               @Value("${fx.import.watch.failed-directory:}") String failedDirectory,
+                               @Value("${fx.import.watch.suffixes:.csv,.csv.gz}") List<String> suffixes,
+                               @Value("${fx.import.watch.stable-time:2s}") Duration stableTime,
+                               @Value("${fx.import.watch.poll-interval:1s}") Duration pollInterval,
+                               @Value("${fx.import.watch.max-concurrent:2}") int maxConcurrent) {
+        this.importJobService = importJobService;
+        this.enabled = enabled;
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+        // Empty = a subfolder of the watched directory
+        this.doneDirectory = doneDirectory.isBlank() ? this.directory.resolve("done") : Path.of(doneDirectory).toAbsolutePath();
+        this.failedDirectory = failedDirectory.isBlank() ? this.directory.resolve("failed") : Path.of(failedDirectory).toAbsolutePath();
+        this.suffixes = suffixes.stream().map(suffix -> suffix.trim().toLowerCase()).filter(suffix -> !suffix.isEmpty()).toList();
+        this.stableNanos = stableTime.toNanos();
+        this.pollMillis = Math.max(10, pollInterval.toMillis());
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+
+        // 📊 Files by outcome, and files waiting to be picked up
+        this.doneFiles = outcomeCounter(meterRegistry, "done");
+        this.failedFiles = outcomeCounter(meterRegistry, "failed");
+        this.alreadyImportedFiles = outcomeCounter(meterRegistry, "already-imported");
+        Gauge.builder("fx.import.watch.pending", pending, Map::size)
+                .description("Files in the watched folder waiting to finish writing or for a free import slot")
+                .register(meterRegistry);
+    }
+
+    private static Counter outcomeCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("fx.import.watch.files")
+                .description("Files taken from the watched folder, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    // 🚀 After the CommandLineRunners, once the application is ready to import
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Files.createDirectories(doneDirectory);
+        Files.createDirectories(failedDirectory);
+
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        running = true;
+        thread = new Thread(this::watch, "import-folder-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        logger.info("Watching {} for {} files (done: {}, failed: {})", directory, suffixes, doneDirectory, failedDirectory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        running = false;
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // 👀 Watcher thread: collect new files, hand over the ones that stopped changing
+    private void watch() {
+        scanDirectory(); // Dropped while the application was down
+        while (running) {
+            WatchKey key;
+            try {
+                key = watchService.poll(pollMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                break;
+            }
+
+            if (key != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        scanDirectory(); // Events were lost - look at everything
+                    } else {
+                        track(directory.resolve((Path) event.context()));
+                    }
+                }
+                if (!key.reset()) {
+                    logger.error("Watched directory {} is no longer accessible - folder ingestion stopped", directory);
+                    break;
+                }
+            }
+
+            try {
+                handOverStableFiles();
+            } catch (RuntimeException e) {
+                logger.error("Folder ingestion failed: {}", e.getMessage(), e); // Next round tries again
+            }
+        }
+    }
+
+    private void scanDirectory() {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            files.forEach(this::track);
+        } catch (IOException e) {
+            logger.error("Could not list {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void track(Path file) {
+        if (matches(file) && !inFlight.contains(file) && Files.isRegularFile(file)) {
+            pending.putIfAbsent(file, NOT_MEASURED);
+        }
+    }
+
+    private boolean matches(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        return suffixes.stream().anyMatch(name::endsWith);
+    }
+
+    // ⏱️ A file is complete once its size and modification time stayed the same for the stable time
+    private void handOverStableFiles() {
+        long now = System.nanoTime();
+        Iterator<Map.Entry<Path, FileState>> entries = pending.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Path, FileState> entry = entries.next();
+            Path file = entry.getKey();
+
+            FileState current;
+            try {
+                current = FileState.of(file, now);
+            } catch (IOException e) {
+                entries.remove(); // Renamed or deleted meanwhile
+                continue;
+            }
+            FileState previous = entry.getValue();
+            if (!previous.sameAs(current)) {
+                entry.setValue(current); // ✍️ Still being written
+                continue;
+            }
+            if (now - previous.since() < stableNanos) {
+                continue;
+            }
+            if (inFlight.size() >= maxConcurrent) {
+                return; // 🚦 Wait for a running import to finish
+            }
+            String otherJob = waitingFor.get(file);
+            if (otherJob != null) {
+                if (importJobService.findJob(otherJob).filter(job -> !job.isFinished()).isPresent()) {
+                    continue; // Same content still importing - decide once that job is over
+                }
+                waitingFor.remove(file);
+            }
+            if (handOver(file)) {
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * @return false to keep the file pending and try again later
+     */
+    private boolean handOver(Path file) {
+        String fileName = file.getFileName().toString();
+        inFlight.add(file);
+        try {
+            ImportJob job = importJobService.submit(file, fileName, false, finished -> finished(file, finished));
+            logger.info("Picked up {} from the watched folder as import job {}", fileName, job.getId());
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(file);
+            return false; // Job queue is full (uploads) - try again next round
+        }
+    }
+
+    // ✅ Job thread: file is done with, clear it out of the watched folder
+    private void finished(Path file, ImportJob job) {
+        try {
+            if (job.getState() == ImportJob.State.COMPLETED) {
+                doneFiles.increment();
+                move(file, doneDirectory);
+            } else if (job.getState() == ImportJob.State.DUPLICATE && job.getDuplicateOf() != null) {
+                // Same content is importing right now - keep the file and hand it over again after that job
+                waitingFor.put(file, job.getDuplicateOf());
+                pending.put(file, NOT_MEASURED);
+            } else if (job.getState() == ImportJob.State.DUPLICATE) {
+                logger.info("{} was already imported - moving it to {}", file.getFileName(), doneDirectory);
+                alreadyImportedFiles.increment();
+                move(file, doneDirectory);
+            } else {
+                failedFiles.increment();
+                Path moved = move(file, failedDirectory);
+                if (moved != null) {
+                    writeErrorNote(moved, job);
+                }
+            }
+        } finally {
+            inFlight.remove(file);
+        }
+    }
+
+    // 📦 Move without overwriting: an older file of the same name keeps its place
+    private Path move(Path file, Path targetDirectory) {
+        Path target = targetDirectory.resolve(file.getFileName());
+        if (Files.exists(target)) {
+            target = targetDirectory.resolve(LocalDateTime.now().format(RENAME_PREFIX) + file.getFileName());
+        }
+        try {
+            try {
+                return Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                return Files.move(file, target); // done/failed on another file system
+            }
+        } catch (IOException e) {
+            // Stays in the watched folder - the next scan finds it again and the checkpoint decides what happens
+            logger.error("Could not move {} to {}: {}", file, targetDirectory, e.getMessage());
+            return null;
+        }
+    }
+
+    // 📝 <file>.error next to the failed file, so whoever looks at the folder sees why
+    private void writeErrorNote(Path failedFile, ImportJob job) {
+        try {
+            Files.writeString(failedFile.resolveSibling(failedFile.getFileName() + ".error"),
+                    "Import job " + job.getId() + " failed: " + job.getErrorMessage() + System.lineSeparator());
+        } catch (IOException e) {
+            logger.warn("Could not write the error note of {}: {}", failedFile, e.getMessage());
+        }
+    }
+
+    /**
+     * @param since when the file was first seen with this size and modification time
+     */
+    private record FileState(long size, long lastModified, long since) {
+
+        static FileState of(Path file, long now) throws IOException {
+            return new FileState(Files.size(file), Files.getLastModifiedTime(file).toMillis(), now);
+        }
+
+        boolean sameAs(FileState other) {
+            return size == other.size && lastModified == other.lastModified;
+        }
+    }
+}
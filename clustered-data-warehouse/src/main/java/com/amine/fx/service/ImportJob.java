@@ -0,0 +1,81 @@
+package com.amine.fx.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * 🎫 One asynchronous import, from upload until it finished or failed - or turned out to be
+ * DUPLICATE: the same content was being imported by another job, or was imported completely before.
+ */
+public class ImportJob {
+
+    public enum State { QUEUED, RUNNING, COMPLETED, FAILED, DUPLICATE }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String fileName;
+    private final Instant submittedAt = Instant.now();
+    private final ImportProgress progress = new ImportProgress();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String errorMessage;
+    private volatile String fileHash; // SHA-256 of the content, set once the job read it - null for streamed uploads
+    private volatile String duplicateOf; // Job importing the same content when this one started, null if none
+
+    public ImportJob(String fileName) {
+        this.fileName = fileName;
+    }
+
+    void markRunning() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void fingerprinted(String fileHash) {
+        this.fileHash = fileHash;
+    }
+
+    void markCompleted() {
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void markFailed(String message) {
+        finishedAt = Instant.now();
+        errorMessage = message;
+        state = State.FAILED;
+    }
+
+    // 🔁 Nothing was read: the content is being imported by duplicateOfJobId, or was imported before (null)
+    void markDuplicate(String message, String duplicateOfJobId) {
+        finishedAt = Instant.now();
+        errorMessage = message;
+        duplicateOf = duplicateOfJobId;
+        state = State.DUPLICATE;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.FAILED || state == State.DUPLICATE;
+    }
+
+    public String getId() { return id; }
+
+    public String getFileName() { return fileName; }
+
+    public String getFileHash() { return fileHash; }
+
+    public State getState() { return state; }
+
+    public ImportProgress getProgress() { return progress; }
+
+    public Instant getSubmittedAt() { return submittedAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+
+    public String getErrorMessage() { return errorMessage; }
+
+    public String getDuplicateOf() { return duplicateOf; }
+}
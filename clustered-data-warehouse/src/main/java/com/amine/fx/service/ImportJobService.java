@@ -0,0 +1,221 @@
+package com.amine.fx.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 🎫 Runs CSV imports in the background so HTTP requests return right away.
+ *
+ * At most fx.import.jobs.max-concurrent imports run at the same time; a few more may wait in
+ * the queue, anything beyond that is rejected instead of piling up.
+ * Streamed uploads run on the request thread instead, but are capped by the same limit.
+ * Jobs run on virtual threads, like the requests: the limit is about memory and database load, not
+ * threads - the connection pool and the shared writer slots decide how much hits the database at once.
+ *
+ * Jobs are recognised by the SHA-256 of their content, computed as the first step of the job - not
+ * on the caller's thread, which would hold an upload request for a full read of a multi-GB file - and
+ * handed to the import. The same content is never imported twice at the same time, and with
+ * fx.import.jobs.reject-resubmitted a file that was already imported completely is not read again
+ * only to find every row a duplicate. Either way the job ends as DUPLICATE.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportJobService.class);
+
+    private final DealImportService dealImportService;
+    private final ImportCheckpointService checkpointService;
+    private final boolean rejectResubmitted;
+    private final ThreadPoolExecutor executor;
+    private final int historySize;
+    private final Semaphore streamSlots;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, ImportJob> unfinishedByHash = new ConcurrentHashMap<>(); // 🔑 Content hash -> queued/running job
+
+    public ImportJobService(DealImportService dealImportService, ImportCheckpointService checkpointService,
+                            @Value("${fx.import.jobs.max-concurrent:2}") int maxConcurrent,
+                            @Value("${fx.import.jobs.queue-capacity:10}") int queueCapacity,
+                            @Value("${fx.import.jobs.history-size:100}") int historySize,
+                            @Value("${fx.import.jobs.reject-resubmitted:true}") boolean rejectResubmitted,
+                            MeterRegistry meterRegistry) {
+        this.dealImportService = dealImportService;
+        this.checkpointService = checkpointService;
+        this.rejectResubmitted = rejectResubmitted;
+        this.historySize = Math.max(1, historySize);
+
+        int threads = Math.max(1, maxConcurrent);
+        this.streamSlots = new Semaphore(threads);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofVirtual().name("import-job-", 1).factory());
+
+        // 📊 Background jobs running / waiting, and streamed uploads running
+        Gauge.builder("fx.import.jobs.running", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Background import jobs running")
+                .register(meterRegistry);
+        Gauge.builder("fx.import.jobs.queued", executor, pool -> pool.getQueue().size())
+                .description("Background import jobs waiting for a free slot")
+                .register(meterRegistry);
+        Gauge.builder("fx.import.streams.running", streamSlots, slots -> threads - slots.availablePermits())
+                .description("Streamed uploads being imported")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue an import of a local CSV file. Returns right away: the content hash and the duplicate
+     * checks are the first thing the job does, a duplicate ends the job in state DUPLICATE.
+     *
+     * @param deleteWhenDone remove the file after the import (used for uploaded temp files)
+     * @throws RejectedExecutionException when too many imports are already running or waiting
+     */
+    public ImportJob submit(Path file, String fileName, boolean deleteWhenDone) {
+        return submit(file, fileName, deleteWhenDone, null);
+    }
+
+    /**
+     * @param whenFinished called on the job thread once the job completed, failed or turned out to be a
+     *                     duplicate (may be null)
+     */
+    public ImportJob submit(Path file, String fileName, boolean deleteWhenDone, Consumer<ImportJob> whenFinished) {
+        ImportJob job = new ImportJob(fileName);
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, file, deleteWhenDone, whenFinished));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        forgetOldJobs();
+        logger.info("Queued import job {} for {}", job.getId(), fileName);
+        return job;
+    }
+
+    /**
+     * Import a CSV while it is being uploaded. Blocks until the whole stream was imported; the job is
+     * registered like a background one so its progress can be followed from another client.
+     *
+     * @param contentLength size of the stream in bytes, -1 if unknown
+     * @throws RejectedExecutionException when too many streamed imports are already running
+     */
+    public ImportJob runStream(InputStream in, String fileName, long contentLength) {
+        if (!streamSlots.tryAcquire()) {
+            throw new RejectedExecutionException("Too many streamed imports running");
+        }
+        ImportJob job = new ImportJob(fileName);
+        jobs.put(job.getId(), job);
+        forgetOldJobs();
+        logger.info("Streaming import job {} for {}", job.getId(), fileName);
+
+        job.markRunning();
+        try {
+            dealImportService.importDealsFromStream(in, fileName, contentLength, job.getProgress());
+            job.markCompleted();
+            logger.info("Import job {} completed: {} rows in {}s", job.getId(),
+                    job.getProgress().getRowsProcessed(), Math.round(job.getProgress().getElapsedSeconds()));
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            logger.error("Import job {} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            streamSlots.release();
+        }
+        return job;
+    }
+
+    public Optional<ImportJob> findJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    private void run(ImportJob job, Path file, boolean deleteWhenDone, Consumer<ImportJob> whenFinished) {
+        job.markRunning();
+        try {
+            job.fingerprinted(FileFingerprints.sha256(file));
+            if (claim(job)) {
+                dealImportService.importDealsFromCsv(file.toString(), job.getFileHash(), job.getProgress());
+                job.markCompleted();
+                logger.info("Import job {} completed: {} rows in {}s", job.getId(),
+                        job.getProgress().getRowsProcessed(), Math.round(job.getProgress().getElapsedSeconds()));
+            }
+        } catch (Exception e) {
+            job.markFailed(e.getMessage());
+            logger.error("Import job {} failed: {}", job.getId(), e.getMessage(), e);
+        } finally {
+            if (job.getFileHash() != null) {
+                unfinishedByHash.remove(job.getFileHash(), job);
+            }
+            if (deleteWhenDone) {
+                deleteQuietly(file);
+            }
+            if (whenFinished != null) {
+                try {
+                    whenFinished.accept(job);
+                } catch (RuntimeException e) {
+                    logger.error("Completion callback of import job {} failed: {}", job.getId(), e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false when the job is a duplicate and must not read its file
+     */
+    private boolean claim(ImportJob job) {
+        // 🔑 Register first, then look at the checkpoint: a finished job completes its checkpoint before it leaves the map
+        ImportJob unfinished = unfinishedByHash.putIfAbsent(job.getFileHash(), job);
+        if (unfinished != null) {
+            job.markDuplicate("The same content is already being imported by job " + unfinished.getId(), unfinished.getId());
+        } else if (rejectResubmitted && checkpointService.isCompleted(job.getFileHash())) {
+            job.markDuplicate("The same content was already imported", null);
+        } else {
+            return true;
+        }
+        logger.info("Import job {} for {} skipped: {}", job.getId(), job.getFileName(), job.getErrorMessage());
+        return false;
+    }
+
+    // 🧹 Keep only the newest finished jobs so the map doesn't grow forever
+    private void forgetOldJobs() {
+        int excess = jobs.size() - historySize;
+        if (excess <= 0) {
+            return;
+        }
+        jobs.values().stream()
+                .filter(ImportJob::isFinished)
+                .sorted(Comparator.comparing(ImportJob::getSubmittedAt))
+                .limit(excess)
+                .forEach(job -> jobs.remove(job.getId()));
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}: {}", file, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,123 @@
+package com.amine.fx.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 📊 Metrics and tracing spans of the import, published through actuator (/actuator/metrics, /actuator/prometheus).
+ *
+ * <pre>
+ *   fx.import                   one observation per file: duration timer, fx.import.active (running imports), span
+ *   fx.import.stage{stage=...}  one observation per chunk and stage: parse, validate, dedup, persist, commit-wait
+ *   fx.import.file.size         bytes per imported file
+ *   fx.import.deals.saved       deals inserted
+ *   fx.import.deals.rejected    rows rejected, tagged with the error reason
+ *   fx.import.deals.unchanged   rows an idempotent import found stored already, with the same values
+ * </pre>
+ *
+ * Stage observations name the file observation as their parent, so with a tracer on the classpath every
+ * chunk shows up as a child span of its import, whichever pipeline thread handled it.
+ */
+@Component
+public class ImportMetrics {
+
+    // 🏷️ Stage names used as tag values
+    public static final String PARSE = "parse";
+    public static final String VALIDATE = "validate";
+    public static final String DEDUP = "dedup";
+    public static final String PERSIST = "persist";
+    public static final String COMMIT_WAIT = "commit-wait";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    private final DistributionSummary fileSize;
+    private final Counter savedDeals;
+    private final Counter unchangedDeals;
+    private final Map<String, Counter> rejectedByReason = new ConcurrentHashMap<>();
+
+    public ImportMetrics(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+        this.fileSize = DistributionSummary.builder("fx.import.file.size")
+                .description("Size of imported CSV files")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.savedDeals = Counter.builder("fx.import.deals.saved")
+                .description("Deals inserted into fx_deals")
+                .register(meterRegistry);
+        this.unchangedDeals = Counter.builder("fx.import.deals.unchanged")
+                .description("Rows skipped by idempotent imports - stored already with the same values")
+                .register(meterRegistry);
+    }
+
+    /**
+     * ▶️ Start the observation of one import - stop it when the import ends.
+     *
+     * @param source "file" or "stream"
+     */
+    public Observation startImport(String source, String fileName) {
+        return Observation.createNotStarted("fx.import", observationRegistry)
+                .contextualName("import " + source)
+                .lowCardinalityKeyValue("source", source)
+                .highCardinalityKeyValue("file.name", String.valueOf(fileName))
+                .start();
+    }
+
+    /**
+     * ⏱️ Run one stage of one chunk as a child of the import observation.
+     *
+     * @param report also gets the time, for the per-import report (may be null)
+     */
+    public <T> T observeStage(String stage, Observation parent, ImportReport report, Supplier<T> work) {
+        long startedAt = System.nanoTime();
+        try {
+            return Observation.createNotStarted("fx.import.stage", observationRegistry)
+                    .contextualName(stage)
+                    .parentObservation(parent)
+                    .lowCardinalityKeyValue("stage", stage)
+                    .observe(work);
+        } finally {
+            if (report != null) {
+                report.stageTime(stage, System.nanoTime() - startedAt);
+            }
+        }
+    }
+
+    public void observeStage(String stage, Observation parent, ImportReport report, Runnable work) {
+        observeStage(stage, parent, report, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public void recordFileSize(long bytes) {
+        if (bytes >= 0) {
+            fileSize.record(bytes);
+        }
+    }
+
+    // ✅ Count what a chunk really wrote (called after its commit)
+    public void chunkCommitted(ImportCounts written) {
+        savedDeals.increment(written.getSuccesses());
+        unchangedDeals.increment(written.getUnchanged());
+        written.getErrorsByReason().forEach((reason, count) -> rejectedByReason
+                .computeIfAbsent(reason, this::rejectedCounter)
+                .increment(count));
+    }
+
+    private Counter rejectedCounter(String reason) {
+        return Counter.builder("fx.import.deals.rejected")
+                .description("Rows rejected during import, by error reason")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
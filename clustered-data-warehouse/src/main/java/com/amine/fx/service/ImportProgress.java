@@ -0,0 +1,110 @@
+package com.amine.fx.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 📈 Live progress of one import, updated by the import threads and read by the status endpoint.
+ * Rows are counted when their chunk commits; bytes are counted as the file is read.
+ * The {@link ImportReport} with the details is attached when the import starts.
+ */
+public class ImportProgress {
+
+    private final AtomicLong totalBytes = new AtomicLong(-1); // -1 = unknown
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong successes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final Map<String, LongAdder> errorsByReason = new ConcurrentHashMap<>();
+    private volatile long startedAtNanos;
+    private volatile ImportReport report;
+
+    public void start(long totalBytes) {
+        this.totalBytes.set(totalBytes);
+        this.startedAtNanos = System.nanoTime();
+    }
+
+    public void addBytesRead(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void attach(ImportReport report) {
+        this.report = report;
+    }
+
+    // ✅ Called once per committed chunk, with what it really wrote
+    void chunkCommitted(DealChunk chunk, ImportCounts written) {
+        successes.addAndGet(written.getSuccesses());
+        errors.addAndGet(written.getErrors());
+        unchanged.addAndGet(written.getUnchanged());
+        written.getErrorsByReason().forEach((reason, count) ->
+                errorsByReason.computeIfAbsent(reason, key -> new LongAdder()).add(count));
+        ImportReport current = report;
+        if (current != null) {
+            current.chunkCommitted(chunk, written);
+        }
+    }
+
+    // 📋 Null until the import started
+    public ImportReport getReport() {
+        return report;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    public long getSuccesses() {
+        return successes.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    // 🔁 Rows an idempotent import found stored already, with the same values
+    public long getUnchanged() {
+        return unchanged.get();
+    }
+
+    // ❓ Snapshot of the committed errors per reason, sorted by reason
+    public Map<String, Long> getErrorsByReason() {
+        Map<String, Long> snapshot = new TreeMap<>();
+        errorsByReason.forEach((reason, count) -> snapshot.put(reason, count.sum()));
+        return snapshot;
+    }
+
+    public long getRowsProcessed() {
+        return successes.get() + errors.get() + unchanged.get();
+    }
+
+    public double getElapsedSeconds() {
+        return startedAtNanos == 0 ? 0 : (System.nanoTime() - startedAtNanos) / 1_000_000_000.0;
+    }
+
+    public long getRowsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds <= 0 ? 0 : Math.round(getRowsProcessed() / seconds);
+    }
+
+    /**
+     * ⏳ Seconds left, estimated from how fast the file has been read so far. -1 if unknown.
+     */
+    public long getEstimatedSecondsRemaining() {
+        long total = totalBytes.get();
+        long read = bytesRead.get();
+        double seconds = getElapsedSeconds();
+        if (total <= 0 || read <= 0 || seconds <= 0) {
+            return -1;
+        }
+        double bytesPerSecond = read / seconds;
+        return Math.round(Math.max(0, total - read) / bytesPerSecond);
+    }
+}
@@ -0,0 +1,245 @@
+package com.amine.fx.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 📋 What one import did: rows per outcome and error reason, the first failures with their record
+ * numbers, time spent per stage and throughput. Built in memory while the import runs, logged as one
+ * line when it ends and served by GET /api/deals/imports/{jobId}/report.
+ *
+ * Every row ends up inserted, rejected or - in an idempotent import - unchanged (stored already, same
+ * values); an idempotent import of content that was imported completely before is SKIPPED as a whole.
+ *
+ * Import threads add to it once per chunk, never per row, so keeping it costs next to nothing - unlike
+ * logging every row. Samples are the failures with the lowest record numbers, whatever order the
+ * pipeline writers commit in. Deals the database refused are counted but not sampled (their record
+ * number is gone by then).
+ */
+public class ImportReport {
+
+    public enum Status { RUNNING, COMPLETED, SKIPPED, FAILED }
+
+    private final String fileName;
+    private final String source;
+    private final int maxSampleFailures;
+    private final Instant startedAt = Instant.now();
+    private final long startedAtNanos = System.nanoTime();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile long durationNanos;
+    private volatile String error;
+
+    // ⚙️ How the rows were imported
+    private volatile boolean parallel;
+    private volatile boolean bulkLoad;
+    private volatile boolean idempotent;
+    private volatile int chunkSize;
+    private volatile long resumedAfterRecord;
+
+    // 🧮 Guarded by this
+    private final ImportCounts counts = new ImportCounts();
+    private long chunks;
+    private final TreeMap<Long, SampleFailure> sampleFailures = new TreeMap<>();
+
+    private final Map<String, StageTime> stages = new ConcurrentHashMap<>();
+    private volatile long bytesRead;
+    private volatile Map<String, Long> duplicateCheck = Map.of();
+
+    public ImportReport(String fileName, String source, int maxSampleFailures) {
+        this.fileName = fileName;
+        this.source = source;
+        this.maxSampleFailures = Math.max(0, maxSampleFailures);
+    }
+
+    void mode(boolean parallel, boolean bulkLoad, boolean idempotent, int chunkSize, long resumedAfterRecord) {
+        this.parallel = parallel;
+        this.bulkLoad = bulkLoad;
+        this.idempotent = idempotent;
+        this.chunkSize = chunkSize;
+        this.resumedAfterRecord = resumedAfterRecord;
+    }
+
+    // ✅ Called once per committed chunk, with what it really wrote
+    void chunkCommitted(DealChunk chunk, ImportCounts written) {
+        synchronized (this) {
+            counts.add(written);
+            chunks++;
+            for (RejectedRow rejected : chunk.rejected()) {
+                long recordNumber = rejected.row().recordNumber();
+                if (sampleFailures.size() == maxSampleFailures) {
+                    if (maxSampleFailures == 0 || recordNumber > sampleFailures.lastKey()) {
+                        break; // Rejected rows of a chunk are in file order - the rest come later still
+                    }
+                    sampleFailures.pollLastEntry();
+                }
+                sampleFailures.put(recordNumber,
+                        new SampleFailure(recordNumber, rejected.row().dealUniqueId(), rejected.reason()));
+            }
+        }
+    }
+
+    // ⏱️ One stage of one chunk
+    void stageTime(String stage, long nanos) {
+        stages.computeIfAbsent(stage, key -> new StageTime()).add(nanos);
+    }
+
+    void duplicateCheck(long databaseLookups, long skippedByBloomFilter, long claimedByOtherImports) {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("databaseLookups", databaseLookups);
+        stats.put("skippedByBloomFilter", skippedByBloomFilter);
+        stats.put("claimedByOtherImports", claimedByOtherImports);
+        this.duplicateCheck = stats;
+    }
+
+    void completed(long bytesRead) {
+        finish(bytesRead, Status.COMPLETED, null);
+    }
+
+    // ⏭️ Same content was imported completely before - nothing was read
+    void skipped() {
+        finish(0, Status.SKIPPED, null);
+    }
+
+    void failed(long bytesRead, String error) {
+        finish(bytesRead, Status.FAILED, error);
+    }
+
+    private void finish(long bytesRead, Status status, String error) {
+        this.bytesRead = bytesRead;
+        this.durationNanos = System.nanoTime() - startedAtNanos;
+        this.finishedAt = Instant.now();
+        this.error = error;
+        this.status = status;
+    }
+
+    public String getFileName() { return fileName; }
+
+    // "file" or "stream"
+    public String getSource() { return source; }
+
+    public Status getStatus() { return status; }
+
+    public String getError() { return error; }
+
+    public Instant getStartedAt() { return startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+
+    // ⏳ Up to now while the import is running
+    public long getDurationMs() {
+        long nanos = status == Status.RUNNING ? System.nanoTime() - startedAtNanos : durationNanos;
+        return Duration.ofNanos(nanos).toMillis();
+    }
+
+    public boolean isParallel() { return parallel; }
+
+    public boolean isBulkLoad() { return bulkLoad; }
+
+    public boolean isIdempotent() { return idempotent; }
+
+    public int getChunkSize() { return chunkSize; }
+
+    // 🔖 Records up to here were imported by an earlier, interrupted run of the same file
+    public long getResumedAfterRecord() { return resumedAfterRecord; }
+
+    public synchronized long getChunks() { return chunks; }
+
+    public synchronized long getRowsProcessed() { return counts.getTotal(); }
+
+    public synchronized long getInserted() { return counts.getSuccesses(); }
+
+    public synchronized long getRejected() { return counts.getErrors(); }
+
+    public synchronized long getUnchanged() { return counts.getUnchanged(); }
+
+    public synchronized Map<String, Long> getErrorsByReason() { return new TreeMap<>(counts.getErrorsByReason()); }
+
+    public synchronized List<SampleFailure> getSampleFailures() { return new ArrayList<>(sampleFailures.values()); }
+
+    // ⏱️ Per stage: chunks, total and average milliseconds - persist includes commit-wait
+    public Map<String, StageTiming> getStages() {
+        Map<String, StageTiming> timings = new LinkedHashMap<>();
+        for (String stage : List.of(ImportMetrics.PARSE, ImportMetrics.VALIDATE, ImportMetrics.DEDUP,
+                ImportMetrics.PERSIST, ImportMetrics.COMMIT_WAIT)) {
+            StageTime time = stages.get(stage);
+            if (time != null) {
+                timings.put(stage, time.snapshot());
+            }
+        }
+        return timings;
+    }
+
+    public Map<String, Long> getDuplicateCheck() { return duplicateCheck; }
+
+    public long getBytesRead() { return bytesRead; }
+
+    public long getRowsPerSecond() {
+        long millis = getDurationMs();
+        return millis <= 0 ? 0 : Math.round(getRowsProcessed() * 1000.0 / millis);
+    }
+
+    // 📝 The log line written when the import ends
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder("file=").append(fileName)
+                .append(" source=").append(source)
+                .append(" status=").append(status)
+                .append(" rows=").append(getRowsProcessed())
+                .append(" inserted=").append(getInserted())
+                .append(" rejected=").append(getRejected())
+                .append(" unchanged=").append(getUnchanged())
+                .append(" chunks=").append(getChunks())
+                .append(" durationMs=").append(getDurationMs())
+                .append(" rowsPerSecond=").append(getRowsPerSecond())
+                .append(" parallel=").append(parallel)
+                .append(" bulkLoad=").append(bulkLoad)
+                .append(" idempotent=").append(idempotent);
+        if (resumedAfterRecord > 0) {
+            line.append(" resumedAfterRecord=").append(resumedAfterRecord);
+        }
+        getStages().forEach((stage, timing) -> line.append(" ").append(stage).append("Ms=")
+                .append(Math.round(timing.totalMs())));
+        if (getRejected() > 0) {
+            line.append(" errorsByReason=").append(getErrorsByReason());
+        }
+        if (error != null) {
+            line.append(" error=\"").append(error).append('"');
+        }
+        return line.toString();
+    }
+
+    /**
+     * @param recordNumber 1-based CSV record (the header doesn't count)
+     */
+    public record SampleFailure(long recordNumber, String dealUniqueId, String reason) {
+    }
+
+    public record StageTiming(long chunks, double totalMs, double averageMs) {
+    }
+
+    private static class StageTime {
+
+        private final LongAdder chunks = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        void add(long elapsed) {
+            chunks.increment();
+            nanos.add(elapsed);
+        }
+
+        StageTiming snapshot() {
+            long count = chunks.sum();
+            double totalMs = nanos.sum() / 1_000_000.0;
+            return new StageTiming(count, totalMs, count == 0 ? 0 : totalMs / count);
+        }
+    }
+}
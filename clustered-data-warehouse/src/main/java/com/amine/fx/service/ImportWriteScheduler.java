@@ -0,0 +1,206 @@
+package com.amine.fx.service;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * 🚦 Shares a global number of chunk writes (each one holds a database connection) between all imports
+ * running at the same time.
+ *
+ * Every import opens a {@link Lane}. A chunk write waits for a slot; when one frees up it goes to the
+ * next lane in round-robin order, so a huge file cannot starve a small one and the total never exceeds
+ * fx.import.writers.max-total, however many imports and pipeline writer threads there are.
+ *
+ * Within a lane slots are handed out strictly in chunk order. Chunks commit in file order, so a chunk
+ * holding a slot only ever waits for earlier chunks that already hold one - no lane can fill every slot
+ * with chunks waiting for a chunk that has none.
+ *
+ * Writers are virtual threads, so the waiting is done on a lock rather than a monitor: a virtual thread
+ * blocked in Object.wait() keeps its carrier thread.
+ */
+@Component
+public class ImportWriteScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportWriteScheduler.class);
+
+    private final int maxWriters;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotGranted = lock.newCondition();
+
+    private int available;
+    private int waiting;
+    private final Deque<Lane> ready = new ArrayDeque<>(); // 🔄 Lanes whose next chunk is waiting, in turn order
+
+    public ImportWriteScheduler(@Value("${fx.import.writers.max-total:6}") int maxWriters,
+                                DataSource dataSource, MeterRegistry meterRegistry) {
+        this.maxWriters = Math.max(1, maxWriters);
+        this.available = this.maxWriters;
+
+        // 🔌 Threads are cheap now - the connection pool is what runs out
+        if (dataSource instanceof HikariDataSource hikari && this.maxWriters >= hikari.getMaximumPoolSize()) {
+            logger.warn("fx.import.writers.max-total={} takes every connection of the pool ({}): queries wait for "
+                    + "imports - lower it or raise spring.datasource.hikari.maximum-pool-size",
+                    this.maxWriters, hikari.getMaximumPoolSize());
+        }
+
+        // 📊 Slots in use / chunk writes waiting for one, over all imports
+        Gauge.builder("fx.import.writers.active", this, ImportWriteScheduler::active)
+                .description("Chunk writes holding one of the shared writer slots")
+                .register(meterRegistry);
+        Gauge.builder("fx.import.writers.waiting", this, ImportWriteScheduler::waiting)
+                .description("Chunk writes waiting for a shared writer slot")
+                .register(meterRegistry);
+    }
+
+    // 🆕 One lane per import
+    public Lane openLane(String name) {
+        return new Lane(name);
+    }
+
+    public int getMaxWriters() {
+        return maxWriters;
+    }
+
+    private int active() {
+        lock.lock();
+        try {
+            return maxWriters - available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int waiting() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(Lane lane, long sequence) {
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket();
+            lane.tickets.put(sequence, ticket);
+            waiting++;
+            if (sequence == lane.nextSequence) {
+                ready.addLast(lane);
+            }
+            dispatch();
+
+            try {
+                while (!ticket.granted) {
+                    slotGranted.await();
+                }
+            } catch (InterruptedException e) {
+                // Import is being aborted - give the slot back if it arrived meanwhile
+                if (ticket.granted) {
+                    release();
+                } else {
+                    lane.tickets.remove(sequence);
+                    ready.remove(lane);
+                    waiting--;
+                }
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a writer slot for chunk " + sequence, e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            available++;
+            dispatch();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ➡️ Hand free slots to the waiting lanes, one slot per lane per turn
+    private void dispatch() {
+        boolean granted = false;
+        while (available > 0 && !ready.isEmpty()) {
+            Lane lane = ready.pollFirst();
+            Ticket ticket = lane.tickets.remove(lane.nextSequence);
+            ticket.granted = true;
+            lane.nextSequence++;
+            available--;
+            waiting--;
+            granted = true;
+            if (lane.tickets.containsKey(lane.nextSequence)) {
+                ready.addLast(lane); // Back of the line - other imports go first
+            }
+        }
+        if (granted) {
+            slotGranted.signalAll();
+        }
+    }
+
+    private void close(Lane lane) {
+        lock.lock();
+        try {
+            ready.remove(lane);
+            waiting -= lane.tickets.size();
+            lane.tickets.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Ticket {
+        private boolean granted;
+    }
+
+    /**
+     * Writer slots of one import. Chunk sequences start at 0 and must be written without gaps.
+     */
+    public class Lane implements AutoCloseable {
+
+        private final String name;
+        private final Map<Long, Ticket> tickets = new HashMap<>(); // ⏳ Waiting chunks by sequence
+        private long nextSequence;                                 // Next chunk that may get a slot
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        // 💾 Run the write of one chunk while holding a slot
+        public <T> T write(long sequence, Supplier<T> work) {
+            acquire(this, sequence);
+            try {
+                return work.get();
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        public void close() {
+            ImportWriteScheduler.this.close(this);
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
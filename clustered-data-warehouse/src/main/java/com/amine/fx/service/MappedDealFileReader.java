@@ -0,0 +1,338 @@
+package com.amine.fx.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 🗺️ Reads a big local deals file by memory-mapping it and parsing newline-aligned segments in parallel.
+ *
+ * Each segment is parsed on the fork-join pool by a {@link DealRowDecoder}. Rows still come out in file
+ * order, and record numbers are exact: every segment first counts its records, and a running total of
+ * those counts (a prefix sum) tells the next segment where its numbering starts.
+ *
+ * Quoted fields may contain line breaks, so splitting at line breaks is only safe before the first quote.
+ * From the first record with a quote on, the rest of the file is read by one plain {@link DealRowDecoder}
+ * (which hands quoted input to commons-csv).
+ *
+ * Given a digest, the file is hashed on the way: the header, then each segment as it is taken, in file order,
+ * then the sequential tail through the stream that reads it.
+ */
+final class MappedDealFileReader implements Iterator<DealRow>, Closeable {
+
+    private static final int ALIGN_BUFFER_SIZE = 8 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int segmentSize;
+    private final int maxSegmentsInFlight;
+    private final ForkJoinPool pool;
+    private final ImportProgress progress;
+    private final MessageDigest digest; // 🔑 null = don't hash
+
+    private String[] headerNames;
+    private long nextSegmentStart;
+
+    // ⏳ Segments being parsed, oldest first, and the record count before the newest one
+    private final Deque<CompletableFuture<ParsedSegment>> inFlight = new ArrayDeque<>();
+    private CompletableFuture<Long> recordsBeforeNext = CompletableFuture.completedFuture(0L);
+
+    private Iterator<DealRow> currentRows = Collections.emptyIterator();
+    private DealRowDecoder sequentialTail; // 🐢 From the first quoted record on
+    private InputStream tailInput;
+
+    /**
+     * @param segmentSize bytes per segment (rounded up to the next line break)
+     * @param parallelism segments parsed at the same time; twice as many are kept ready, which bounds the memory used
+     */
+    MappedDealFileReader(Path path, int segmentSize, int parallelism, ImportProgress progress) throws IOException {
+        this(path, segmentSize, parallelism, progress, null);
+    }
+
+    /**
+     * @param digest receives every byte of the file in file order, see {@link #finishHash()} (null = don't hash)
+     */
+    MappedDealFileReader(Path path, int segmentSize, int parallelism, ImportProgress progress, MessageDigest digest)
+            throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+        this.segmentSize = Math.max(ALIGN_BUFFER_SIZE, segmentSize);
+        this.maxSegmentsInFlight = Math.max(1, parallelism) * 2;
+        this.pool = new ForkJoinPool(Math.max(1, parallelism));
+        this.progress = progress;
+        this.digest = digest;
+
+        try {
+            readHeader();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // 📋 The header is the first non-empty line; an unusual one means the whole file is read sequentially
+    private void readHeader() throws IOException {
+        long start = skipLineBreaks(0);
+        long end = nextLineBreak(start);
+        if (end - start > Integer.MAX_VALUE - 8) {
+            throw new IOException("CSV header line is too long");
+        }
+        byte[] line = read(start, (int) (end - start));
+        headerNames = new DealRowDecoder(line, 0, line.length, null, 0).header();
+
+        if (headerNames == null) {
+            startSequentialTail(0, null, 0);
+        } else {
+            if (digest != null) {
+                digest.update(read(0, (int) end)); // Blank lines before the header included
+            }
+            nextSegmentStart = end;
+            progress.addBytesRead(end);
+            fillWindow();
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentRows.hasNext()) {
+            if (sequentialTail != null) {
+                return sequentialTail.hasNext();
+            }
+            if (inFlight.isEmpty()) {
+                return false;
+            }
+            ParsedSegment segment = join(inFlight.removeFirst());
+            if (digest != null) {
+                // Up to the quoted record - the sequential tail hashes the rest
+                digest.update(segment.bytes(), 0, segment.parseLimit());
+            }
+            currentRows = segment.rows().iterator();
+            if (segment.quotedRecordAt() >= 0) {
+                // Stop splitting - everything after this point may contain quoted line breaks
+                cancelInFlight();
+                startSequentialTail(segment.quotedRecordAt(), headerNames, segment.recordsBefore() + segment.rows().size());
+            } else {
+                fillWindow();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public DealRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentRows.hasNext() ? currentRows.next() : sequentialTail.next();
+    }
+
+    // ⏩ Keep enough segments queued so all pool threads have work
+    private void fillWindow() {
+        while (inFlight.size() < maxSegmentsInFlight && nextSegmentStart < fileSize) {
+            long start = nextSegmentStart;
+            long end = alignedEnd(start);
+            nextSegmentStart = end;
+
+            CompletableFuture<LoadedSegment> loaded = CompletableFuture.supplyAsync(() -> load(start, end), pool);
+            CompletableFuture<Long> recordsBefore = recordsBeforeNext;
+            inFlight.addLast(loaded.thenCombineAsync(recordsBefore, this::parse, pool));
+            recordsBeforeNext = recordsBefore.thenCombine(loaded, (before, segment) -> before + segment.recordCount());
+        }
+    }
+
+    /**
+     * 🗺️ Map the segment, copy it to the heap (rows keep pointing into it) and count its records up to
+     * the first one with a quote.
+     */
+    private LoadedSegment load(long start, long end) {
+        try {
+            if (end - start > Integer.MAX_VALUE - 8) {
+                throw new IOException("CSV line starting near byte " + start + " is too long");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            byte[] bytes = new byte[(int) (end - start)];
+            mapped.get(bytes);
+            progress.addBytesRead(bytes.length);
+
+            int records = 0;
+            int i = 0;
+            while (i < bytes.length) {
+                if (bytes[i] == '\n' || bytes[i] == '\r') {
+                    i++;
+                    continue;
+                }
+                int recordStart = i;
+                boolean quoted = false;
+                while (i < bytes.length && bytes[i] != '\n' && bytes[i] != '\r') {
+                    quoted |= bytes[i] == '"';
+                    i++;
+                }
+                if (quoted) {
+                    return new LoadedSegment(start, bytes, recordStart, records);
+                }
+                records++;
+            }
+            return new LoadedSegment(start, bytes, bytes.length, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ParsedSegment parse(LoadedSegment segment, long recordsBefore) {
+        DealRowDecoder decoder = new DealRowDecoder(segment.bytes(), 0, segment.parseLimit(), headerNames, recordsBefore);
+        List<DealRow> rows = new ArrayList<>(segment.recordCount());
+        decoder.forEachRemaining(rows::add);
+        long quotedRecordAt = segment.parseLimit() < segment.bytes().length ? segment.start() + segment.parseLimit() : -1;
+        return new ParsedSegment(rows, recordsBefore, quotedRecordAt, segment.bytes(), segment.parseLimit());
+    }
+
+    private void startSequentialTail(long offset, String[] header, long recordsBefore) {
+        try {
+            InputStream rest = Channels.newInputStream(channel.position(offset));
+            // The channel stays open for finishHash() - close() closes it
+            tailInput = digest != null ? new DigestInputStream(DealChunkReader.keepOpen(rest), digest) : rest;
+            CountingInputStream counted = new CountingInputStream(tailInput, progress);
+            sequentialTail = header == null
+                    ? new DealRowDecoder(counted)
+                    : new DealRowDecoder(counted, header, recordsBefore);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // 📏 Segment end: the first line break at or after start + segmentSize (or the end of the file)
+    private long alignedEnd(long start) {
+        long nominal = start + segmentSize;
+        if (nominal >= fileSize) {
+            return fileSize;
+        }
+        try {
+            return nextLineBreak(nominal);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Position of the next \n or \r at or after from, or the file size
+    private long nextLineBreak(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ALIGN_BUFFER_SIZE);
+        long position = from;
+        while (position < fileSize) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = buffer.get(i);
+                if (b == '\n' || b == '\r') {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    private long skipLineBreaks(long from) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1);
+        long position = from;
+        while (position < fileSize) {
+            buffer.clear();
+            channel.read(buffer, position);
+            byte b = buffer.get(0);
+            if (b != '\n' && b != '\r') {
+                break;
+            }
+            position++;
+        }
+        return position;
+    }
+
+    private byte[] read(long start, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 🔑 Hex SHA-256 of the whole file - once every row was taken. Bytes the tail decoder didn't need (after
+     * the last record) are read into the digest here.
+     */
+    String finishHash() throws IOException {
+        if (tailInput != null) {
+            tailInput.transferTo(OutputStream.nullOutputStream());
+        }
+        return FileFingerprints.hex(digest);
+    }
+
+    private ParsedSegment join(CompletableFuture<ParsedSegment> segment) {
+        try {
+            return segment.join();
+        } catch (CompletionException e) {
+            cancelInFlight();
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private void cancelInFlight() {
+        inFlight.forEach(segment -> segment.cancel(false));
+        inFlight.clear();
+        nextSegmentStart = fileSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cancelInFlight();
+        pool.shutdownNow();
+        try {
+            if (sequentialTail != null) {
+                sequentialTail.close();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * @param parseLimit  end of the quote-free part (= bytes.length when the segment has no quote)
+     * @param recordCount records before parseLimit
+     */
+    private record LoadedSegment(long start, byte[] bytes, int parseLimit, int recordCount) {
+    }
+
+    /**
+     * @param quotedRecordAt file offset of the first record with a quote, -1 if there is none
+     * @param bytes          the segment (its rows point into it), parsed up to parseLimit
+     */
+    private record ParsedSegment(List<DealRow> rows, long recordsBefore, long quotedRecordAt, byte[] bytes,
+                                 int parseLimit) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import org.apache.parquet.conf.ParquetConfiguration;
+import org.apache.parquet.conf.PlainParquetConfiguration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.LocalOutputFile;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 🧱 Writes deals to one Parquet file with parquet-java:
+ * <pre>
+ *   id              INT64
+ *   deal_unique_id  BYTE_ARRAY  (STRING)
+ *   from_currency   BYTE_ARRAY  (STRING)
+ *   to_currency     BYTE_ARRAY  (STRING)
+ *   deal_timestamp  INT64       (TIMESTAMP millis, UTC)
+ *   amount          FIXED_LEN_BYTE_ARRAY(9)  (DECIMAL(19, 4), same as fx_deals.amount)
+ * </pre>
+ * parquet-java buffers a row group in memory until it reaches rowGroupSize bytes, then writes it with
+ * min/max statistics on every column chunk, so readers can skip row groups.
+ *
+ * Not thread-safe. The file only becomes readable once {@link #close()} wrote the footer.
+ */
+final class ParquetDealWriter implements Closeable {
+
+    enum Compression {
+        UNCOMPRESSED(CompressionCodecName.UNCOMPRESSED), GZIP(CompressionCodecName.GZIP);
+
+        private final CompressionCodecName codec;
+
+        Compression(CompressionCodecName codec) {
+            this.codec = codec;
+        }
+    }
+
+    static final MessageType SCHEMA = Types.buildMessage()
+            .required(PrimitiveTypeName.INT64).named("id")
+            .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("deal_unique_id")
+            .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("from_currency")
+            .required(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named("to_currency")
+            .required(PrimitiveTypeName.INT64)
+            .as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named("deal_timestamp")
+            .required(PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY).length(DealWriteSupport.AMOUNT_BYTES)
+            .as(LogicalTypeAnnotation.decimalType(DealWriteSupport.AMOUNT_SCALE, DealWriteSupport.AMOUNT_PRECISION))
+            .named("amount")
+            .named("deal");
+
+    private final ParquetWriter<Deal> writer;
+    private long rows;
+
+    ParquetDealWriter(Path file, Compression compression, long rowGroupSize) throws IOException {
+        this.writer = new Builder(new LocalOutputFile(file))
+                .withConf(new PlainParquetConfiguration()) // No Hadoop Configuration - nothing is read from a classpath XML
+                .withCompressionCodec(compression.codec)
+                .withRowGroupSize(Math.max(1, rowGroupSize))
+                .build();
+    }
+
+    void write(Deal deal) throws IOException {
+        writer.write(deal);
+        rows++;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    // 🦶 Last row group and footer
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private static final class Builder extends ParquetWriter.Builder<Deal, Builder> {
+
+        private Builder(OutputFile file) {
+            super(file);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Deal> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
+            return new DealWriteSupport();
+        }
+
+        @Override
+        protected WriteSupport<Deal> getWriteSupport(ParquetConfiguration conf) {
+            return new DealWriteSupport();
+        }
+    }
+
+    // 🧮 One deal = one record of the six required columns
+    private static final class DealWriteSupport extends WriteSupport<Deal> {
+
+        static final int AMOUNT_SCALE = 4;
+        static final int AMOUNT_PRECISION = 19;
+        static final int AMOUNT_BYTES = 9; // Smallest two's complement that holds 19 digits
+
+        private RecordConsumer consumer;
+
+        @Override
+        public WriteContext init(org.apache.hadoop.conf.Configuration configuration) {
+            return new WriteContext(SCHEMA, Map.of());
+        }
+
+        @Override
+        public WriteContext init(ParquetConfiguration configuration) {
+            return new WriteContext(SCHEMA, Map.of());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.consumer = recordConsumer;
+        }
+
+        @Override
+        public void write(Deal deal) {
+            consumer.startMessage();
+            writeLong(0, "id", deal.getId());
+            writeString(1, "deal_unique_id", deal.getDealUniqueId());
+            writeString(2, "from_currency", deal.getFromCurrency());
+            writeString(3, "to_currency", deal.getToCurrency());
+            writeLong(4, "deal_timestamp", deal.getDealTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+            consumer.startField("amount", 5);
+            consumer.addBinary(Binary.fromConstantByteArray(amountBytes(deal.getAmount())));
+            consumer.endField("amount", 5);
+            consumer.endMessage();
+        }
+
+        private void writeLong(int index, String name, long value) {
+            consumer.startField(name, index);
+            consumer.addLong(value);
+            consumer.endField(name, index);
+        }
+
+        private void writeString(int index, String name, String value) {
+            consumer.startField(name, index);
+            consumer.addBinary(Binary.fromString(value));
+            consumer.endField(name, index);
+        }
+
+        // 💰 Big-endian two's complement of the unscaled value, sign-extended to AMOUNT_BYTES
+        private static byte[] amountBytes(BigDecimal amount) {
+            BigInteger unscaled = amount.setScale(AMOUNT_SCALE, RoundingMode.UNNECESSARY).unscaledValue();
+            byte[] minimal = unscaled.toByteArray();
+            if (minimal.length > AMOUNT_BYTES) {
+                throw new IllegalArgumentException("Amount does not fit DECIMAL(19, 4): " + amount);
+            }
+            byte[] bytes = new byte[AMOUNT_BYTES];
+            Arrays.fill(bytes, 0, AMOUNT_BYTES - minimal.length, (byte) (unscaled.signum() < 0 ? -1 : 0));
+            System.arraycopy(minimal, 0, bytes, AMOUNT_BYTES - minimal.length, minimal.length);
+            return bytes;
+        }
+    }
+}
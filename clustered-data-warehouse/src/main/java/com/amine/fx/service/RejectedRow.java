@@ -0,0 +1,11 @@
+package com.amine.fx.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * A row that will end up in fx_deal_errors, with the reason why.
+ *
+ * @param timestamp the deal timestamp if validation already parsed it, otherwise null
+ */
+public record RejectedRow(DealRow row, String reason, LocalDateTime timestamp) {
+}
@@ -0,0 +1,69 @@
+package com.amine.fx.service;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 🎲 Logs an event at most once per interval and counts the ones it left out, for events that can happen
+ * for every chunk or row of a big file - a file full of bad rows would otherwise mostly measure the console.
+ * The next event that gets through tells how many were skipped since; the report has the exact numbers.
+ *
+ * Lock-free: a skipped event costs one clock read and a counter increment.
+ */
+final class SampledLogger {
+
+    private static final String SKIPPED = " ({} similar events not logged since the previous one)";
+
+    private final Logger logger;
+    private final long intervalNanos;
+    private final AtomicLong nextAllowedAt = new AtomicLong(System.nanoTime());
+    private final LongAdder skipped = new LongAdder();
+
+    SampledLogger(Logger logger, Duration interval) {
+        this.logger = logger;
+        this.intervalNanos = Math.max(0, interval.toNanos());
+    }
+
+    void warn(String format, Object... arguments) {
+        if (logger.isWarnEnabled() && admit()) {
+            long skippedSince = skipped.sumThenReset();
+            if (skippedSince == 0) {
+                logger.warn(format, arguments);
+            } else {
+                logger.warn(format + SKIPPED, append(arguments, skippedSince));
+            }
+        }
+    }
+
+    void error(String format, Object... arguments) {
+        if (logger.isErrorEnabled() && admit()) {
+            long skippedSince = skipped.sumThenReset();
+            if (skippedSince == 0) {
+                logger.error(format, arguments);
+            } else {
+                logger.error(format + SKIPPED, append(arguments, skippedSince));
+            }
+        }
+    }
+
+    // 🎟️ True for the first event of each interval
+    private boolean admit() {
+        long now = System.nanoTime();
+        long allowedAt = nextAllowedAt.get();
+        if (now - allowedAt < 0 || !nextAllowedAt.compareAndSet(allowedAt, now + intervalNanos)) {
+            skipped.increment();
+            return false;
+        }
+        return true;
+    }
+
+    private static Object[] append(Object[] arguments, long skippedSince) {
+        Object[] extended = Arrays.copyOf(arguments, arguments.length + 1);
+        extended[arguments.length] = skippedSince;
+        return extended;
+    }
+}
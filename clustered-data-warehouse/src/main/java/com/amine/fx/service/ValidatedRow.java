@@ -0,0 +1,40 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+
+import java.time.LocalDateTime;
+
+/**
+ * Result of checking one {@link DealRow} on its own (everything except the duplicate check,
+ * which needs the rows in file order).
+ *
+ * @param deal          the converted deal when every check passed, otherwise null
+ * @param error         the first failed check, or null
+ * @param missingFields true when the row failed the "required fields" check, which is
+ *                      reported before the duplicate check
+ * @param timestamp     the deal timestamp if it was parsed before a later check failed (kept for the error record)
+ */
+public record ValidatedRow(DealRow row, CompactDeal deal, String error, boolean missingFields, LocalDateTime timestamp) {
+
+    public static ValidatedRow valid(DealRow row, CompactDeal deal) {
+        return new ValidatedRow(row, deal, null, false, null);
+    }
+
+    // ⏰ For valid rows built from the deal on demand - only a duplicate needs it, for its error record
+    @Override
+    public LocalDateTime timestamp() {
+        return deal != null ? deal.dealTimestamp() : timestamp;
+    }
+
+    public static ValidatedRow missingFields(DealRow row, String error) {
+        return new ValidatedRow(row, null, error, true, row.decodedTimestamp());
+    }
+
+    public static ValidatedRow invalid(DealRow row, String error) {
+        return new ValidatedRow(row, null, error, false, null);
+    }
+
+    public static ValidatedRow invalid(DealRow row, String error, LocalDateTime timestamp) {
+        return new ValidatedRow(row, null, error, false, timestamp);
+    }
+}
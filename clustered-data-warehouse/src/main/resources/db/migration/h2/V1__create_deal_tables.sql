@@ -0,0 +1,42 @@
+-- Same tables as db/migration/mysql for the in-memory test database, without the partitioning
+CREATE TABLE fx_deals (
+    id             BIGINT         NOT NULL AUTO_INCREMENT,
+    deal_unique_id VARCHAR(255)   NOT NULL,
+    from_currency  VARCHAR(3)     NOT NULL,
+    to_currency    VARCHAR(3)     NOT NULL,
+    deal_timestamp TIMESTAMP(6)   NOT NULL,
+    amount         DECIMAL(19, 4) NOT NULL,
+    PRIMARY KEY (id, deal_timestamp)
+);
+CREATE INDEX idx_fx_deals_deal_unique_id ON fx_deals (deal_unique_id);
+
+CREATE TABLE fx_deal_keys (
+    deal_unique_id VARCHAR(255) NOT NULL,
+    deal_timestamp TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (deal_unique_id)
+);
+CREATE INDEX idx_fx_deal_keys_deal_timestamp ON fx_deal_keys (deal_timestamp);
+
+CREATE TABLE fx_deal_errors (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    deal_unique_id VARCHAR(255),
+    from_currency  VARCHAR(255),
+    to_currency    VARCHAR(255),
+    deal_timestamp TIMESTAMP(6),
+    amount         VARCHAR(255),
+    error_reason   VARCHAR(500) NOT NULL,
+    occurred_at    TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE fx_import_checkpoints (
+    id                    BIGINT       NOT NULL AUTO_INCREMENT,
+    file_hash             VARCHAR(64)  NOT NULL,
+    file_name             VARCHAR(500),
+    last_committed_record BIGINT       NOT NULL,
+    status                VARCHAR(20)  NOT NULL,
+    started_at            TIMESTAMP(6) NOT NULL,
+    updated_at            TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_fx_import_checkpoints_file_hash UNIQUE (file_hash)
+);
@@ -0,0 +1,3 @@
+-- Same indexes as db/migration/mysql
+CREATE INDEX idx_fx_deals_pair_time ON fx_deals (from_currency, to_currency, deal_timestamp, id);
+CREATE INDEX idx_fx_deals_time ON fx_deals (deal_timestamp, id);
@@ -0,0 +1,13 @@
+-- Same table as db/migration/mysql (the tests fill it with JDBC batches instead of LOAD DATA)
+CREATE TABLE fx_deal_staging (
+    load_id        BIGINT       NOT NULL,
+    seq            INT          NOT NULL,
+    deal_unique_id VARCHAR(255),
+    from_currency  VARCHAR(255),
+    to_currency    VARCHAR(255),
+    deal_timestamp TIMESTAMP(6),
+    amount         VARCHAR(255),
+    error_reason   VARCHAR(500),
+    occurred_at    TIMESTAMP(6),
+    PRIMARY KEY (load_id, seq)
+);
@@ -0,0 +1,8 @@
+-- Same table as db/migration/mysql
+CREATE TABLE fx_deal_export_watermarks (
+    shard_index  INT          NOT NULL,
+    last_deal_id BIGINT       NOT NULL,
+    last_run     BIGINT       NOT NULL,
+    updated_at   TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (shard_index)
+);
@@ -0,0 +1,3 @@
+-- Same columns as db/migration/mysql
+ALTER TABLE fx_deal_keys ADD COLUMN checkpoint_id BIGINT NULL;
+ALTER TABLE fx_deal_keys ADD COLUMN chunk_first_record BIGINT NULL;
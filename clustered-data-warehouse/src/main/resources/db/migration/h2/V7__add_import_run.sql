@@ -0,0 +1,3 @@
+-- Same columns as db/migration/mysql
+ALTER TABLE fx_import_checkpoints ADD COLUMN run_number INT NOT NULL DEFAULT 1;
+ALTER TABLE fx_deal_keys ADD COLUMN import_run INT NULL;
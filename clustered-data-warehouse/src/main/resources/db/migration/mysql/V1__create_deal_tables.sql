@@ -0,0 +1,53 @@
+-- 📊 Deals, range-partitioned by deal_timestamp.
+-- MySQL wants the partitioning column in every unique key, so the primary key is (id, deal_timestamp)
+-- and the "deal ID exists only once" rule lives in fx_deal_keys.
+-- Only two partitions to start with: DealPartitionMaintainer splits dated ones off p_future
+-- (monthly or daily) on startup and every night.
+CREATE TABLE fx_deals (
+    id             BIGINT         NOT NULL AUTO_INCREMENT,
+    deal_unique_id VARCHAR(255)   NOT NULL,
+    from_currency  VARCHAR(3)     NOT NULL,
+    to_currency    VARCHAR(3)     NOT NULL,
+    deal_timestamp DATETIME(6)    NOT NULL,
+    amount         DECIMAL(19, 4) NOT NULL,
+    PRIMARY KEY (id, deal_timestamp),
+    KEY idx_fx_deals_deal_unique_id (deal_unique_id)
+) ENGINE = InnoDB
+PARTITION BY RANGE COLUMNS (deal_timestamp) (
+    PARTITION p_start VALUES LESS THAN ('2000-01-01 00:00:00'),
+    PARTITION p_future VALUES LESS THAN (MAXVALUE)
+);
+
+-- 🔑 Global uniqueness of deal IDs (and the partition each deal lives in)
+CREATE TABLE fx_deal_keys (
+    deal_unique_id VARCHAR(255) NOT NULL,
+    deal_timestamp DATETIME(6)  NOT NULL,
+    PRIMARY KEY (deal_unique_id),
+    KEY idx_fx_deal_keys_deal_timestamp (deal_timestamp)
+) ENGINE = InnoDB;
+
+-- ❌ Rejected rows, with the raw values from the file
+CREATE TABLE fx_deal_errors (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    deal_unique_id VARCHAR(255),
+    from_currency  VARCHAR(255),
+    to_currency    VARCHAR(255),
+    deal_timestamp DATETIME(6),
+    amount         VARCHAR(255),
+    error_reason   VARCHAR(500) NOT NULL,
+    occurred_at    DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+-- 🔖 How far each file import got
+CREATE TABLE fx_import_checkpoints (
+    id                    BIGINT       NOT NULL AUTO_INCREMENT,
+    file_hash             VARCHAR(64)  NOT NULL,
+    file_name             VARCHAR(500),
+    last_committed_record BIGINT       NOT NULL,
+    status                VARCHAR(20)  NOT NULL,
+    started_at            DATETIME(6)  NOT NULL,
+    updated_at            DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_fx_import_checkpoints_file_hash (file_hash)
+) ENGINE = InnoDB;
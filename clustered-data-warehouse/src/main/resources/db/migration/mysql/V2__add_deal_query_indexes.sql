@@ -0,0 +1,5 @@
+-- 🔎 Indexes for GET /api/deals and /api/deals/export, which read in (deal_timestamp, id) order.
+-- Currency pair + time range: one index range scan, already in the requested order (no filesort).
+CREATE INDEX idx_fx_deals_pair_time ON fx_deals (from_currency, to_currency, deal_timestamp, id);
+-- Time range alone (and the keyset "after (deal_timestamp, id)" condition)
+CREATE INDEX idx_fx_deals_time ON fx_deals (deal_timestamp, id);
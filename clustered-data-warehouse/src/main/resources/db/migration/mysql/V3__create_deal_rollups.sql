@@ -0,0 +1,21 @@
+-- 📈 Per currency pair and day: count, sum, min and max of the deal amounts.
+-- Kept up to date by every import chunk in the same transaction as its deals (DealChunkWriter),
+-- so analysts read a few rows per pair and day instead of aggregating fx_deals.
+-- Not partitioned: it keeps the totals of deals whose partitions were dropped by the retention.
+CREATE TABLE fx_deal_rollups (
+    from_currency VARCHAR(3)     NOT NULL,
+    to_currency   VARCHAR(3)     NOT NULL,
+    deal_date     DATE           NOT NULL,
+    deal_count    BIGINT         NOT NULL,
+    total_amount  DECIMAL(38, 4) NOT NULL,
+    min_amount    DECIMAL(19, 4) NOT NULL,
+    max_amount    DECIMAL(19, 4) NOT NULL,
+    PRIMARY KEY (from_currency, to_currency, deal_date),
+    KEY idx_fx_deal_rollups_deal_date (deal_date)
+) ENGINE = InnoDB;
+
+-- Deals imported before this table existed
+INSERT INTO fx_deal_rollups (from_currency, to_currency, deal_date, deal_count, total_amount, min_amount, max_amount)
+SELECT from_currency, to_currency, CAST(deal_timestamp AS DATE), COUNT(*), SUM(amount), MIN(amount), MAX(amount)
+FROM fx_deals
+GROUP BY from_currency, to_currency, CAST(deal_timestamp AS DATE);
@@ -0,0 +1,18 @@
+-- 🚚 Landing table of the bulk-load import (DealStagingJdbcRepository). A chunk is loaded here with
+-- LOAD DATA LOCAL INFILE - valid deals and rejected rows alike - then moved into fx_deals, fx_deal_keys
+-- and fx_deal_errors with set-based INSERT ... SELECT and deleted again, all in the chunk's transaction,
+-- so committed data never stays behind in this table.
+-- Amounts are staged as text: converting them on the way into fx_deals fails loudly on overflow,
+-- where LOAD DATA LOCAL would only clamp the value with a warning.
+CREATE TABLE fx_deal_staging (
+    load_id        BIGINT       NOT NULL,
+    seq            INT          NOT NULL,
+    deal_unique_id VARCHAR(255),
+    from_currency  VARCHAR(255),
+    to_currency    VARCHAR(255),
+    deal_timestamp DATETIME(6),
+    amount         VARCHAR(255),
+    error_reason   VARCHAR(500),
+    occurred_at    DATETIME(6),
+    PRIMARY KEY (load_id, seq)
+) ENGINE = InnoDB;
@@ -0,0 +1,10 @@
+-- 📦 How far the Parquet export (DealParquetExporter) got, per shard (shard 0 = the only one when not sharded).
+-- The next run exports the deals with a higher id. last_run numbers the files a run writes, so the files of a
+-- run that died before updating this table are recognised and deleted by the next one.
+CREATE TABLE fx_deal_export_watermarks (
+    shard_index  INT         NOT NULL,
+    last_deal_id BIGINT      NOT NULL,
+    last_run     BIGINT      NOT NULL,
+    updated_at   DATETIME(6) NOT NULL,
+    PRIMARY KEY (shard_index)
+) ENGINE = InnoDB;
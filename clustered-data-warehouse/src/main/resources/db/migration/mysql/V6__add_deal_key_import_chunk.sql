@@ -0,0 +1,6 @@
+-- 🧩 Which import chunk claimed each deal ID: the fx_import_checkpoints id of the import and the first record of
+-- the chunk. Sharded, a chunk commits on its shards before its checkpoint commits on the primary; a resumed
+-- import recognises the deals it stored itself in between by these, instead of reporting them as duplicates.
+-- Nullable columns at the end of the table - added in place (ALGORITHM=INSTANT), the keys are not rewritten.
+ALTER TABLE fx_deal_keys ADD COLUMN checkpoint_id BIGINT NULL;
+ALTER TABLE fx_deal_keys ADD COLUMN chunk_first_record BIGINT NULL;
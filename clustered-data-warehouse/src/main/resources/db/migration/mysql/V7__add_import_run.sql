@@ -0,0 +1,6 @@
+-- 🔁 Every start of an import is a run: 1 for a fresh import, one more each time it is resumed. Deal keys record the
+-- run that claimed them, so a resumed import only takes over the keys its earlier runs left behind - a deal it
+-- stored itself and meets again further down the file (once its chunk is no longer held in memory) is a plain
+-- duplicate. Nullable column at the end of fx_deal_keys, added in place like checkpoint_id.
+ALTER TABLE fx_import_checkpoints ADD COLUMN run_number INT NOT NULL DEFAULT 1;
+ALTER TABLE fx_deal_keys ADD COLUMN import_run INT NULL;
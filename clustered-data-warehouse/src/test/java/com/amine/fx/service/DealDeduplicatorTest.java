@@ -0,0 +1,121 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import com.amine.fx.repository.DealJdbcRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives a {@link DealDeduplicator.Session} chunk by chunk, with and without the Bloom filter in front of the
+ * per-chunk IN lookup on fx_deal_keys.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DealDeduplicatorTest {
+
+    private static final int CHUNK_SIZE = 10;
+    private static final int ROWS = 100;
+
+    @Autowired
+    private DealJdbcRepository dealJdbcRepository;
+
+    @Autowired
+    private DealLookupService dealLookupService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final DealValidator validator = new DealValidator();
+
+    // 🧹 After as well: the in-memory database is shared with the other test classes
+    @BeforeEach
+    @AfterEach
+    void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        jdbcTemplate.update("DELETE FROM fx_deal_rollups");
+        jdbcTemplate.update("DELETE FROM fx_deal_errors");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+        dealLookupService.invalidateAll();
+    }
+
+    @ParameterizedTest(name = "bloom filter enabled = {0}")
+    @ValueSource(booleans = {false, true})
+    void repeatsAreFoundAcrossChunkBoundariesAndInTheDatabase(boolean bloomFilterEnabled) {
+        // 🗄️ S0..S4 are stored before the file is read
+        for (int i = 0; i < 5; i++) {
+            insertDeal("S" + i);
+        }
+        DealDeduplicator deduplicator = new DealDeduplicator(dealJdbcRepository, bloomFilterEnabled, 1_000, 0.01, 1_000);
+
+        // F0..F99, except that rows 40-44 repeat F0-F4 (four chunks later), rows 60-64 repeat the stored
+        // S0-S4 and row 95 repeats F50 - every copy sits in another chunk than the first occurrence
+        List<DealRow> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            String id = "F" + i;
+            if (i >= 40 && i < 45) {
+                id = "F" + (i - 40);
+            } else if (i >= 60 && i < 65) {
+                id = "S" + (i - 60);
+            } else if (i == 95) {
+                id = "F50";
+            }
+            rows.add(new DealRow(i + 1, id, "EUR", "USD", "2025-11-10T10:%02d:00".formatted(i % 60), i + 1 + ".25"));
+        }
+
+        List<CompactDeal> accepted = new ArrayList<>();
+        Map<Long, String> rejected = new HashMap<>();
+        long chunks = 0;
+        try (DealDeduplicator.Session session = deduplicator.newSession()) {
+            for (int from = 0; from < ROWS; from += CHUNK_SIZE) {
+                List<ValidatedRow> chunk = rows.subList(from, from + CHUNK_SIZE).stream()
+                        .map(validator::validate)
+                        .toList();
+                DealChunk resolved = session.resolve(chunks++, chunk);
+                accepted.addAll(resolved.deals());
+                resolved.rejected().forEach(row -> rejected.put(row.row().recordNumber(), row.reason()));
+            }
+
+            // 📊 89 new IDs and the 5 stored ones were claimed - each was either looked up or skipped by the filter
+            long newIds = ROWS - 11;
+            if (bloomFilterEnabled) {
+                assertThat(session.getSkippedByBloomFilter()).isPositive();
+                // 🌸 The stored IDs are always in the filter, so they still reach the IN lookup
+                assertThat(session.getDatabaseLookups()).isGreaterThanOrEqualTo(5);
+                assertThat(session.getSkippedByBloomFilter() + session.getDatabaseLookups()).isEqualTo(newIds + 5);
+            } else {
+                assertThat(session.getSkippedByBloomFilter()).isZero();
+                assertThat(session.getDatabaseLookups()).isEqualTo(newIds + 5);
+            }
+        }
+
+        // ✅ First occurrences win, every later copy is a duplicate - whichever chunk it lands in
+        assertThat(accepted).hasSize(ROWS - 11);
+        assertThat(accepted).extracting(CompactDeal::dealUniqueId).doesNotHaveDuplicates()
+                .noneMatch(id -> id.startsWith("S"));
+        assertThat(rejected.keySet()).containsExactlyInAnyOrder(41L, 42L, 43L, 44L, 45L, 61L, 62L, 63L, 64L, 65L, 96L);
+        assertThat(Set.copyOf(rejected.values())).containsExactly(DealValidator.DUPLICATE_DEAL_ID);
+        assertThat(deduplicator.getClaimedDealIds()).isZero();
+    }
+
+    private void insertDeal(String dealUniqueId) {
+        jdbcTemplate.update("INSERT INTO fx_deals (deal_unique_id, from_currency, to_currency, deal_timestamp, amount)"
+                + " VALUES (?, 'GBP', 'USD', TIMESTAMP '2025-11-01 09:00:00', 10)", dealUniqueId);
+        jdbcTemplate.update("INSERT INTO fx_deal_keys (deal_unique_id, deal_timestamp)"
+                + " VALUES (?, TIMESTAMP '2025-11-01 09:00:00')", dealUniqueId);
+    }
+}
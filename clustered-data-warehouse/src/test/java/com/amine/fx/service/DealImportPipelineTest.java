@@ -0,0 +1,603 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = {
+        "fx.import.chunk-size=50",
+        "fx.import.pipeline.validator-threads=3",
+        "fx.import.pipeline.writer-threads=4",
+        "fx.import.pipeline.queue-capacity=2",
+        "fx.import.writers.max-total=3",
+        "fx.import.bulk-load.chunk-size=500",
+        // Small enough that files forget the IDs of committed chunks and fall back to the database
+        "fx.import.dedup.max-ids-in-memory=100"
+})
+@ActiveProfiles("test")
+class DealImportPipelineTest {
+
+    private static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+
+    @Autowired
+    private DealImportService dealImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DealLookupService dealLookupService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private ImportCheckpointService checkpointService;
+
+    @MockitoSpyBean
+    private DealJdbcRepository dealJdbcRepository;
+
+    @MockitoSpyBean
+    private DealRollupService dealRollupService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        jdbcTemplate.update("DELETE FROM fx_deal_rollups");
+        jdbcTemplate.update("DELETE FROM fx_deal_errors");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+        dealLookupService.invalidateAll();
+    }
+
+    @Test
+    void parallelImportPersistsSameDealsAndErrorsAsSequentialImport() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(7), 300, 0));
+        Path file = writeCsv("deals.csv", generateRows(new Random(42), 5_000, 300));
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        dealImportService.importDealsFromCsv(file.toString(), false);
+        List<Map<String, Object>> sequentialDeals = deals();
+        List<Map<String, Object>> sequentialErrors = errors();
+
+        cleanDatabase();
+
+        ImportCounts counts = dealImportService.importDealsFromCsv(existing.toString(), true);
+        counts.add(dealImportService.importDealsFromCsv(file.toString(), true));
+
+        assertThat(deals()).isEqualTo(sequentialDeals);
+        assertThat(errors()).isEqualTo(sequentialErrors);
+
+        // The summary counts every saved error under its reason
+        Map<String, Long> savedByReason = new TreeMap<>();
+        sequentialErrors.forEach(row -> savedByReason.merge((String) row.get("ERROR_REASON"), 1L, Long::sum));
+        assertThat(counts.getErrorsByReason()).isEqualTo(savedByReason);
+
+        // Make sure the file really exercised every path
+        assertThat(sequentialDeals).hasSizeGreaterThan(1_000);
+        assertThat(sequentialErrors).extracting(row -> row.get("ERROR_REASON")).contains(
+                DealValidator.MISSING_FIELDS, DealValidator.DUPLICATE_DEAL_ID, DealValidator.INVALID_TIMESTAMP,
+                DealValidator.AMOUNT_NOT_POSITIVE, DealValidator.INVALID_AMOUNT, DealValidator.INVALID_CURRENCY);
+    }
+
+    @Test
+    void bulkLoadPersistsSameDealsAndErrorsAsRegularImport() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(7), 300, 0));
+        List<String> rows = generateRows(new Random(42), 5_000, 300);
+        // 💥 Too big for fx_deals.amount - that chunk falls back to the regular path
+        rows.add(2_600, "BIG1,EUR,USD,2025-11-10T10:00:00,12345678901234567890.5");
+        Path file = writeCsv("deals.csv", rows);
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        ImportCounts regularCounts = dealImportService.importDealsFromCsv(file.toString(), false);
+        List<Map<String, Object>> regularDeals = deals();
+        List<Map<String, Object>> regularErrors = errors();
+
+        cleanDatabase();
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        ImportCounts bulkCounts = dealImportService.bulkLoadDealsFromCsv(file.toString(), true);
+
+        assertThat(deals()).isEqualTo(regularDeals);
+        assertThat(errors()).isEqualTo(regularErrors);
+        assertThat(bulkCounts.getSuccesses()).isEqualTo(regularCounts.getSuccesses());
+        assertThat(bulkCounts.getErrorsByReason()).isEqualTo(regularCounts.getErrorsByReason());
+        assertThat(regularCounts.getErrorsByReason()).containsKey(DealValidator.DUPLICATE_DEAL_ID);
+        assertThat(regularErrors).extracting(row -> row.get("DEAL_UNIQUE_ID")).contains("BIG1");
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deal_staging", Long.class)).isZero();
+    }
+
+    @Test
+    void aRowTheDatabaseRefusesIsRetriedAloneAndTheRestOfItsBatchIsStored() throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            rows.add("D" + i + ",EUR,USD,2025-11-10T10:%02d:00,%d.50".formatted(i % 60, 100 + i));
+        }
+        // 💥 Fine for the validator, too big for fx_deals.amount DECIMAL(19, 4) - breaks the batch of the 2nd chunk
+        rows.set(74, "D75,EUR,USD,2025-11-10T10:15:00,12345678901234567890.5");
+        Path file = writeCsv("deals.csv", rows);
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            cleanDatabase();
+            clearInvocations(dealJdbcRepository);
+
+            ImportCounts counts = dealImportService.importDealsFromCsv(file.toString(), parallel);
+
+            assertThat(counts.getSuccesses()).isEqualTo(119);
+            assertThat(counts.getErrorsByReason()).isEqualTo(Map.of(DealChunkWriter.DATABASE_ERROR, 1L));
+            assertThat(deals()).hasSize(119).extracting(row -> row.get("DEAL_UNIQUE_ID")).doesNotContain("D75");
+            assertThat(errors()).singleElement().satisfies(error -> {
+                assertThat(error.get("DEAL_UNIQUE_ID")).isEqualTo("D75");
+                assertThat(error.get("AMOUNT")).isEqualTo("12345678901234567890.5");
+                assertThat((String) error.get("ERROR_REASON")).startsWith(DealChunkWriter.DATABASE_ERROR + ": ");
+            });
+            // Three batches, and only the refused row went through the one-by-one retry
+            verify(dealJdbcRepository, times(3)).batchInsert(any(), anyLong(), anyInt(), anyLong());
+            verify(dealJdbcRepository, times(1)).insert(any(), anyLong(), anyInt(), anyLong());
+            assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deal_keys WHERE deal_unique_id = 'D75'",
+                    Long.class)).isZero();
+        }
+    }
+
+    @Test
+    void aChunkThatRollsBackLeavesNoErrorRecordsBehind() throws IOException {
+        List<String> rows = generateRows(new Random(17), 500, 0);
+        // 💥 A deal the database refuses, in the first chunk too
+        rows.set(10, "BIG1,EUR,USD,2025-11-10T10:00:00,12345678901234567890.5");
+        Path file = writeCsv("deals.csv", rows);
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            cleanDatabase();
+            // 💥 The first chunk fails after its deals and errors were written, right before it commits
+            doThrow(new IllegalStateException("Commit went wrong")).when(dealRollupService).addDeals(any());
+            assertThatThrownBy(() -> dealImportService.importDealsFromCsv(file.toString(), parallel))
+                    .hasStackTraceContaining("Commit went wrong");
+            reset(dealRollupService);
+
+            assertThat(errors()).isEmpty();
+            assertThat(deals()).isEmpty();
+            assertThat(jdbcTemplate.queryForObject("SELECT last_committed_record FROM fx_import_checkpoints",
+                    Long.class)).isZero();
+        }
+
+        // Everything the failed runs wrote went away with them: the re-import stores each error once
+        ImportCounts counts = dealImportService.importDealsFromCsv(file.toString(), false);
+        assertThat(counts.getErrorsByReason()).containsEntry(DealChunkWriter.DATABASE_ERROR, 1L);
+        assertThat(errors()).hasSize((int) counts.getErrors());
+    }
+
+    @Test
+    void reimportAfterAFailureResumesFromTheCheckpointWithoutDuplicatingErrors() throws IOException {
+        Path file = writeCsv("deals.csv", generateRows(new Random(41), 2_000, 0));
+        dealImportService.importDealsFromCsv(file.toString(), false);
+        List<Map<String, Object>> cleanDeals = deals();
+        List<Map<String, Object>> cleanErrors = errors();
+        String contentHash = HexFormat.of().formatHex(FileFingerprints.newSha256().digest(Files.readAllBytes(file)));
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            cleanDatabase();
+            // 💥 The 20th of 40 chunks fails right before it commits
+            AtomicInteger chunks = new AtomicInteger();
+            doAnswer(invocation -> {
+                if (chunks.incrementAndGet() == 20) {
+                    throw new IllegalStateException("Primary went away");
+                }
+                return invocation.callRealMethod();
+            }).when(dealRollupService).addDeals(any());
+            assertThatThrownBy(() -> dealImportService.importDealsFromCsv(file.toString(), parallel))
+                    .hasStackTraceContaining("Primary went away");
+            reset(dealRollupService);
+            long lastCommittedRecord = jdbcTemplate.queryForObject(
+                    "SELECT last_committed_record FROM fx_import_checkpoints", Long.class);
+            assertThat(lastCommittedRecord).isBetween(1L, 1_999L);
+
+            // 🔁 Same content again: only the rows after the checkpoint are read, each error is stored once
+            ImportProgress progress = new ImportProgress();
+            dealImportService.importDealsFromCsv(file.toString(), parallel, progress);
+
+            assertThat(progress.getReport().getResumedAfterRecord()).isEqualTo(lastCommittedRecord);
+            assertThat(progress.getRowsProcessed()).isEqualTo(2_000 - lastCommittedRecord);
+            assertThat(deals()).isEqualTo(cleanDeals);
+            assertThat(errors()).isEqualTo(cleanErrors);
+            // 🔑 Hashed while it was read: the checkpoint ends up under the content hash of the file
+            Map<String, Object> checkpoint = jdbcTemplate.queryForMap(
+                    "SELECT file_hash, status, run_number, last_committed_record FROM fx_import_checkpoints");
+            assertThat(checkpoint.get("FILE_HASH")).isEqualTo(contentHash);
+            assertThat(checkpoint.get("STATUS")).isEqualTo("COMPLETED");
+            assertThat(((Number) checkpoint.get("RUN_NUMBER")).intValue()).isEqualTo(2);
+            assertThat(((Number) checkpoint.get("LAST_COMMITTED_RECORD")).longValue()).isEqualTo(2_000);
+        }
+    }
+
+    @Test
+    void parallelImportMovesCheckpointToLastRecord() throws IOException {
+        Path file = writeCsv("deals.csv", generateRows(new Random(1), 1_234, 0));
+
+        dealImportService.importDealsFromCsv(file.toString(), true);
+
+        Map<String, Object> checkpoint = jdbcTemplate.queryForMap(
+                "SELECT last_committed_record, status FROM fx_import_checkpoints");
+        assertThat(((Number) checkpoint.get("LAST_COMMITTED_RECORD")).longValue()).isEqualTo(1_234);
+        assertThat(checkpoint.get("STATUS")).isEqualTo("COMPLETED");
+    }
+
+    @Test
+    void importPublishesMetricsMatchingTheDatabase() throws IOException {
+        Path file = writeCsv("deals.csv", generateRows(new Random(5), 2_000, 0));
+        double savedBefore = savedDeals();
+        Map<String, Double> rejectedBefore = rejectedDeals();
+        long importsBefore = meterRegistry.timer("fx.import", "source", "file", "error", "none").count();
+
+        dealImportService.importDealsFromCsv(file.toString(), true);
+
+        assertThat(savedDeals() - savedBefore).isEqualTo(deals().size());
+        Map<String, Double> rejected = new TreeMap<>();
+        rejectedDeals().forEach((reason, count) -> {
+            double delta = count - rejectedBefore.getOrDefault(reason, 0.0);
+            if (delta > 0) {
+                rejected.put(reason, delta);
+            }
+        });
+        Map<String, Double> savedByReason = new TreeMap<>();
+        errors().forEach(row -> savedByReason.merge((String) row.get("ERROR_REASON"), 1.0, Double::sum));
+        assertThat(rejected).isEqualTo(savedByReason);
+
+        assertThat(meterRegistry.timer("fx.import", "source", "file", "error", "none").count()).isEqualTo(importsBefore + 1);
+        for (String stage : List.of(ImportMetrics.PARSE, ImportMetrics.VALIDATE, ImportMetrics.DEDUP,
+                ImportMetrics.PERSIST, ImportMetrics.COMMIT_WAIT)) {
+            assertThat(meterRegistry.get("fx.import.stage").tag("stage", stage).timer().count()).isPositive();
+        }
+        assertThat(meterRegistry.get("fx.import.file.size").summary().count()).isPositive();
+        assertThat(meterRegistry.get("fx.import.pipeline.queue").gauges()).hasSize(2);
+    }
+
+    @Test
+    void importReportMatchesTheDatabaseAndSamplesTheFirstFailures() throws IOException {
+        Path file = writeCsv("deals.csv", generateRows(new Random(11), 2_000, 0));
+
+        ImportProgress sequential = new ImportProgress();
+        dealImportService.importDealsFromCsv(file.toString(), false, sequential);
+        cleanDatabase();
+        ImportProgress parallel = new ImportProgress();
+        dealImportService.importDealsFromCsv(file.toString(), true, parallel);
+
+        ImportReport report = parallel.getReport();
+        assertThat(report.getStatus()).isEqualTo(ImportReport.Status.COMPLETED);
+        assertThat(report.getRowsProcessed()).isEqualTo(2_000);
+        assertThat(report.getInserted()).isEqualTo(deals().size());
+        assertThat(report.getRejected()).isEqualTo(errors().size());
+        assertThat(report.getChunks()).isEqualTo(40);
+        Map<String, Long> savedByReason = new TreeMap<>();
+        errors().forEach(row -> savedByReason.merge((String) row.get("ERROR_REASON"), 1L, Long::sum));
+        assertThat(report.getErrorsByReason()).isEqualTo(savedByReason);
+
+        // Writers commit out of order, the samples are still the first failures of the file
+        assertThat(report.getSampleFailures()).hasSize(20)
+                .isEqualTo(sequential.getReport().getSampleFailures())
+                .isSortedAccordingTo(Comparator.comparingLong(ImportReport.SampleFailure::recordNumber));
+        assertThat(errors()).extracting(row -> row.get("DEAL_UNIQUE_ID") + " " + row.get("ERROR_REASON"))
+                .containsAll(report.getSampleFailures().stream()
+                        .map(sample -> sample.dealUniqueId() + " " + sample.reason()).toList());
+
+        assertThat(report.getStages()).containsOnlyKeys(ImportMetrics.PARSE, ImportMetrics.VALIDATE,
+                ImportMetrics.DEDUP, ImportMetrics.PERSIST, ImportMetrics.COMMIT_WAIT);
+        assertThat(report.getStages().get(ImportMetrics.PERSIST).chunks()).isEqualTo(40);
+        assertThat(report.getBytesRead()).isEqualTo(Files.size(file));
+        assertThat(report.getFinishedAt()).isNotNull();
+    }
+
+    @Test
+    void idempotentReplaySkipsStoredDealsAndOnlyRecordsConflicts() throws IOException {
+        List<String> original = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            original.add("D" + i + ",EUR,USD,2025-11-10T10:%02d:00,%d.50".formatted(i % 60, 100 + i));
+        }
+        Path first = writeCsv("first.csv", original);
+        dealImportService.importDealsFromCsv(first.toString(), true);
+        List<Map<String, Object>> storedDeals = deals();
+
+        // ⏭️ Same content again - not even read
+        ImportProgress replay = new ImportProgress();
+        ImportCounts replayCounts = dealImportService.importDealsIdempotently(first.toString(), true, replay);
+        assertThat(replay.getReport().getStatus()).isEqualTo(ImportReport.Status.SKIPPED);
+        assertThat(replayCounts.getTotal()).isZero();
+
+        // 🔁 Overlapping file: the stored deals, one of them changed, new deals and repeats of new deals
+        List<String> overlapping = new ArrayList<>(original);
+        overlapping.set(6, "D7,EUR,USD,2025-11-10T10:07:00,999.99");
+        overlapping.set(8, "D9,EUR,USD,2025-11-10T10:09:00,109.5"); // Same amount, other scale
+        for (int i = 101; i <= 120; i++) {
+            overlapping.add("D" + i + ",GBP,USD,2025-11-11T09:%02d:00,%d.25".formatted(i % 60, i));
+        }
+        overlapping.add("D101,GBP,USD,2025-11-11T09:41:00,101.25"); // Identical repeat
+        overlapping.add("D102,GBP,USD,2025-11-11T09:42:00,1.00");   // Conflicting repeat
+        Path second = writeCsv("second.csv", overlapping);
+
+        ImportProgress progress = new ImportProgress();
+        ImportCounts counts = dealImportService.importDealsIdempotently(second.toString(), true, progress);
+
+        assertThat(counts.getSuccesses()).isEqualTo(20);
+        assertThat(counts.getUnchanged()).isEqualTo(100);
+        assertThat(counts.getErrorsByReason()).isEqualTo(Map.of(DealValidator.CONFLICTING_DEAL_ID, 2L));
+        assertThat(errors()).extracting(row -> row.get("DEAL_UNIQUE_ID")).containsExactly("D102", "D7");
+        assertThat(deals()).hasSize(120).containsAll(storedDeals);
+        assertThat(progress.getReport().getUnchanged()).isEqualTo(100);
+        assertThat(progress.getRowsProcessed()).isEqualTo(overlapping.size());
+    }
+
+    @Test
+    void rollupsMatchAggregatesOfImportedDeals() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(3), 500, 0));
+        Path file = writeCsv("deals.csv", generateRows(new Random(9), 3_000, 500));
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        dealImportService.importDealsFromCsv(file.toString(), true);
+
+        List<Map<String, Object>> rollups = jdbcTemplate.queryForList("SELECT from_currency, to_currency, deal_date, " +
+                "deal_count, total_amount, min_amount, max_amount FROM fx_deal_rollups " +
+                "ORDER BY from_currency, to_currency, deal_date");
+        List<Map<String, Object>> grouped = jdbcTemplate.queryForList("SELECT from_currency, to_currency, " +
+                "CAST(deal_timestamp AS DATE) AS deal_date, CAST(COUNT(*) AS BIGINT) AS deal_count, " +
+                "CAST(SUM(amount) AS DECIMAL(38, 4)) AS total_amount, MIN(amount) AS min_amount, MAX(amount) AS max_amount " +
+                "FROM fx_deals GROUP BY from_currency, to_currency, CAST(deal_timestamp AS DATE) " +
+                "ORDER BY from_currency, to_currency, deal_date");
+        assertThat(rollups).hasSizeGreaterThan(100).isEqualTo(grouped);
+    }
+
+    @Test
+    void lookupsOfImportedDealsAreServedFromTheCache() throws IOException {
+        Path file = writeCsv("deals.csv", generateRows(new Random(11), 500, 0));
+        dealImportService.importDealsFromCsv(file.toString(), true);
+        List<Map<String, Object>> imported = deals();
+        double hitsBefore = cacheGets("hit");
+        double missesBefore = cacheGets("miss");
+
+        for (Map<String, Object> row : imported) {
+            Deal deal = dealLookupService.findByDealUniqueId((String) row.get("DEAL_UNIQUE_ID")).orElseThrow();
+            assertThat(deal.getAmount()).isEqualByComparingTo((BigDecimal) row.get("AMOUNT"));
+            assertThat(deal.getFromCurrency()).isEqualTo(row.get("FROM_CURRENCY"));
+        }
+        assertThat(dealLookupService.findByDealUniqueId("NO-SUCH-DEAL")).isEmpty();
+
+        // 🔥 Every imported deal was pre-warmed, only the unknown ID went to the database
+        assertThat(cacheGets("hit") - hitsBefore).isEqualTo(imported.size());
+        assertThat(cacheGets("miss") - missesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentImportsStoreEachSharedDealOnceAndReportTheOtherAsDuplicate() throws Exception {
+        Path first = writeCsv("first.csv", generateRows(new Random(21), 3_000, 0));
+        Path second = writeCsv("second.csv", generateRows(new Random(22), 3_000, 1_500)); // IDs 1500-2999 in both
+
+        dealImportService.importDealsFromCsv(first.toString(), false);
+        dealImportService.importDealsFromCsv(second.toString(), false);
+        List<Object> sequentialIds = deals().stream().map(row -> row.get("DEAL_UNIQUE_ID")).toList();
+        long sequentialErrors = errors().size();
+
+        cleanDatabase();
+
+        // 🏁 Both files at the same time, one pipelined and one sequential, sharing the writer slots
+        ExecutorService imports = Executors.newFixedThreadPool(2);
+        try {
+            Future<ImportCounts> a = imports.submit(() -> dealImportService.importDealsFromCsv(first.toString(), true));
+            Future<ImportCounts> b = imports.submit(() -> dealImportService.importDealsFromCsv(second.toString(), false));
+            ImportCounts counts = a.get(1, TimeUnit.MINUTES);
+            counts.add(b.get(1, TimeUnit.MINUTES));
+
+            // Whichever file won a shared ID, the other one saw a plain duplicate - never a unique key violation
+            assertThat(counts.getErrorsByReason()).doesNotContainKey(DealChunkWriter.DATABASE_ERROR);
+            assertThat(deals().stream().map(row -> row.get("DEAL_UNIQUE_ID")).toList()).isEqualTo(sequentialIds);
+            assertThat(counts.getSuccesses()).isEqualTo(sequentialIds.size());
+            assertThat(counts.getErrors()).isEqualTo(sequentialErrors);
+        } finally {
+            imports.shutdownNow();
+        }
+    }
+
+    @Test
+    void resubmittedFileIsRejectedByContentHash() throws Exception {
+        List<String> rows = generateRows(new Random(31), 400, 0);
+        Path original = writeCsv("original.csv", rows);
+        Path copy = writeCsv("copy.csv", rows);
+
+        ImportJob job = importJobService.submit(original, "original.csv", false);
+        for (int i = 0; i < 600 && !job.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(job.getState()).isEqualTo(ImportJob.State.COMPLETED);
+        long errorsAfterFirstImport = errors().size();
+
+        // 🔁 Same bytes under another name: accepted, then recognised by the job before a single row is read
+        ImportJob resubmitted = importJobService.submit(copy, "copy.csv", false);
+        for (int i = 0; i < 600 && !resubmitted.isFinished(); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(resubmitted.getState()).isEqualTo(ImportJob.State.DUPLICATE);
+        assertThat(resubmitted.getFileHash()).isEqualTo(job.getFileHash());
+        assertThat(resubmitted.getDuplicateOf()).isNull();
+        assertThat(resubmitted.getProgress().getRowsProcessed()).isZero();
+        assertThat(errors()).hasSize((int) errorsAfterFirstImport);
+    }
+
+    @Test
+    void gzipStreamStoresTheSameDealsAndErrorsAsTheFileImport() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(13), 300, 0));
+        Path file = writeCsv("deals.csv", generateRows(new Random(21), 2_000, 300));
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        ImportCounts fileCounts = dealImportService.importDealsFromCsv(file.toString(), false);
+        List<Map<String, Object>> fileDeals = deals();
+        List<Map<String, Object>> fileErrors = errors();
+
+        cleanDatabase();
+
+        // 🗜️ The request body as curl --data-binary @deals.csv.gz sends it, read straight from memory
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            Files.copy(file, gzip);
+        }
+        byte[] body = compressed.toByteArray();
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        ImportJob job = importJobService.runStream(new ByteArrayInputStream(body), "deals.csv.gz", body.length);
+
+        assertThat(job.getState()).isEqualTo(ImportJob.State.COMPLETED);
+        assertThat(deals()).isEqualTo(fileDeals);
+        assertThat(errors()).isEqualTo(fileErrors);
+        assertThat(job.getProgress().getRowsProcessed()).isEqualTo(2_000);
+        assertThat(job.getProgress().getErrorsByReason()).isEqualTo(fileCounts.getErrorsByReason());
+        // 📏 Progress counts the compressed bytes as they arrive
+        assertThat(job.getProgress().getBytesRead()).isEqualTo(body.length);
+        // 🔑 The checkpoint of the stream ends up under the hash of the bytes that were sent
+        assertThat(checkpoints()).contains(HexFormat.of().formatHex(
+                FileFingerprints.newSha256().digest(body)));
+    }
+
+    @Test
+    void failedStreamLeavesNoCheckpointAndAbandonedOnesArePurged() throws IOException {
+        byte[] head = String.join("\n", HEADER, "D1,EUR,USD,2025-11-10T10:00:00,100.5", "D2,EUR,USD,2025-11-10T11:00:00,200.5", "")
+                .getBytes();
+        InputStream broken = new SequenceInputStream(new ByteArrayInputStream(head), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+
+        // 💥 The client went away half-way: nothing can resume this stream, so no checkpoint stays behind
+        assertThatThrownBy(() -> dealImportService.importDealsFromStream(broken, "broken.csv", -1, new ImportProgress()))
+                .hasMessageContaining("connection reset");
+        assertThat(checkpoints()).isEmpty();
+
+        // 🧹 Left behind by a crash: only unfinished stream checkpoints idle for longer than the expiry go
+        LocalDateTime old = LocalDateTime.now().minusDays(2);
+        insertCheckpoint("stream:crashed", "IN_PROGRESS", old);
+        insertCheckpoint("stream:running", "IN_PROGRESS", LocalDateTime.now());
+        insertCheckpoint("a".repeat(64), "IN_PROGRESS", old);
+        insertCheckpoint("b".repeat(64), "COMPLETED", old);
+
+        assertThat(checkpointService.purgeAbandonedStreams()).isEqualTo(1);
+        assertThat(checkpoints()).containsExactlyInAnyOrder("stream:running", "a".repeat(64), "b".repeat(64));
+    }
+
+    private List<String> checkpoints() {
+        return jdbcTemplate.queryForList("SELECT file_hash FROM fx_import_checkpoints", String.class);
+    }
+
+    private void insertCheckpoint(String fileHash, String status, LocalDateTime updatedAt) {
+        jdbcTemplate.update("INSERT INTO fx_import_checkpoints (file_hash, file_name, last_committed_record, status, " +
+                "started_at, updated_at) VALUES (?, 'deals.csv', 0, ?, ?, ?)", fileHash, status, updatedAt, updatedAt);
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tag("cache", "fx.deals").tag("result", result).functionCounter().count();
+    }
+
+    private double savedDeals() {
+        return meterRegistry.counter("fx.import.deals.saved").count();
+    }
+
+    private Map<String, Double> rejectedDeals() {
+        Map<String, Double> byReason = new TreeMap<>();
+        for (Counter counter : meterRegistry.find("fx.import.deals.rejected").counters()) {
+            byReason.put(counter.getId().getTag("reason"), counter.count());
+        }
+        return byReason;
+    }
+
+    private List<Map<String, Object>> deals() {
+        return jdbcTemplate.queryForList("SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount " +
+                "FROM fx_deals ORDER BY deal_unique_id");
+    }
+
+    private List<Map<String, Object>> errors() {
+        return jdbcTemplate.queryForList("SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount, " +
+                "error_reason FROM fx_deal_errors " +
+                "ORDER BY deal_unique_id, error_reason, from_currency, to_currency, deal_timestamp, amount");
+    }
+
+    private Path writeCsv(String name, List<String> rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(rows);
+        return Files.write(tempDir.resolve(name), lines);
+    }
+
+    // 🎲 Mostly valid deals plus duplicates (within the file and against idOffset) and every kind of bad row
+    private List<String> generateRows(Random random, int count, int idOffset) {
+        String[] currencies = {"USD", "EUR", "GBP", "JPY", "MAD", "CHF"};
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = idOffset + i;
+            if (random.nextInt(10) == 0) {
+                id = random.nextInt(idOffset + i + 1); // 🔁 Reuse an earlier ID
+            }
+            String dealId = "D" + id;
+            String from = currencies[random.nextInt(currencies.length)];
+            String to = currencies[random.nextInt(currencies.length)];
+            String timestamp = "2025-11-%02dT%02d:%02d:00".formatted(1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            String amount = (1 + random.nextInt(100_000)) + "." + random.nextInt(100);
+
+            switch (random.nextInt(20)) {
+                case 0 -> to = "";
+                case 1 -> timestamp = "13/11/2025 10:00";
+                case 2 -> amount = "-" + amount;
+                case 3 -> amount = "12abc";
+                case 4 -> from = "EURO";
+                default -> { }
+            }
+            rows.add(String.join(",", dealId, from, to, timestamp, amount));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,297 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealQueryJdbcRepository;
+import com.amine.fx.repository.DealShards;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.LocalInputFile;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "fx.export.parquet.directory=target/parquet-export-test",
+        "fx.export.parquet.row-group-size=1KB",
+        "fx.export.parquet.max-open-files=3"
+})
+@ActiveProfiles("test")
+class DealParquetExporterTest {
+
+    private static final Path DIRECTORY = Paths.get("target/parquet-export-test");
+    private static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+    // 📐 What every exported file must declare, as parquet-mr prints it
+    private static final MessageType SCHEMA = MessageTypeParser.parseMessageType("""
+            message deal {
+              required int64 id;
+              required binary deal_unique_id (STRING);
+              required binary from_currency (STRING);
+              required binary to_currency (STRING);
+              required int64 deal_timestamp (TIMESTAMP(MILLIS,true));
+              required fixed_len_byte_array(9) amount (DECIMAL(19,4));
+            }
+            """);
+
+    @Autowired
+    private DealParquetExporter dealParquetExporter;
+
+    @Autowired
+    private DealImportService dealImportService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DealQueryJdbcRepository dealQueryRepository;
+
+    @Autowired
+    private DealShards dealShards;
+
+    @Autowired
+    private DealCommitTracker commitTracker;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void cleanUp() throws IOException {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+        jdbcTemplate.update("DELETE FROM fx_deal_export_watermarks");
+        FileSystemUtils.deleteRecursively(DIRECTORY);
+    }
+
+    @Test
+    void exportsOnlyNewDealsIntoDateAndPairPartitions() throws IOException {
+        importDeals("first.csv", 0, 120);
+
+        DealParquetExporter.ExportRun first = dealParquetExporter.export();
+        assertThat(first.runNumber()).isEqualTo(1);
+        assertThat(first.deals()).isEqualTo(120);
+        // Only 3 files open at once, so some partitions got more than one file
+        assertThat(partitions()).isEqualTo(expectedPartitions());
+        assertThat(parquetFiles()).hasSizeGreaterThan(partitions().size()).allSatisfy(this::assertParquetFile);
+
+        // Nothing new - nothing written, watermark stays
+        DealParquetExporter.ExportRun idle = dealParquetExporter.export();
+        assertThat(idle.deals()).isZero();
+        assertThat(idle.runNumber()).isEqualTo(1);
+
+        importDeals("second.csv", 120, 30);
+        int filesBefore = parquetFiles().size();
+        DealParquetExporter.ExportRun second = dealParquetExporter.export();
+        assertThat(second.runNumber()).isEqualTo(2);
+        assertThat(second.deals()).isEqualTo(30);
+        assertThat(parquetFiles()).hasSize(filesBefore + second.files());
+        assertThat(parquetFiles()).filteredOn(file -> file.getFileName().toString().startsWith("run-000002-"))
+                .hasSize(second.files());
+    }
+
+    @ParameterizedTest
+    @EnumSource(ParquetDealWriter.Compression.class)
+    void filesReadBackAsTheStoredDeals(ParquetDealWriter.Compression compression) throws IOException {
+        importDeals("deals.csv", 0, 150);
+        DealParquetExporter exporter = new DealParquetExporter(dealQueryRepository, dealShards, commitTracker,
+                jdbcTemplate, transactionTemplate, DIRECTORY.toString(), compression, DataSize.ofKilobytes(1), 3);
+
+        DealParquetExporter.ExportRun run = exporter.export();
+
+        List<ExportedDeal> exported = new ArrayList<>();
+        for (Path file : parquetFiles()) {
+            exported.addAll(readParquetFile(file, compression));
+        }
+        exported.sort(Comparator.comparingLong(ExportedDeal::id));
+        assertThat(exported).hasSize(150).hasSize((int) run.deals());
+        // Every column of every deal, timestamps cut to the millisecond
+        assertThat(exported).isEqualTo(storedDeals());
+        assertThat(exported).filteredOn(deal -> deal.dealUniqueId().equals("P7")).singleElement()
+                .satisfies(deal -> {
+                    assertThat(deal.dealTimestamp()).isEqualTo(LocalDateTime.of(2025, 11, 4, 10, 7, 49, 864_000_000));
+                    assertThat(deal.amount()).isEqualTo(new BigDecimal("999999999999999.9999"));
+                });
+        assertThat(exported).filteredOn(deal -> deal.dealUniqueId().equals("P14")).singleElement()
+                .satisfies(deal -> assertThat(deal.amount()).isEqualTo(new BigDecimal("114.0014")));
+    }
+
+    @Test
+    void rowGroupsAreCutAtTheirSizeAndCarryStatistics(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("deals.parquet");
+        try (ParquetDealWriter writer = new ParquetDealWriter(file, ParquetDealWriter.Compression.GZIP, 16 * 1024)) {
+            for (int i = 1; i <= 5_000; i++) {
+                Deal deal = new Deal("R" + i, "EUR", "USD", LocalDateTime.of(2025, 11, 1, 0, 0).plusMinutes(i),
+                        new BigDecimal(i).movePointLeft(2));
+                deal.setId((long) i);
+                writer.write(deal);
+            }
+            assertThat(writer.rows()).isEqualTo(5_000);
+        }
+
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            List<BlockMetaData> rowGroups = reader.getFooter().getBlocks();
+            assertThat(rowGroups).hasSizeGreaterThan(1);
+            assertThat(rowGroups.stream().mapToLong(BlockMetaData::getRowCount).sum()).isEqualTo(5_000);
+            // 📊 Min/max of every column chunk, so readers can skip row groups on filters
+            assertThat(rowGroups).flatExtracting(BlockMetaData::getColumns)
+                    .allSatisfy(column -> assertThat(column.getStatistics().hasNonNullValue()).isTrue());
+            assertThat(rowGroups.get(0).getColumns().get(0).getStatistics().genericGetMin()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void deletesFilesOfARunThatNeverFinished() throws IOException {
+        importDeals("deals.csv", 0, 20);
+        Path partition = Files.createDirectories(DIRECTORY.resolve("deal_date=2025-11-01/currency_pair=EUR_USD"));
+        Path crashed = Files.writeString(partition.resolve("run-000001-0099.parquet"), "half");
+        Path inProgress = Files.writeString(partition.resolve(".run-000001-0002.parquet.tmp"), "half");
+
+        DealParquetExporter.ExportRun run = dealParquetExporter.export();
+
+        assertThat(run.deals()).isEqualTo(20);
+        assertThat(crashed).doesNotExist();
+        assertThat(inProgress).doesNotExist();
+        assertThat(parquetFiles()).allSatisfy(this::assertParquetFile);
+    }
+
+    // 🎲 Microsecond timestamps (the export keeps milliseconds), amounts of every scale up to DECIMAL(19, 4)'s largest
+    private void importDeals(String name, int idOffset, int count) throws IOException {
+        String[] pairs = {"EUR,USD", "GBP,USD", "USD,JPY"};
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 0; i < count; i++) {
+            int id = idOffset + i;
+            String timestamp = String.format("2025-11-0%dT10:%02d:%02d.%06d", 1 + id % 4, id % 60, id * 7 % 60,
+                    id * 123_457 % 1_000_000);
+            String fraction = id % 5 == 0 ? "" : "." + String.format("%04d", id).substring(4 - id % 5);
+            String amount = id % 50 == 7 ? "999999999999999.9999" : (100 + id) + fraction;
+            lines.add("P" + id + "," + pairs[id % pairs.length] + "," + timestamp + "," + amount);
+        }
+        Path file = Files.write(Files.createTempDirectory("parquet-export").resolve(name), lines);
+        dealImportService.importDealsFromCsv(file.toString(), false);
+    }
+
+    private Set<String> expectedPartitions() {
+        return jdbcTemplate.queryForList("SELECT DISTINCT CAST(deal_timestamp AS DATE) AS d, from_currency, to_currency " +
+                "FROM fx_deals").stream()
+                .map(row -> "deal_date=" + row.get("D") + "/currency_pair=" + row.get("FROM_CURRENCY") + "_" + row.get("TO_CURRENCY"))
+                .collect(Collectors.toSet());
+    }
+
+    private Set<String> partitions() throws IOException {
+        return parquetFiles().stream()
+                .map(file -> DIRECTORY.relativize(file.getParent()).toString().replace('\\', '/'))
+                .collect(Collectors.toSet());
+    }
+
+    private List<Path> parquetFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(DIRECTORY)) {
+            return paths.filter(path -> path.toString().endsWith(".parquet")).toList();
+        }
+    }
+
+    // 🧱 Readable by parquet-mr (the application's default compression), deals of its own partition only
+    private void assertParquetFile(Path file) {
+        try {
+            assertThat(readParquetFile(file, ParquetDealWriter.Compression.GZIP)).isNotEmpty();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * 📖 Every deal of an exported file, read back with parquet-mr. Checks the footer on the way: schema,
+     * codec of every column chunk, row counts, and that each deal belongs to the file's partition.
+     */
+    private List<ExportedDeal> readParquetFile(Path file, ParquetDealWriter.Compression compression) throws IOException {
+        String partition = DIRECTORY.relativize(file.getParent()).toString().replace('\\', '/');
+        List<ExportedDeal> deals = new ArrayList<>();
+        try (ParquetFileReader reader = ParquetFileReader.open(new LocalInputFile(file))) {
+            ParquetMetadata footer = reader.getFooter();
+            MessageType schema = footer.getFileMetaData().getSchema();
+            assertThat(schema).isEqualTo(SCHEMA);
+            for (BlockMetaData rowGroup : footer.getBlocks()) {
+                assertThat(rowGroup.getRowCount()).isPositive();
+                assertThat(rowGroup.getColumns()).extracting(ColumnChunkMetaData::getCodec)
+                        .containsOnly(CompressionCodecName.valueOf(compression.name()));
+            }
+
+            MessageColumnIO columnIO = new ColumnIOFactory().getColumnIO(schema);
+            PageReadStore pages;
+            while ((pages = reader.readNextRowGroup()) != null) {
+                RecordReader<Group> records = columnIO.getRecordReader(pages, new GroupRecordConverter(schema));
+                for (long i = 0; i < pages.getRowCount(); i++) {
+                    deals.add(ExportedDeal.of(records.read()));
+                }
+            }
+            long footerRows = footer.getBlocks().stream().mapToLong(BlockMetaData::getRowCount).sum();
+            assertThat((long) deals.size()).isEqualTo(footerRows);
+        }
+        assertThat(deals).allSatisfy(deal -> assertThat(partition).isEqualTo("deal_date="
+                + deal.dealTimestamp().toLocalDate() + "/currency_pair=" + deal.fromCurrency() + "_" + deal.toCurrency()));
+        return deals;
+    }
+
+    // 💾 fx_deals as the export should see it - timestamps truncated to the millisecond it keeps
+    private List<ExportedDeal> storedDeals() {
+        List<ExportedDeal> deals = jdbcTemplate.query("SELECT id, deal_unique_id, from_currency, to_currency, " +
+                "deal_timestamp, amount FROM fx_deals ORDER BY id", (rs, rowNum) -> new ExportedDeal(rs.getLong("id"),
+                rs.getString("deal_unique_id"), rs.getString("from_currency"), rs.getString("to_currency"),
+                rs.getTimestamp("deal_timestamp").toLocalDateTime().truncatedTo(ChronoUnit.MILLIS),
+                rs.getBigDecimal("amount")));
+        // Sub-millisecond parts really were stored, so the truncation is tested
+        assertThat(jdbcTemplate.queryForList("SELECT deal_timestamp FROM fx_deals", Timestamp.class))
+                .anySatisfy(timestamp -> assertThat(timestamp.getNanos() % 1_000_000).isNotZero());
+        return deals;
+    }
+
+    private record ExportedDeal(long id, String dealUniqueId, String fromCurrency, String toCurrency,
+                                LocalDateTime dealTimestamp, BigDecimal amount) {
+
+        static ExportedDeal of(Group row) {
+            return new ExportedDeal(row.getLong("id", 0), row.getString("deal_unique_id", 0),
+                    row.getString("from_currency", 0), row.getString("to_currency", 0),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(row.getLong("deal_timestamp", 0)), ZoneOffset.UTC),
+                    new BigDecimal(new BigInteger(row.getBinary("amount", 0).getBytes()), 4));
+        }
+    }
+}
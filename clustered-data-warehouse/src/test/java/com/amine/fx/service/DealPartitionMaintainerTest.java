@@ -0,0 +1,80 @@
+package com.amine.fx.service;
+
+import com.amine.fx.service.DealPartitionMaintainer.Granularity;
+import com.amine.fx.service.DealPartitionMaintainer.Partition;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The partitions split off p_future. Runs without MySQL: the maintainer only needs the current layout,
+ * the oldest deal in p_future and the clock to decide.
+ */
+class DealPartitionMaintainerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 10, 17, 9, 30);
+
+    // 📦 What the V1 migration creates
+    private static final List<Partition> INITIAL = List.of(
+            new Partition("p_start", LocalDateTime.of(2000, 1, 1, 0, 0)),
+            new Partition("p_future", null));
+
+    @Test
+    void firstRunOnATableWithOldDealsGivesEveryPeriodItsOwnPartition() {
+        DealPartitionMaintainer maintainer = maintainer(Granularity.MONTHLY, "");
+
+        List<String> partitions = maintainer.newPartitions(INITIAL, LocalDateTime.of(2026, 3, 14, 16, 5), NOW);
+
+        assertThat(partitions).containsExactly(
+                "PARTITION p202603 VALUES LESS THAN ('2026-04-01 00:00:00')",
+                "PARTITION p202604 VALUES LESS THAN ('2026-05-01 00:00:00')",
+                "PARTITION p202605 VALUES LESS THAN ('2026-06-01 00:00:00')",
+                "PARTITION p202606 VALUES LESS THAN ('2026-07-01 00:00:00')",
+                "PARTITION p202607 VALUES LESS THAN ('2026-08-01 00:00:00')",
+                "PARTITION p202608 VALUES LESS THAN ('2026-09-01 00:00:00')",
+                "PARTITION p202609 VALUES LESS THAN ('2026-10-01 00:00:00')",
+                "PARTITION p202610 VALUES LESS THAN ('2026-11-01 00:00:00')",
+                "PARTITION p202611 VALUES LESS THAN ('2026-12-01 00:00:00')",
+                "PARTITION p202612 VALUES LESS THAN ('2027-01-01 00:00:00')",
+                "PARTITION p202701 VALUES LESS THAN ('2027-02-01 00:00:00')");
+    }
+
+    @Test
+    void configuredStartBeforeTheOldestDealIsUsedAndDailyPartitionsWork() {
+        DealPartitionMaintainer maintainer = maintainer(Granularity.DAILY, "2026-10-12");
+
+        List<String> partitions = maintainer.newPartitions(INITIAL, LocalDateTime.of(2026, 10, 15, 8, 0), NOW);
+
+        assertThat(partitions).hasSize(9)
+                .startsWith("PARTITION p20261012 VALUES LESS THAN ('2026-10-13 00:00:00')")
+                .endsWith("PARTITION p20261020 VALUES LESS THAN ('2026-10-21 00:00:00')");
+        // An empty table starts at the configured date as well
+        assertThat(maintainer.newPartitions(INITIAL, null, NOW)).isEqualTo(partitions);
+    }
+
+    @Test
+    void laterRunsOnlyAddThePeriodsThatAreMissing() {
+        DealPartitionMaintainer maintainer = maintainer(Granularity.MONTHLY, "");
+        List<Partition> maintained = List.of(
+                new Partition("p_start", LocalDateTime.of(2000, 1, 1, 0, 0)),
+                new Partition("p202610", LocalDateTime.of(2026, 11, 1, 0, 0)),
+                new Partition("p202611", LocalDateTime.of(2026, 12, 1, 0, 0)),
+                new Partition("p_future", null));
+
+        // Deals in p_future are newer than the last bound - only the next periods are split off
+        assertThat(maintainer.newPartitions(maintained, LocalDateTime.of(2026, 12, 3, 0, 0), NOW)).containsExactly(
+                "PARTITION p202612 VALUES LESS THAN ('2027-01-01 00:00:00')",
+                "PARTITION p202701 VALUES LESS THAN ('2027-02-01 00:00:00')");
+        // A start before the existing partitions can't move them
+        assertThat(maintainer(Granularity.MONTHLY, "2020-01-01").newPartitions(maintained, null, NOW)).hasSize(2);
+        // Far enough ahead already
+        assertThat(maintainer.newPartitions(maintained, null, LocalDateTime.of(2026, 8, 1, 0, 0))).isEmpty();
+    }
+
+    private static DealPartitionMaintainer maintainer(Granularity granularity, String start) {
+        return new DealPartitionMaintainer(null, null, true, granularity, 3, 0, start);
+    }
+}
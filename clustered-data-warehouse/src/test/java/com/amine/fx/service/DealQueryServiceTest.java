@@ -0,0 +1,100 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.DealFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class DealQueryServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 0, 0);
+
+    @Autowired
+    private DealQueryService dealQueryService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void insertDeals() {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        // 250 deals, several per timestamp so the keyset has to fall back on the id
+        for (int i = 0; i < 250; i++) {
+            jdbcTemplate.update("INSERT INTO fx_deals (deal_unique_id, from_currency, to_currency, deal_timestamp, amount) " +
+                            "VALUES (?, ?, ?, ?, ?)",
+                    "Q" + i, i % 2 == 0 ? "EUR" : "GBP", "USD", START.plusMinutes(i / 4), 100 + i);
+        }
+    }
+
+    @Test
+    void pagesCoverEveryMatchingDealOnceInOrder() {
+        DealFilter filter = new DealFilter("EUR", "USD", START.plusMinutes(5), START.plusMinutes(55));
+
+        List<Deal> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            DealQueryService.DealPage page = dealQueryService.findDeals(filter, 7, cursor);
+            assertThat(page.deals()).hasSizeLessThanOrEqualTo(7);
+            seen.addAll(page.deals());
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        Integer expected = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deals WHERE from_currency = 'EUR' " +
+                "AND deal_timestamp >= ? AND deal_timestamp < ?", Integer.class, START.plusMinutes(5), START.plusMinutes(55));
+        assertThat(seen).hasSize(expected);
+        assertThat(pages).isEqualTo((expected + 6) / 7);
+        assertThat(seen).extracting(Deal::getDealUniqueId).doesNotHaveDuplicates();
+        assertThat(seen).allMatch(deal -> deal.getFromCurrency().equals("EUR"));
+        for (int i = 1; i < seen.size(); i++) {
+            Deal previous = seen.get(i - 1);
+            Deal current = seen.get(i);
+            assertThat(current.getDealTimestamp().isAfter(previous.getDealTimestamp())
+                    || (current.getDealTimestamp().equals(previous.getDealTimestamp()) && current.getId() > previous.getId()))
+                    .isTrue();
+        }
+    }
+
+    @Test
+    void exportsEveryMatchingDealAsNdjsonAndCsv() throws IOException {
+        DealFilter filter = new DealFilter(null, "USD", null, START.plusMinutes(50));
+
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        long exported = dealQueryService.export(filter, DealQueryService.ExportFormat.NDJSON, ndjson);
+        List<String> lines = ndjson.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(exported).isEqualTo(200);
+        assertThat(lines).hasSize(200);
+        assertThat(lines.get(0)).startsWith("{\"id\":").contains("\"dealUniqueId\":\"Q0\"", "\"dealTimestamp\":\"2025-11-01T00:00\"");
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        dealQueryService.export(filter, DealQueryService.ExportFormat.CSV, csv);
+        List<String> rows = csv.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(rows).hasSize(201);
+        assertThat(rows.get(0)).isEqualTo(String.join(",", DealQueryService.CSV_HEADER));
+        assertThat(rows.get(1)).isEqualTo("Q0,EUR,USD,2025-11-01T00:00,100.0000");
+    }
+
+    @Test
+    void rejectsForeignCursor() {
+        assertThatThrownBy(() -> dealQueryService.findDeals(new DealFilter(null, null, null, null), 10, "not-a-cursor"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
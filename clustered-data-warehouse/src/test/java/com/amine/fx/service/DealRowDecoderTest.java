@@ -0,0 +1,209 @@
+package com.amine.fx.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The fast byte parser and the memory-mapped parallel parser must read every file exactly like
+ * commons-csv and lead to the same validation result.
+ */
+class DealRowDecoderTest {
+
+    private static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+
+    private final DealValidator validator = new DealValidator();
+
+    @TempDir
+    Path tempDir;
+
+    static Stream<String> csvFiles() {
+        return Stream.of(
+                // Sample file style: valid rows, duplicate, missing field, padded currency
+                HEADER + "\n"
+                        + "D001,USD,EUR,2025-11-13T10:00:00,1000.50\n"
+                        + "D002,GBP,USD,2025-11-13T11:00:00,2000\n"
+                        + "D002,GBP,USD,2025-11-13T11:00:00,2000\n"
+                        + "D004,EUR,,2025-11-13T12:30:00,1500.75\n"
+                        + "D005,MAD, USD,2025-11-14T11:30:00,3500\n",
+                // Windows line breaks, blank lines, padding, no line break at the end
+                HEADER + "\r\n\r\n"
+                        + "  D1 ,\tusd,eur , 2025-01-01T00:00:00 ,  7 \r\n"
+                        + "\n\r"
+                        + "D2,USD,EUR,2025-01-01T00:00:00,8",
+                // Timestamps the fast path leaves to the formatter
+                HEADER + "\n"
+                        + "T1,USD,EUR,2025-02-30T10:00:00,1\n"
+                        + "T2,USD,EUR,2025-11-13 10:00:00,1\n"
+                        + "T3,USD,EUR,2025-11-13T10:00,1\n"
+                        + "T4,USD,EUR,2025-11-13T10:00:00.123,1\n"
+                        + "T5,USD,EUR,2025-11-13t10:00:00,1\n"
+                        + "T6,USD,EUR,2024-02-29T23:59:59,1\n"
+                        + "T7,USD,EUR,2025-13-01T10:00:00,1\n"
+                        + "T8,USD,EUR,2025-11-13T24:00:00,1\n"
+                        + "T9,USD,EUR,1969-12-31T23:59:59,1\n"
+                        + "T10,USD,EUR,0000-03-01T00:00:00,1\n"
+                        + "T11,USD,EUR,2100-02-29T00:00:00,1\n",
+                // Amounts the fast path decodes and the ones it leaves to BigDecimal
+                HEADER + "\n"
+                        + "A1,USD,EUR,2025-11-13T10:00:00,1000.50\n"
+                        + "A2,USD,EUR,2025-11-13T10:00:00,+5\n"
+                        + "A3,USD,EUR,2025-11-13T10:00:00,-3\n"
+                        + "A4,USD,EUR,2025-11-13T10:00:00,.5\n"
+                        + "A5,USD,EUR,2025-11-13T10:00:00,5.\n"
+                        + "A6,USD,EUR,2025-11-13T10:00:00,1e3\n"
+                        + "A7,USD,EUR,2025-11-13T10:00:00,0.000\n"
+                        + "A8,USD,EUR,2025-11-13T10:00:00,1234567890123456789012.5\n"
+                        + "A9,USD,EUR,2025-11-13T10:00:00,abc\n"
+                        + "A10,USD,EUR,2025-11-13T10:00:00,007.10\n"
+                        + "A11,USD,EUR,2025-11-13T10:00:00,-0\n"
+                        + "A12,USD,EUR,2025-11-13T10:00:00,1.23456\n"
+                        + "A13,USD,EUR,2025-11-13T10:00:00,92233720368547.7580\n"
+                        + "A14,USD,EUR,2025-11-13T10:00:00,922337203685477.5808\n"
+                        + "A15,USD,EUR,2025-11-13T10:00:00,99999999999999999\n",
+                // Short, long and odd rows
+                HEADER + "\n"
+                        + "S1,USD\n"
+                        + "S2,USD,EUR,2025-11-13T10:00:00,1,extra,columns\n"
+                        + "S3,USD,EUR,2025-11-13T10:00:00,1,\n"
+                        + "   \n"
+                        + ",,,,\n"
+                        + "S4,EURO,USD,2025-11-13T10:00:00,1\n"
+                        + "S5,US,USD,2025-11-13T10:00:00,1\n"
+                        + "S6,€UR,USD,2025-11-13T10:00:00,1\n",
+                // Quotes in the middle of the file - commons-csv takes over from that record
+                HEADER + "\n"
+                        + "Q1,USD,EUR,2025-11-13T10:00:00,1\n"
+                        + "\"Q2\",\"USD\",EUR,2025-11-13T10:00:00,\"2\"\n"
+                        + "\"Q3, with comma\",USD,EUR,2025-11-13T10:00:00,\"3\n4\"\n"
+                        + "Q4,USD,EUR,2025-11-13T10:00:00,4\n",
+                // Columns in another order, one column missing from the header
+                "Deal Amount,Deal timestamp,Deal Unique Id,From Currency ISO Code\n"
+                        + "1,2025-11-13T10:00:00,O1,USD\n",
+                // Quoted header
+                "\"Deal Unique Id\",\"From Currency ISO Code\",To Currency ISO Code,Deal timestamp,Deal Amount\n"
+                        + "H1,USD,EUR,2025-11-13T10:00:00,1\n",
+                // Only a header / nothing at all
+                HEADER + "\n",
+                "");
+    }
+
+    @ParameterizedTest
+    @MethodSource("csvFiles")
+    void fastParserReadsLikeCommonsCsv(String csv) throws IOException {
+        assertSameRows(csv);
+    }
+
+    @Test
+    void fastParserReadsAcrossBufferBoundaries() throws IOException {
+        Random random = new Random(3);
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < 20_000; i++) {
+            csv.append('D').append(i).append(",USD,").append(random.nextBoolean() ? "EUR" : " jpy ").append(',')
+                    .append("2025-11-13T10:").append(10 + random.nextInt(50)).append(":00,")
+                    .append(random.nextInt(100_000) / 100.0).append(random.nextInt(10) == 0 ? "\r\n" : "\n");
+            if (i == 10_000) {
+                csv.append("LONG").append("x".repeat(200_000)).append(",USD,EUR,2025-11-13T10:00:00,1\n");
+            }
+        }
+
+        List<DealRow> rows = assertSameRows(csv.toString());
+        assertThat(rows).hasSize(20_001);
+        assertThat(rows.get(0).recordNumber()).isEqualTo(1);
+        assertThat(rows).allSatisfy(row -> assertThat(row.decodedTimestamp()).isNotNull()); // No fallback needed
+    }
+
+    @ParameterizedTest
+    @MethodSource("csvFiles")
+    void mappedParserReadsLikeCommonsCsv(String csv) throws IOException {
+        assertSameRowsMapped(csv);
+    }
+
+    @Test
+    void mappedParserKeepsRecordNumbersAcrossSegments() throws IOException {
+        StringBuilder csv = new StringBuilder(HEADER).append("\r\n");
+        for (int i = 0; i < 30_000; i++) {
+            csv.append('D').append(i).append(",USD,EUR,2025-11-13T10:00:00,").append(i + 1).append("\r\n");
+            if (i % 1_000 == 0) {
+                csv.append("\n\n"); // Blank lines are not records
+            }
+            if (i == 25_000) {
+                csv.append("\"Q1\",USD,EUR,2025-11-13T10:00:00,\"1\n2\"\n"); // Quote near the end
+            }
+        }
+
+        List<DealRow> rows = assertSameRowsMapped(csv.toString());
+        assertThat(rows).hasSize(30_001);
+        assertThat(rows.get(30_000).recordNumber()).isEqualTo(30_001);
+    }
+
+    private List<DealRow> assertSameRowsMapped(String csv) throws IOException {
+        Path file = tempDir.resolve("deals.csv");
+        Files.writeString(file, csv);
+
+        List<DealRow> mapped = new ArrayList<>();
+        String contentHash;
+        try (DealChunkReader chunks = DealChunkReader.openMapped(file, 100, 0, 8 * 1024, 4, new ImportProgress(),
+                FileFingerprints.newSha256())) {
+            chunks.forEachRemaining(mapped::addAll);
+            contentHash = chunks.contentHash();
+        }
+        List<DealRow> commons = readAll(csv, false);
+
+        // 🔑 Hashed segment by segment on the way, the same as a separate pass over the file
+        assertThat(contentHash).isEqualTo(FileFingerprints.sha256(file));
+        for (boolean fastParser : new boolean[]{false, true}) {
+            try (DealChunkReader chunks = DealChunkReader.open(file, 100, 0, fastParser, new ImportProgress(),
+                    FileFingerprints.newSha256())) {
+                chunks.forEachRemaining(chunk -> { });
+                assertThat(chunks.contentHash()).isEqualTo(contentHash);
+            }
+        }
+
+        assertThat(mapped).hasSameSizeAs(commons);
+        for (int i = 0; i < mapped.size(); i++) {
+            assertThat(describe(mapped.get(i))).isEqualTo(describe(commons.get(i)));
+        }
+        return mapped;
+    }
+
+    private List<DealRow> assertSameRows(String csv) throws IOException {
+        List<DealRow> fast = readAll(csv, true);
+        List<DealRow> commons = readAll(csv, false);
+
+        assertThat(fast).hasSameSizeAs(commons);
+        for (int i = 0; i < fast.size(); i++) {
+            assertThat(describe(fast.get(i))).isEqualTo(describe(commons.get(i)));
+        }
+        return fast;
+    }
+
+    // Everything that ends up in the database for this row
+    private String describe(DealRow row) {
+        ValidatedRow validated = validator.validate(row);
+        return row.recordNumber() + "|" + row.dealUniqueId() + "|" + row.fromCurrency() + "|" + row.toCurrency()
+                + "|" + row.timestamp() + "|" + row.amount() + "|" + validated.error() + "|" + validated.deal();
+    }
+
+    private List<DealRow> readAll(String csv, boolean fastParser) throws IOException {
+        List<DealRow> rows = new ArrayList<>();
+        try (DealChunkReader chunks = DealChunkReader.open(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), 100, 0, fastParser)) {
+            chunks.forEachRemaining(rows::addAll);
+        }
+        return rows;
+    }
+}
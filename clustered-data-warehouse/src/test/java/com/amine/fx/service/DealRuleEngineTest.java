@@ -0,0 +1,82 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.CompactDeal;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The built-in rules, the cost order of the compiled plan and both failure modes.
+ */
+class DealRuleEngineTest {
+
+    private static final Instant NOW = Instant.parse("2025-11-13T12:00:00Z");
+
+    private final List<DealRule> rules = List.of(
+            DealRules.maxAmountPerPair(List.of("EUR/USD=1000000", "usd/jpy = 50")),
+            DealRules.noFutureTimestamps(Duration.ofMinutes(5), Clock.fixed(NOW, ZoneOffset.UTC)),
+            DealRules.isoCurrencies(List.of()),
+            DealRules.distinctCurrencies());
+
+    @Test
+    void planRunsCheapRulesFirstAndStopsAtTheFirstFailure() {
+        DealRuleEngine engine = new DealRuleEngine(rules, false, 1, new SimpleMeterRegistry());
+
+        assertThat(engine.getRuleStats()).extracting(DealRuleEngine.RuleStats::name).containsExactly(
+                "distinct-currencies", "iso-currency", "no-future-timestamps", "max-amount-per-pair");
+
+        assertThat(engine.check(deal("EUR", "USD", "2025-11-13T10:00:00", "999999.99"))).isNull();
+        assertThat(engine.check(deal("EUR", "EUR", "2025-11-13T10:00:00", "1"))).isEqualTo(DealRules.SAME_CURRENCY);
+        assertThat(engine.check(deal("EUR", "ABC", "2025-11-13T10:00:00", "1"))).isEqualTo(DealRules.UNKNOWN_CURRENCY);
+        assertThat(engine.check(deal("EUR", "USD", "2025-11-13T12:04:59", "1"))).isNull();
+        assertThat(engine.check(deal("EUR", "USD", "2025-11-13T12:05:01", "1"))).isEqualTo(DealRules.FUTURE_TIMESTAMP);
+        assertThat(engine.check(deal("EUR", "USD", "2025-11-13T10:00:00", "1000000.0001"))).isEqualTo(DealRules.AMOUNT_OVER_LIMIT);
+        assertThat(engine.check(deal("USD", "JPY", "2025-11-13T10:00:00", "50.00001"))).isEqualTo(DealRules.AMOUNT_OVER_LIMIT);
+        // No limit for the reverse pair
+        assertThat(engine.check(deal("USD", "EUR", "2025-11-13T10:00:00", "99999999"))).isNull();
+
+        // A deal rejected by the first rule never reaches the others
+        List<DealRuleEngine.RuleStats> stats = engine.getRuleStats();
+        assertThat(stats).extracting(DealRuleEngine.RuleStats::evaluations).containsExactly(8L, 7L, 6L, 5L);
+        assertThat(stats).extracting(DealRuleEngine.RuleStats::failures).containsExactly(1L, 1L, 1L, 2L);
+        assertThat(stats).allSatisfy(rule -> assertThat(rule.meanNanos()).isPositive());
+    }
+
+    @Test
+    void collectsEveryFailedRuleWhenAsked() {
+        DealRuleEngine engine = new DealRuleEngine(rules, true, 1024, new SimpleMeterRegistry());
+
+        assertThat(engine.check(deal("XYZ", "XYZ", "2030-01-01T00:00:00", "1"))).isEqualTo(
+                DealRules.SAME_CURRENCY + "; " + DealRules.UNKNOWN_CURRENCY + "; " + DealRules.FUTURE_TIMESTAMP);
+        assertThat(engine.getRuleStats()).extracting(DealRuleEngine.RuleStats::evaluations).containsOnly(1L);
+    }
+
+    @Test
+    void validatorReportsRuleFailuresWithTheParsedTimestamp() {
+        DealValidator validator = new DealValidator(new DealRuleEngine(rules, false, 1024, null));
+
+        ValidatedRow rejected = validator.validate(new DealRow(1, "D1", "EUR", "EUR", "2025-11-13T10:00:00", "5"));
+        assertThat(rejected.deal()).isNull();
+        assertThat(rejected.error()).isEqualTo(DealRules.SAME_CURRENCY);
+        assertThat(rejected.timestamp()).isEqualTo(LocalDateTime.parse("2025-11-13T10:00:00"));
+
+        // Format checks still come first and keep their reasons
+        assertThat(validator.validate(new DealRow(2, "D2", "EUR", "EUR", "13/11/2025", "5")).error())
+                .isEqualTo(DealValidator.INVALID_TIMESTAMP);
+        assertThat(validator.validate(new DealRow(3, "D3", "EUR", "USD", "2025-11-13T10:00:00", "5")).deal()).isNotNull();
+    }
+
+    private static CompactDeal deal(String from, String to, String timestamp, String amount) {
+        LocalDateTime dealTimestamp = LocalDateTime.parse(timestamp);
+        return CompactDeal.of("D1", from, to, dealTimestamp.toEpochSecond(ZoneOffset.UTC), 0, new BigDecimal(amount));
+    }
+}
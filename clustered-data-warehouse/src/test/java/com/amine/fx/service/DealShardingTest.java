@@ -0,0 +1,267 @@
+package com.amine.fx.service;
+
+import com.amine.fx.model.Deal;
+import com.amine.fx.repository.ConsistentHashRing;
+import com.amine.fx.repository.DealFilter;
+import com.amine.fx.repository.DealShards;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.reset;
+
+/**
+ * Three in-memory H2 databases stand in for the MySQL nodes.
+ */
+@SpringBootTest(properties = {
+        "fx.sharding.enabled=true",
+        "fx.sharding.urls=jdbc:h2:mem:shard0;MODE=MySQL;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard1;MODE=MySQL;DB_CLOSE_DELAY=-1,"
+                + "jdbc:h2:mem:shard2;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "fx.import.chunk-size=50",
+        "fx.import.dedup.max-ids-in-memory=100",
+        "fx.import.pipeline.writer-threads=3",
+        "fx.import.writers.max-total=3"
+})
+@ActiveProfiles("test")
+class DealShardingTest {
+
+    private static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 1, 0, 0);
+
+    @Autowired
+    private DealImportService dealImportService;
+
+    @Autowired
+    private DealQueryService dealQueryService;
+
+    @Autowired
+    private DealLookupService dealLookupService;
+
+    @Autowired
+    private DealShards dealShards;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoSpyBean
+    private DealRollupService dealRollupService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void cleanDatabases() {
+        for (DealShards.Shard shard : dealShards.all()) {
+            shard.jdbcTemplate().update("DELETE FROM fx_deals");
+            shard.jdbcTemplate().update("DELETE FROM fx_deal_keys");
+        }
+        jdbcTemplate.update("DELETE FROM fx_deal_rollups");
+        jdbcTemplate.update("DELETE FROM fx_deal_errors");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+        dealLookupService.invalidateAll();
+    }
+
+    @Test
+    void importSpreadsDealsOverEveryShardByTheirId() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(3), 400, 0));
+        Path file = writeCsv("deals.csv", generateRows(new Random(11), 3_000, 400));
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        ImportCounts sequentialCounts = dealImportService.importDealsFromCsv(file.toString(), false);
+        List<String> sequentialDeals = shardedDeals();
+        List<Map<String, Object>> sequentialErrors = errors();
+
+        cleanDatabases();
+
+        dealImportService.importDealsFromCsv(existing.toString(), true);
+        ImportCounts parallelCounts = dealImportService.importDealsFromCsv(file.toString(), true);
+
+        assertThat(shardedDeals()).isEqualTo(sequentialDeals);
+        assertThat(errors()).isEqualTo(sequentialErrors);
+        assertThat(parallelCounts.getErrorsByReason()).isEqualTo(sequentialCounts.getErrorsByReason());
+        // 🔁 Repeats of IDs stored earlier were found on their shard
+        assertThat(sequentialCounts.getErrorsByReason()).containsKey(DealValidator.DUPLICATE_DEAL_ID);
+
+        // Every shard got its share, every deal sits where the ring puts it, nothing on the primary
+        for (DealShards.Shard shard : dealShards.all()) {
+            List<String> ids = shard.jdbcTemplate().queryForList("SELECT deal_unique_id FROM fx_deals", String.class);
+            assertThat(ids).hasSizeGreaterThan(sequentialDeals.size() / 6);
+            assertThat(ids).allMatch(id -> dealShards.forDealId(id) == shard);
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deals", Long.class)).isZero();
+    }
+
+    @Test
+    void resumeAfterAFailedPrimaryCommitTakesTheShardedDealsAsItsOwn() throws IOException {
+        Path existing = writeCsv("existing.csv", generateRows(new Random(3), 400, 0));
+        Path file = writeCsv("deals.csv", generateRows(new Random(17), 2_000, 400));
+
+        dealImportService.importDealsFromCsv(existing.toString(), false);
+        dealImportService.importDealsFromCsv(file.toString(), false);
+        List<String> expectedDeals = shardedDeals();
+        List<Map<String, Object>> expectedRollups = rollups();
+        List<Map<String, Object>> expectedErrors = errors();
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            cleanDatabases();
+            dealImportService.importDealsFromCsv(existing.toString(), parallel);
+
+            // 💥 The primary transaction of the 10th chunk fails after its deals committed on the shards
+            AtomicInteger chunks = new AtomicInteger();
+            doAnswer(invocation -> {
+                if (chunks.incrementAndGet() == 10) {
+                    throw new IllegalStateException("Primary went away");
+                }
+                return invocation.callRealMethod();
+            }).when(dealRollupService).addDeals(any());
+            assertThatThrownBy(() -> dealImportService.importDealsFromCsv(file.toString(), parallel))
+                    .hasStackTraceContaining("Primary went away");
+            reset(dealRollupService);
+            assertThat(keysPastCheckpoint()).isPositive();
+
+            dealImportService.importDealsFromCsv(file.toString(), parallel);
+
+            // Same deals and rollups as the import that never failed, no duplicate errors for our own deals
+            // (errors saved before the failure are saved again - fx_deal_errors is at-least-once)
+            assertThat(shardedDeals()).isEqualTo(expectedDeals);
+            assertThat(rollups()).isEqualTo(expectedRollups);
+            assertThat(new HashSet<>(errors())).isEqualTo(new HashSet<>(expectedErrors));
+        }
+    }
+
+    @Test
+    void queriesMergeEveryShardInOrder() throws IOException {
+        dealImportService.importDealsFromCsv(writeCsv("deals.csv", generateRows(new Random(5), 1_000, 0)).toString(), false);
+        DealFilter filter = new DealFilter("EUR", null, START.plusMinutes(20), START.plusMinutes(180));
+
+        List<Deal> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            DealQueryService.DealPage page = dealQueryService.findDeals(filter, 9, cursor);
+            paged.addAll(page.deals());
+            cursor = page.nextCursor();
+        } while (cursor != null);
+
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        long exported = dealQueryService.export(filter, DealQueryService.ExportFormat.CSV, csv);
+        List<String> exportedIds = csv.toString(StandardCharsets.UTF_8).lines().skip(1)
+                .map(row -> row.substring(0, row.indexOf(','))).toList();
+
+        // Same deals as asking each shard, in the same (timestamp, id) order for paging and export
+        long expected = dealShards.all().stream().mapToLong(shard -> shard.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM fx_deals WHERE from_currency = 'EUR' AND deal_timestamp >= ? AND deal_timestamp < ?",
+                Long.class, START.plusMinutes(20), START.plusMinutes(180))).sum();
+        assertThat(paged).hasSize((int) expected);
+        assertThat(exported).isEqualTo(expected);
+        assertThat(paged).extracting(Deal::getDealUniqueId).containsExactlyElementsOf(exportedIds).doesNotHaveDuplicates();
+        assertThat(paged).isSortedAccordingTo(Comparator.comparing(Deal::getDealTimestamp).thenComparing(Deal::getId));
+        assertThat(paged).extracting(deal -> dealShards.forDealId(deal.getDealUniqueId()).index()).contains(0, 1, 2);
+
+        // 🔍 Lookups go to the deal's own shard
+        Deal first = paged.get(0);
+        dealLookupService.invalidateAll();
+        assertThat(dealLookupService.findByDealUniqueId(first.getDealUniqueId()))
+                .hasValueSatisfying(deal -> assertThat(deal.getAmount()).isEqualByComparingTo(first.getAmount()));
+        assertThat(dealLookupService.findByDealUniqueId("NOPE")).isEmpty();
+    }
+
+    @Test
+    void addingANodeOnlyMovesTheKeysItTakesOver() {
+        ConsistentHashRing three = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ConsistentHashRing four = new ConsistentHashRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+
+        int keys = 20_000;
+        int[] perNode = new int[3];
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            String id = "D" + i;
+            int before = three.nodeFor(id);
+            int after = four.nodeFor(id);
+            perNode[before]++;
+            if (before != after) {
+                assertThat(after).isEqualTo(3); // Never between the old nodes
+                moved++;
+            }
+        }
+        assertThat(moved).isBetween(keys / 6, keys / 3);
+        assertThat(IntStream.of(perNode).boxed().toList()).allMatch(count -> count > keys / 4 && count < keys / 2);
+    }
+
+    // 🧩 Every deal of every shard, with the shard it sits on
+    private List<String> shardedDeals() {
+        List<String> deals = new ArrayList<>();
+        for (DealShards.Shard shard : dealShards.all()) {
+            shard.jdbcTemplate().queryForList("SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount " +
+                    "FROM fx_deals").forEach(row -> deals.add(shard.name() + " " + row.values()));
+        }
+        deals.sort(null);
+        return deals;
+    }
+
+    private List<Map<String, Object>> rollups() {
+        return jdbcTemplate.queryForList("SELECT from_currency, to_currency, deal_date, deal_count, total_amount, " +
+                "min_amount, max_amount FROM fx_deal_rollups ORDER BY from_currency, to_currency, deal_date");
+    }
+
+    // 🧩 Keys the shards committed for chunks the checkpoint of the import never reached
+    private long keysPastCheckpoint() {
+        Map<String, Object> checkpoint = jdbcTemplate.queryForMap(
+                "SELECT id, last_committed_record FROM fx_import_checkpoints WHERE status = 'IN_PROGRESS'");
+        return dealShards.all().stream().mapToLong(shard -> shard.jdbcTemplate().queryForObject(
+                "SELECT COUNT(*) FROM fx_deal_keys WHERE checkpoint_id = ? AND chunk_first_record > ?", Long.class,
+                checkpoint.get("id"), checkpoint.get("last_committed_record"))).sum();
+    }
+
+    private List<Map<String, Object>> errors() {
+        return jdbcTemplate.queryForList("SELECT deal_unique_id, from_currency, to_currency, deal_timestamp, amount, " +
+                "error_reason FROM fx_deal_errors " +
+                "ORDER BY deal_unique_id, error_reason, from_currency, to_currency, deal_timestamp, amount");
+    }
+
+    private Path writeCsv(String name, List<String> rows) throws IOException {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        lines.addAll(rows);
+        return Files.write(tempDir.resolve(name), lines);
+    }
+
+    // 🎲 Several deals per minute (ties on the timestamp), some IDs repeated, a few bad amounts
+    private List<String> generateRows(Random random, int count, int idOffset) {
+        String[] currencies = {"USD", "EUR", "GBP", "JPY", "CHF"};
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int id = random.nextInt(10) == 0 ? random.nextInt(idOffset + i + 1) : idOffset + i;
+            String from = currencies[random.nextInt(currencies.length)];
+            String to = currencies[random.nextInt(currencies.length)];
+            String timestamp = START.plusMinutes(random.nextInt(240)).toString() + ":00";
+            String amount = random.nextInt(25) == 0 ? "-1" : (1 + random.nextInt(100_000)) + "." + random.nextInt(100);
+            rows.add(String.join(",", "D" + id, from, to, timestamp, amount));
+        }
+        return rows;
+    }
+}
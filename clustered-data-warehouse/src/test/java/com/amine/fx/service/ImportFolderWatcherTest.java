@@ -0,0 +1,104 @@
+package com.amine.fx.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {
+        "fx.import.watch.enabled=true",
+        "fx.import.watch.stable-time=300ms",
+        "fx.import.watch.poll-interval=50ms"
+})
+@ActiveProfiles("test")
+class ImportFolderWatcherTest {
+
+    private static final String HEADER = "Deal Unique Id,From Currency ISO Code,To Currency ISO Code,Deal timestamp,Deal Amount";
+
+    private static final Path INBOX = createInbox();
+
+    @DynamicPropertySource
+    static void watchedFolder(DynamicPropertyRegistry registry) {
+        registry.add("fx.import.watch.directory", INBOX::toString);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DealLookupService dealLookupService;
+
+    @BeforeEach
+    void cleanDatabase() {
+        jdbcTemplate.update("DELETE FROM fx_deals");
+        jdbcTemplate.update("DELETE FROM fx_deal_keys");
+        jdbcTemplate.update("DELETE FROM fx_deal_rollups");
+        jdbcTemplate.update("DELETE FROM fx_deal_errors");
+        jdbcTemplate.update("DELETE FROM fx_import_checkpoints");
+        dealLookupService.invalidateAll();
+    }
+
+    @Test
+    void droppedFilesAreImportedOnceCompleteAndMovedToDone() throws Exception {
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 0; i < 200; i++) {
+            lines.add("W" + i + ",EUR,USD,2025-11-10T10:%02d:00,%d.25".formatted(i % 60, i + 1));
+        }
+        byte[] content = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        // ✍️ Written in two halves with a pause, like a slow copy - must not be picked up half-way
+        Path dropped = INBOX.resolve("deals.csv");
+        try (OutputStream out = Files.newOutputStream(dropped)) {
+            out.write(content, 0, content.length / 2);
+            out.flush();
+            Thread.sleep(150);
+            out.write(content, content.length / 2, content.length - content.length / 2);
+        }
+
+        awaitFile(INBOX.resolve("done").resolve("deals.csv"));
+        assertThat(dropped).doesNotExist();
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deals", Long.class)).isEqualTo(200);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deal_errors", Long.class)).isZero();
+
+        // 🔁 Same content again under another name: recognised by its hash, moved to done without importing
+        Files.write(INBOX.resolve("again.csv"), content);
+        awaitFile(INBOX.resolve("done").resolve("again.csv"));
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM fx_deal_errors", Long.class)).isZero();
+
+        // Files that don't look like CSVs stay where they are
+        Files.writeString(INBOX.resolve("notes.txt"), "not a deal file");
+        Thread.sleep(600);
+        assertThat(INBOX.resolve("notes.txt")).exists();
+    }
+
+    private static void awaitFile(Path file) throws InterruptedException {
+        for (int i = 0; i < 300 && !Files.exists(file); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(file).exists();
+    }
+
+    private static Path createInbox() {
+        try {
+            return Files.createTempDirectory("deals-inbox");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}